@@ -0,0 +1,527 @@
+package config;
+
+import utils.LatencyHistogram;
+import utils.Log;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Bounded JDBC connection pool for AttendEase
+ * Pre-warms connections, validates them on borrow and evicts idle ones.
+ * Closing a borrowed connection returns it to the pool.
+ * Tracks borrow latency, hold time and connections held past a leak threshold.
+ * Each connection can keep an LRU cache of prepared statements (see StatementCache).
+ */
+public class ConnectionPool {
+
+    private final String name;
+    private final String url;
+    private final Properties props;
+
+    // Pool settings
+    private final int maxSize;
+    private final int minIdle;
+    private final long borrowTimeoutMs;
+    private final long idleTimeoutMs;
+    private final int validationTimeoutSeconds;
+
+    // One permit per connection that may be handed out
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final AtomicInteger totalConnections = new AtomicInteger();
+    private final ScheduledExecutorService evictor;
+
+    // Instrumentation
+    private final Set<Handle> activeHandles = ConcurrentHashMap.newKeySet();
+    private final LatencyHistogram borrowWait = new LatencyHistogram();
+    private final LatencyHistogram holdTime = new LatencyHistogram();
+    private final LongAdder borrowCount = new LongAdder();
+    private final LongAdder timeoutCount = new LongAdder();
+    private final LongAdder createdCount = new LongAdder();
+    private final LongAdder destroyedCount = new LongAdder();
+    private final LongAdder leakCount = new LongAdder();
+    private volatile long leakDetectionThresholdMs;
+
+    // Prepared statement caching
+    private final StatementCache.Counters statementCounters = new StatementCache.Counters();
+    private volatile int statementCacheSize;
+
+    private volatile boolean shutdown;
+
+    // Set while a thread borrows a connection it will hold for as long as a client reads
+    private static final ThreadLocal<Boolean> longHeldBorrow = new ThreadLocal<>();
+
+    /**
+     * Create and pre-warm a pool
+     * @param name Pool name used in log messages
+     * @param url JDBC URL
+     * @param props Driver properties (user, password, ...)
+     * @param initialSize Connections opened up front and kept idle
+     * @param maxSize Upper bound on open connections
+     * @param borrowTimeoutMs How long a borrower waits for a free connection
+     * @param idleTimeoutMs Idle connections above initialSize are closed after this long
+     * @param validationTimeoutSeconds Timeout for Connection.isValid on borrow
+     */
+    public ConnectionPool(String name, String url, Properties props, int initialSize, int maxSize,
+                          long borrowTimeoutMs, long idleTimeoutMs, int validationTimeoutSeconds) {
+        if (maxSize <= 0 || initialSize < 0 || initialSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: initial=" + initialSize + ", max=" + maxSize);
+        }
+
+        this.name = name;
+        this.url = url;
+        this.props = props;
+        this.maxSize = maxSize;
+        this.minIdle = initialSize;
+        this.borrowTimeoutMs = borrowTimeoutMs;
+        this.idleTimeoutMs = idleTimeoutMs;
+        this.validationTimeoutSeconds = validationTimeoutSeconds;
+        this.permits = new Semaphore(maxSize, true);
+
+        prewarm(initialSize);
+
+        this.evictor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "attendease-" + name + "-evictor");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = Math.max(1000L, idleTimeoutMs / 2);
+        evictor.scheduleWithFixedDelay(this::evictIdle, interval, interval, TimeUnit.MILLISECONDS);
+        evictor.scheduleWithFixedDelay(this::detectLeaks, 1, 1, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Borrow a connection, waiting up to the borrow timeout
+     * @return Connection whose close() returns it to the pool
+     * @throws SQLException if the pool is exhausted or a connection cannot be opened
+     */
+    public Connection borrow() throws SQLException {
+        if (shutdown) {
+            throw new SQLException("Connection pool '" + name + "' has been shut down");
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMs, TimeUnit.MILLISECONDS)) {
+                timeoutCount.increment();
+                borrowWait.recordSince(start);
+                throw new SQLException("Timed out after " + borrowTimeoutMs +
+                    " ms waiting for a connection from pool '" + name + "'");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (isUsable(pooled)) {
+                    break;
+                }
+                destroy(pooled);
+            }
+            if (pooled == null) {
+                pooled = createConnection();
+            }
+
+            Connection connection = pooled.lease();
+            borrowCount.increment();
+            borrowWait.recordSince(start);
+            return connection;
+
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Mark borrows made by the current thread as long-held, or clear the mark
+     * Long-held connections, such as those streaming an export to a slow client,
+     * are left out of leak detection.
+     * @param longHeld true before the borrow, false after it
+     */
+    static void setLongHeldBorrow(boolean longHeld) {
+        if (longHeld) {
+            longHeldBorrow.set(Boolean.TRUE);
+        } else {
+            longHeldBorrow.remove();
+        }
+    }
+
+    /**
+     * Close every connection and stop the evictor
+     */
+    public void shutdown() {
+        shutdown = true;
+        evictor.shutdownNow();
+
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            destroy(pooled);
+        }
+        Log.info("Connection pool shut down", "pool", name);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    public int getTotalConnections() {
+        return totalConnections.get();
+    }
+
+    public int getIdleConnections() {
+        return idle.size();
+    }
+
+    public int getActiveConnections() {
+        return maxSize - permits.availablePermits();
+    }
+
+    public int getPendingBorrowers() {
+        return permits.getQueueLength();
+    }
+
+    public LatencyHistogram getBorrowWaitHistogram() {
+        return borrowWait;
+    }
+
+    public LatencyHistogram getHoldTimeHistogram() {
+        return holdTime;
+    }
+
+    public long getLeakCount() {
+        return leakCount.sum();
+    }
+
+    /**
+     * Enable leak detection
+     * @param thresholdMs Log the borrowing stack trace when a connection is held longer than this, 0 disables
+     */
+    public void setLeakDetectionThreshold(long thresholdMs) {
+        this.leakDetectionThresholdMs = thresholdMs;
+    }
+
+    /**
+     * Enable per-connection prepared statement caching
+     * @param size Statements cached per connection, 0 disables caching
+     */
+    public void setStatementCacheSize(int size) {
+        this.statementCacheSize = size;
+    }
+
+    /**
+     * Get a snapshot of pool state and counters
+     * @return Map with pool statistics
+     */
+    public Map<String, Object> getStatistics() {
+        long hits = statementCounters.hits.sum();
+        long misses = statementCounters.misses.sum();
+
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("name", name);
+        stats.put("maxSize", maxSize);
+        stats.put("totalConnections", getTotalConnections());
+        stats.put("activeConnections", getActiveConnections());
+        stats.put("idleConnections", getIdleConnections());
+        stats.put("pendingBorrowers", getPendingBorrowers());
+        stats.put("borrowCount", borrowCount.sum());
+        stats.put("borrowTimeouts", timeoutCount.sum());
+        stats.put("connectionsCreated", createdCount.sum());
+        stats.put("connectionsDestroyed", destroyedCount.sum());
+        stats.put("leaksDetected", leakCount.sum());
+        stats.put("leakDetectionThresholdMs", leakDetectionThresholdMs);
+        stats.put("statementCacheSize", statementCacheSize);
+        stats.put("statementCacheHits", hits);
+        stats.put("statementCacheMisses", misses);
+        stats.put("statementCacheEvictions", statementCounters.evictions.sum());
+        stats.put("statementCacheHitRatio", hits + misses > 0 ? (double) hits / (hits + misses) : 0.0);
+        stats.put("borrowWait", borrowWait.toMap());
+        stats.put("holdTime", holdTime.toMap());
+        return stats;
+    }
+
+    /**
+     * Open the initial set of idle connections
+     */
+    private void prewarm(int count) {
+        for (int i = 0; i < count; i++) {
+            try {
+                idle.offerLast(createConnection());
+            } catch (SQLException e) {
+                Log.warn("Failed to pre-warm connection pool", "pool", name, "error", e.getMessage());
+                break;
+            }
+        }
+    }
+
+    /**
+     * Open a new physical connection
+     */
+    private PooledConnection createConnection() throws SQLException {
+        Connection physical = DriverManager.getConnection(url, props);
+        totalConnections.incrementAndGet();
+        createdCount.increment();
+        return new PooledConnection(physical);
+    }
+
+    /**
+     * Check an idle connection before handing it out
+     */
+    private boolean isUsable(PooledConnection pooled) {
+        try {
+            return pooled.physical.isValid(validationTimeoutSeconds);
+        } catch (SQLException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Put a connection back once the borrower closes it
+     */
+    private void release(PooledConnection pooled, boolean broken) {
+        try {
+            if (pooled.statementCache != null) {
+                pooled.statementCache.releaseAll();
+            }
+            if (broken || shutdown || !reset(pooled.physical)) {
+                destroy(pooled);
+            } else {
+                pooled.lastReturned = System.currentTimeMillis();
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Undo per-borrow state so the next borrower gets a clean connection
+     * @return false if the connection could not be reset
+     */
+    private boolean reset(Connection physical) {
+        try {
+            if (physical.isClosed()) {
+                return false;
+            }
+            if (!physical.getAutoCommit()) {
+                physical.rollback();
+                physical.setAutoCommit(true);
+            }
+            if (physical.isReadOnly()) {
+                physical.setReadOnly(false);
+            }
+            physical.clearWarnings();
+            return true;
+
+        } catch (SQLException e) {
+            Log.warn("Discarding pooled connection", "pool", name, "error", e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Close idle connections that have not been used within the idle timeout,
+     * keeping at least the initial number around
+     */
+    private void evictIdle() {
+        long cutoff = System.currentTimeMillis() - idleTimeoutMs;
+        Iterator<PooledConnection> it = idle.descendingIterator();
+
+        while (it.hasNext() && idle.size() > minIdle) {
+            PooledConnection pooled = it.next();
+            if (pooled.lastReturned < cutoff && idle.removeFirstOccurrence(pooled)) {
+                destroy(pooled);
+            }
+        }
+    }
+
+    /**
+     * Report connections held past the leak threshold, once per borrow
+     */
+    private void detectLeaks() {
+        long threshold = leakDetectionThresholdMs;
+        if (threshold <= 0) {
+            return;
+        }
+
+        long now = System.currentTimeMillis();
+        for (Handle handle : activeHandles) {
+            long heldMs = now - handle.borrowedAtMillis;
+            if (heldMs > threshold && !handle.leakReported && !handle.longHeld) {
+                handle.leakReported = true;
+                leakCount.increment();
+                Log.warn("Possible connection leak", handle.borrowSite,
+                         "pool", name, "heldMs", heldMs, "thread", handle.borrowerThread);
+            }
+        }
+    }
+
+    private void destroy(PooledConnection pooled) {
+        totalConnections.decrementAndGet();
+        destroyedCount.increment();
+        if (pooled.statementCache != null) {
+            pooled.statementCache.clear();
+        }
+        try {
+            pooled.physical.close();
+        } catch (SQLException e) {
+            Log.warn("Error closing pooled connection", "pool", name, "error", e.getMessage());
+        }
+    }
+
+    /**
+     * A physical connection owned by the pool
+     */
+    private class PooledConnection {
+        private final Connection physical;
+        private volatile long lastReturned = System.currentTimeMillis();
+        private volatile StatementCache statementCache;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+        }
+
+        /**
+         * Prepare through the statement cache when caching is enabled
+         */
+        PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys) throws SQLException {
+            int size = statementCacheSize;
+            if (size <= 0) {
+                return physical.prepareStatement(sql, autoGeneratedKeys);
+            }
+            if (statementCache == null) {
+                statementCache = new StatementCache(physical, size, statementCounters);
+            }
+            return statementCache.prepare(owner, sql, autoGeneratedKeys);
+        }
+
+        /**
+         * Wrap the physical connection in a handle that is only valid until closed
+         */
+        Connection lease() {
+            Handle handle = new Handle(this);
+            activeHandles.add(handle);
+            return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[] { Connection.class },
+                handle
+            );
+        }
+    }
+
+    /**
+     * Borrower-side view of a pooled connection
+     */
+    private class Handle implements InvocationHandler {
+        private final PooledConnection pooled;
+        private final AtomicBoolean closed = new AtomicBoolean(false);
+        private final long borrowedAtNanos = System.nanoTime();
+        private final long borrowedAtMillis = System.currentTimeMillis();
+        private final String borrowerThread = Thread.currentThread().getName();
+        private final boolean longHeld = longHeldBorrow.get() != null;
+        private final Throwable borrowSite;
+        private volatile boolean leakReported;
+
+        Handle(PooledConnection pooled) {
+            this.pooled = pooled;
+            // Capturing a stack trace is not free, so only do it while leak detection is on
+            this.borrowSite = leakDetectionThresholdMs > 0 && !longHeld
+                ? new Throwable("Connection borrowed here") : null;
+        }
+
+        /**
+         * Hand the connection back exactly once
+         */
+        private void returnToPool(boolean broken) {
+            if (closed.compareAndSet(false, true)) {
+                activeHandles.remove(this);
+                holdTime.recordSince(borrowedAtNanos);
+                if (leakReported) {
+                    Log.warn("Previously reported leaked connection returned",
+                             "pool", name, "heldMs", System.currentTimeMillis() - borrowedAtMillis);
+                }
+                release(pooled, broken);
+            }
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    returnToPool(false);
+                    return null;
+                case "isClosed":
+                    return closed.get() || pooled.physical.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "PooledConnection[" + name + "]";
+                default:
+                    break;
+            }
+
+            if (closed.get()) {
+                throw new SQLException("Connection has already been returned to the pool");
+            }
+
+            if ("prepareStatement".equals(method.getName()) && statementCacheSize > 0) {
+                Class<?>[] types = method.getParameterTypes();
+                if (types.length == 1) {
+                    return pooled.prepare((Connection) proxy, (String) args[0], Statement.NO_GENERATED_KEYS);
+                }
+                if (types.length == 2 && types[1] == int.class) {
+                    return pooled.prepare((Connection) proxy, (String) args[0], (Integer) args[1]);
+                }
+            }
+
+            try {
+                return method.invoke(pooled.physical, args);
+            } catch (InvocationTargetException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof SQLException && isFatal((SQLException) cause)) {
+                    returnToPool(true);
+                }
+                throw cause;
+            }
+        }
+
+        /**
+         * Connection-level failures (SQLState class 08) mean the socket is gone
+         */
+        private boolean isFatal(SQLException e) {
+            String state = e.getSQLState();
+            return state != null && state.startsWith("08");
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package config;
 
+import utils.Bulkhead;
+import utils.Log;
+import utils.ReportJobQueue;
+import utils.Workload;
+
 import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.Properties;
 import java.io.InputStream;
 import java.io.IOException;
 
 /**
  * Database Connection Manager for AttendEase
- * Implements connection pooling and manages JDBC connections
+ * Hands out pooled JDBC connections backed by ConnectionPool.
+ * Writes use the primary pool; reads can be routed to an optional read replica
+ * configured in db.properties, falling back to the primary when it lags.
  */
 public class DBConnection {
     
@@ -22,10 +31,39 @@ public class DBConnection {
     // Connection pool settings
     private static final int MAX_POOL_SIZE = 20;
     private static final int INITIAL_POOL_SIZE = 5;
+    private static final long BORROW_TIMEOUT_MS = 5000;
+    private static final long IDLE_TIMEOUT_MS = 10 * 60 * 1000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+    private static final long LEAK_DETECTION_THRESHOLD_MS = 60 * 1000;
+    
+    // Prepared statement cache settings
+    private static final int STATEMENT_CACHE_SIZE = 64;
+    private static final boolean USE_SERVER_PREPARED_STATEMENTS = true;
+    
+    // Queries one report may run at once on its own connections (overridden from db.properties)
+    private static final int PARALLEL_READS_PER_REQUEST = 3;
+    
+    // Read replica settings (overridden from db.properties)
+    private static final String CONFIG_FILE = "db.properties";
+    private static final int REPLICA_MAX_POOL_SIZE = 20;
+    private static final int REPLICA_INITIAL_POOL_SIZE = 2;
+    private static final long REPLICA_LAG_CHECK_INTERVAL_MS = 5000;
+    private static volatile String replicaUrl;
+    private static String replicaUser = DB_USER;
+    private static String replicaPassword = DB_PASSWORD;
+    private static long replicaMaxLagSeconds = 10;
+    
+    // All keys from db.properties, for settings read by other components
+    private static final Properties settings = new Properties();
     
     // Singleton instance
     private static DBConnection instance;
-    private static Connection connection;
+    private static volatile ConnectionPool pool;
+    private static volatile ConnectionPool replicaPool;
+    private static volatile ConnectionPool reportPool;
+    private static volatile boolean reportPoolDisabled;
+    private static volatile Boolean queryTiming;
+    private static volatile ReplicaLagMonitor replicaLagMonitor;
     
     /**
      * Private constructor to prevent instantiation
@@ -35,6 +73,7 @@ public class DBConnection {
             // Load MySQL JDBC Driver
             Class.forName(DB_DRIVER);
             System.out.println("MySQL JDBC Driver loaded successfully");
+            loadConfig(CONFIG_FILE);
         } catch (ClassNotFoundException e) {
             System.err.println("MySQL JDBC Driver not found!");
             e.printStackTrace();
@@ -54,33 +93,230 @@ public class DBConnection {
     }
     
     /**
-     * Get database connection
+     * Get database connection from the pool
+     * Closing the returned connection hands it back to the pool
      * @return Connection object
-     * @throws SQLException if connection fails
+     * @throws SQLException if no connection becomes available within the borrow timeout
+     */
+    public static Connection getConnection() throws SQLException {
+        try {
+            return timed(getPool().borrow());
+        } catch (SQLException e) {
+            Log.warn("Failed to obtain database connection", "url", DB_URL, "error", e.getMessage());
+            throw e;
+        }
+    }
+    
+    /**
+     * Get the connection pool, creating and pre-warming it on first use
+     * @return ConnectionPool instance
      */
-    public static synchronized Connection getConnection() throws SQLException {
-        if (connection == null || connection.isClosed()) {
+    public static ConnectionPool getPool() {
+        ConnectionPool current = pool;
+        if (current == null) {
+            synchronized (DBConnection.class) {
+                current = pool;
+                if (current == null) {
+                    getInstance();
+                    current = new ConnectionPool("primary", DB_URL,
+                        buildConnectionProperties(DB_USER, DB_PASSWORD),
+                        INITIAL_POOL_SIZE, MAX_POOL_SIZE, BORROW_TIMEOUT_MS,
+                        IDLE_TIMEOUT_MS, VALIDATION_TIMEOUT_SECONDS);
+                    current.setLeakDetectionThreshold(LEAK_DETECTION_THRESHOLD_MS);
+                    current.setStatementCacheSize(STATEMENT_CACHE_SIZE);
+                    pool = current;
+                    Log.info("Database connection pool initialized", "maxSize", MAX_POOL_SIZE);
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Get a connection for read-only queries
+     * Served by the read replica when one is configured, reachable and within
+     * the allowed replication lag; otherwise by the primary pool, or by the
+     * report pool for requests in the report bulkhead so that report storms
+     * cannot take the connections writes need.
+     * Callers must not write through this connection.
+     * @return Connection object
+     * @throws SQLException if no connection can be obtained from either pool
+     */
+    public static Connection getReadConnection() throws SQLException {
+        ConnectionPool replica = getReplicaPool();
+        
+        if (replica != null && replicaLagMonitor.isReplicaUsable()) {
             try {
-                Properties props = new Properties();
-                props.setProperty("user", DB_USER);
-                props.setProperty("password", DB_PASSWORD);
-                props.setProperty("useSSL", "false");
-                props.setProperty("serverTimezone", "Asia/Kolkata");
-                props.setProperty("allowPublicKeyRetrieval", "true");
-                props.setProperty("autoReconnect", "true");
-                props.setProperty("maxReconnects", "3");
-                
-                connection = DriverManager.getConnection(DB_URL, props);
-                System.out.println("Database connection established successfully");
-                
+                return timed(replica.borrow());
             } catch (SQLException e) {
-                System.err.println("Failed to establish database connection!");
-                System.err.println("URL: " + DB_URL);
-                System.err.println("Error: " + e.getMessage());
-                throw e;
+                // Only a connection-level failure means the replica is down; a borrow
+                // timeout just means it is busy, so only this read goes to the primary
+                boolean unreachable = e.getSQLState() != null && e.getSQLState().startsWith("08");
+                Log.warn("Replica connection failed, reading from primary",
+                         "error", e.getMessage(), "unreachable", unreachable);
+                if (unreachable) {
+                    replicaLagMonitor.markUnreachable();
+                }
+            }
+        }
+        
+        if (Workload.current() == Workload.REPORT) {
+            ConnectionPool reports = getReportPool();
+            if (reports != null) {
+                return timed(reports.borrow());
+            }
+        }
+        
+        return getConnection();
+    }
+    
+    /**
+     * Get a read connection for streaming a result to a client
+     * Same as getReadConnection(), but the connection is left out of leak
+     * detection since it is held for as long as the client takes to read. The
+     * server still bounds a stalled client, as Connector/J raises
+     * net_write_timeout while a streaming result is open.
+     * @return Connection object
+     * @throws SQLException if no connection can be obtained from either pool
+     */
+    public static Connection getStreamingReadConnection() throws SQLException {
+        ConnectionPool.setLongHeldBorrow(true);
+        try {
+            return getReadConnection();
+        } finally {
+            ConnectionPool.setLongHeldBorrow(false);
+        }
+    }
+    
+    /**
+     * Wrap a borrowed connection so its queries are timed, unless disabled
+     * with metrics.queryTiming.enabled=false
+     */
+    private static Connection timed(Connection conn) {
+        if (queryTiming == null) {
+            queryTiming = getBooleanSetting("metrics.queryTiming.enabled", true);
+        }
+        return queryTiming ? TimedConnection.wrap(conn) : conn;
+    }
+    
+    /**
+     * Get the pool reserved for heavy report reads, creating it on first use
+     * By default it has room for every report the report bulkhead admits and
+     * every report job worker, each with its forked queries.
+     * @return ConnectionPool for reports, or null if bulkheads are disabled or
+     *         bulkhead.report.connections is 0
+     */
+    public static ConnectionPool getReportPool() {
+        ConnectionPool current = reportPool;
+        if (current == null) {
+            if (reportPoolDisabled) {
+                return null;
+            }
+            // Worked out before locking, the lookups take locks of their own
+            int reports = Bulkhead.forWorkload(Workload.REPORT).getMaxConcurrent()
+                + ReportJobQueue.getConfiguredWorkers();
+            long defaultSize = (long) reports * getParallelReadsPerRequest();
+            synchronized (DBConnection.class) {
+                current = reportPool;
+                if (current == null) {
+                    int size = (int) getLongSetting("bulkhead.report.connections", defaultSize);
+                    if (size <= 0 || !getBooleanSetting("bulkhead.enabled", true)) {
+                        reportPoolDisabled = true;
+                        return null;
+                    }
+                    current = new ConnectionPool("report", DB_URL,
+                        buildConnectionProperties(DB_USER, DB_PASSWORD),
+                        0, size, BORROW_TIMEOUT_MS, IDLE_TIMEOUT_MS, VALIDATION_TIMEOUT_SECONDS);
+                    current.setLeakDetectionThreshold(LEAK_DETECTION_THRESHOLD_MS);
+                    current.setStatementCacheSize(STATEMENT_CACHE_SIZE);
+                    reportPool = current;
+                    Log.info("Report connection pool initialized", "maxSize", size);
+                }
             }
         }
-        return connection;
+        return current;
+    }
+    
+    /**
+     * Get the read replica pool, creating it on first use
+     * @return ConnectionPool for the replica, or null if no replica is configured
+     */
+    public static ConnectionPool getReplicaPool() {
+        ConnectionPool current = replicaPool;
+        if (current == null) {
+            if (instance == null) {
+                getInstance();
+            }
+            if (replicaUrl == null) {
+                return null;
+            }
+            synchronized (DBConnection.class) {
+                current = replicaPool;
+                if (current == null && replicaUrl != null) {
+                    current = new ConnectionPool("replica", replicaUrl,
+                        buildConnectionProperties(replicaUser, replicaPassword),
+                        REPLICA_INITIAL_POOL_SIZE, REPLICA_MAX_POOL_SIZE, BORROW_TIMEOUT_MS,
+                        IDLE_TIMEOUT_MS, VALIDATION_TIMEOUT_SECONDS);
+                    current.setLeakDetectionThreshold(LEAK_DETECTION_THRESHOLD_MS);
+                    current.setStatementCacheSize(STATEMENT_CACHE_SIZE);
+                    replicaLagMonitor = new ReplicaLagMonitor(current, replicaMaxLagSeconds,
+                        REPLICA_LAG_CHECK_INTERVAL_MS);
+                    replicaPool = current;
+                    Log.info("Read replica pool initialized", "url", replicaUrl);
+                }
+            }
+        }
+        return current;
+    }
+    
+    /**
+     * Get read replica pool and lag statistics for monitoring
+     * @return Map with replica statistics, empty if no replica is configured
+     */
+    public static Map<String, Object> getReplicaStatistics() {
+        ConnectionPool current = replicaPool;
+        if (current == null) {
+            return new HashMap<>();
+        }
+        Map<String, Object> stats = current.getStatistics();
+        stats.put("lag", replicaLagMonitor.getStatistics());
+        return stats;
+    }
+    
+    /**
+     * Get connection pool statistics for monitoring
+     * Includes active/idle/pending counts, borrow-wait and hold-time histograms,
+     * statement cache hit/miss counters and the number of suspected leaks
+     * @return Map with pool statistics, empty if the pool has not been created yet
+     */
+    public static Map<String, Object> getPoolStatistics() {
+        ConnectionPool current = pool;
+        return current != null ? current.getStatistics() : new HashMap<>();
+    }
+    
+    /**
+     * Get report pool statistics for monitoring
+     * @return Map with report pool statistics, empty if the pool has not been created yet
+     */
+    public static Map<String, Object> getReportPoolStatistics() {
+        ConnectionPool current = reportPool;
+        return current != null ? current.getStatistics() : new HashMap<>();
+    }
+    
+    /**
+     * Driver properties shared by pooled connections
+     */
+    private static Properties buildConnectionProperties(String user, String password) {
+        Properties props = new Properties();
+        props.setProperty("user", user);
+        props.setProperty("password", password);
+        props.setProperty("useSSL", "false");
+        props.setProperty("serverTimezone", "Asia/Kolkata");
+        props.setProperty("allowPublicKeyRetrieval", "true");
+        
+        // Parse each cached statement once on the server instead of on every execution
+        props.setProperty("useServerPrepStmts", String.valueOf(USE_SERVER_PREPARED_STATEMENTS));
+        return props;
     }
     
     /**
@@ -100,7 +336,7 @@ public class DBConnection {
             return DriverManager.getConnection(DB_URL, props);
             
         } catch (SQLException e) {
-            System.err.println("Failed to create new database connection!");
+            Log.warn("Failed to create new database connection", "url", DB_URL, "error", e.getMessage());
             throw e;
         }
     }
@@ -113,23 +349,29 @@ public class DBConnection {
         try (Connection conn = getConnection()) {
             return conn != null && !conn.isClosed();
         } catch (SQLException e) {
-            System.err.println("Connection test failed: " + e.getMessage());
+            Log.warn("Connection test failed", "error", e.getMessage());
             return false;
         }
     }
     
     /**
-     * Close the database connection
+     * Shut down the connection pools and close all pooled connections
      */
-    public static void closeConnection() {
-        try {
-            if (connection != null && !connection.isClosed()) {
-                connection.close();
-                System.out.println("Database connection closed successfully");
-            }
-        } catch (SQLException e) {
-            System.err.println("Error closing database connection: " + e.getMessage());
-            e.printStackTrace();
+    public static synchronized void closeConnection() {
+        if (reportPool != null) {
+            reportPool.shutdown();
+            reportPool = null;
+        }
+        if (replicaPool != null) {
+            replicaLagMonitor.shutdown();
+            replicaPool.shutdown();
+            replicaPool = null;
+            replicaLagMonitor = null;
+        }
+        if (pool != null) {
+            pool.shutdown();
+            pool = null;
+            Log.info("Database connection pool closed");
         }
     }
     
@@ -143,7 +385,7 @@ public class DBConnection {
                 try {
                     resource.close();
                 } catch (Exception e) {
-                    System.err.println("Error closing resource: " + e.getMessage());
+                    Log.warn("Error closing resource", "error", e.getMessage());
                 }
             }
         }
@@ -151,6 +393,8 @@ public class DBConnection {
     
     /**
      * Load database configuration from properties file
+     * Recognised keys: db.replica.url, db.replica.user, db.replica.password,
+     * db.replica.maxLagSeconds
      * @param propertiesFile Path to properties file
      */
     public static void loadConfig(String propertiesFile) {
@@ -158,22 +402,103 @@ public class DBConnection {
                 .getResourceAsStream(propertiesFile)) {
             
             if (input == null) {
-                System.err.println("Unable to find " + propertiesFile);
+                System.out.println("No " + propertiesFile + " found, using default configuration");
                 return;
             }
             
             Properties prop = new Properties();
             prop.load(input);
+            settings.putAll(prop);
+            
+            // Read replica
+            String url = prop.getProperty("db.replica.url");
+            if (url != null && !url.trim().isEmpty()) {
+                replicaUrl = url.trim();
+                replicaUser = prop.getProperty("db.replica.user", DB_USER);
+                replicaPassword = prop.getProperty("db.replica.password", DB_PASSWORD);
+                replicaMaxLagSeconds = Long.parseLong(
+                    prop.getProperty("db.replica.maxLagSeconds", String.valueOf(replicaMaxLagSeconds)));
+            }
             
-            // Load custom configuration if needed
             System.out.println("Configuration loaded successfully");
             
-        } catch (IOException e) {
+        } catch (IOException | NumberFormatException e) {
             System.err.println("Error loading configuration: " + e.getMessage());
             e.printStackTrace();
         }
     }
     
+    /**
+     * Get a setting from db.properties
+     * @param key Property key
+     * @param defaultValue Value to use when the key is not set
+     * @return Configured value or defaultValue
+     */
+    public static String getSetting(String key, String defaultValue) {
+        getInstance();
+        String value = settings.getProperty(key);
+        return value != null && !value.trim().isEmpty() ? value.trim() : defaultValue;
+    }
+    
+    /**
+     * Get a numeric setting from db.properties
+     * @param key Property key
+     * @param defaultValue Value to use when the key is not set or not a number
+     * @return Configured value or defaultValue
+     */
+    public static long getLongSetting(String key, long defaultValue) {
+        String value = getSetting(key, null);
+        if (value == null) {
+            return defaultValue;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            System.err.println("Invalid value for " + key + ": " + value + ", using " + defaultValue);
+            return defaultValue;
+        }
+    }
+    
+    /**
+     * Get a true/false setting from db.properties
+     * @param key Property key
+     * @param defaultValue Value to use when the key is not set
+     * @return Configured value or defaultValue
+     */
+    public static boolean getBooleanSetting(String key, boolean defaultValue) {
+        String value = getSetting(key, null);
+        return value != null ? Boolean.parseBoolean(value) : defaultValue;
+    }
+    
+    /**
+     * Get how many queries one report may run at once, each on its own connection
+     * @return reports.parallel.maxPerRequest, at least 1
+     */
+    public static int getParallelReadsPerRequest() {
+        return (int) Math.max(getLongSetting("reports.parallel.maxPerRequest", PARALLEL_READS_PER_REQUEST), 1);
+    }
+    
+    /**
+     * Get how far behind the primary a replica read can be
+     * The lag is checked periodically, so this is the lag limit plus one check interval.
+     * @return Milliseconds a replica read may lag, 0 if no replica is configured
+     */
+    public static long getReplicaStalenessBoundMs() {
+        getInstance();
+        if (replicaUrl == null) {
+            return 0;
+        }
+        return replicaMaxLagSeconds * 1000 + REPLICA_LAG_CHECK_INTERVAL_MS;
+    }
+    
+    /**
+     * Get the maximum size of the primary pool
+     * @return Connections the primary pool opens at most
+     */
+    public static int getMaxPoolSize() {
+        return MAX_POOL_SIZE;
+    }
+    
     /**
      * Get database URL
      * @return Database URL string
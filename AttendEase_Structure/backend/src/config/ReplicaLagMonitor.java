@@ -0,0 +1,144 @@
+package config;
+
+import utils.Log;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Replication lag monitor for the read replica
+ * Periodically checks how far the replica is behind the primary so that
+ * DBConnection can send reads back to the primary when the replica is stale.
+ */
+public class ReplicaLagMonitor {
+
+    private final ConnectionPool replicaPool;
+    private final long maxLagSeconds;
+    private final ScheduledExecutorService scheduler;
+
+    // -1 means unknown (replication stopped or replica unreachable)
+    private volatile long lagSeconds = 0;
+    private volatile boolean reachable = true;
+    private volatile long lastCheckedAt;
+
+    /**
+     * Start monitoring a replica
+     * @param replicaPool Pool of connections to the replica
+     * @param maxLagSeconds Reads fall back to the primary when lag exceeds this
+     * @param checkIntervalMs How often to poll replication status
+     */
+    public ReplicaLagMonitor(ConnectionPool replicaPool, long maxLagSeconds, long checkIntervalMs) {
+        this.replicaPool = replicaPool;
+        this.maxLagSeconds = maxLagSeconds;
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "attendease-replica-lag-monitor");
+            t.setDaemon(true);
+            return t;
+        });
+
+        check();
+        scheduler.scheduleWithFixedDelay(this::check, checkIntervalMs, checkIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Whether reads may currently be served by the replica
+     * @return true if the replica is reachable and within the allowed lag
+     */
+    public boolean isReplicaUsable() {
+        return reachable && lagSeconds >= 0 && lagSeconds <= maxLagSeconds;
+    }
+
+    /**
+     * Mark the replica unreachable until the next successful check
+     */
+    public void markUnreachable() {
+        reachable = false;
+    }
+
+    public long getLagSeconds() {
+        return lagSeconds;
+    }
+
+    /**
+     * Stop polling
+     */
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Get monitor state for diagnostics
+     * @return Map with lag statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("reachable", reachable);
+        stats.put("lagSeconds", lagSeconds);
+        stats.put("maxLagSeconds", maxLagSeconds);
+        stats.put("usable", isReplicaUsable());
+        stats.put("lastCheckedAt", lastCheckedAt);
+        return stats;
+    }
+
+    /**
+     * Poll replication status on the replica
+     */
+    private void check() {
+        try (Connection conn = replicaPool.borrow()) {
+            lagSeconds = readLag(conn);
+            reachable = true;
+        } catch (SQLException e) {
+            // Only a connection-level failure means the replica is down; a borrow
+            // timeout just means it is busy, so keep the last known state
+            boolean unreachable = e.getSQLState() != null && e.getSQLState().startsWith("08");
+            if (!unreachable) {
+                Log.warn("Replica lag check skipped", "error", e.getMessage());
+            } else {
+                if (reachable) {
+                    Log.warn("Read replica unavailable, routing reads to primary", "error", e.getMessage());
+                }
+                reachable = false;
+            }
+        }
+        lastCheckedAt = System.currentTimeMillis();
+    }
+
+    /**
+     * Read Seconds_Behind_Source (MySQL 8.0.22+) or Seconds_Behind_Master (older releases).
+     * A server that reports no replication status, such as a stand-in test database,
+     * is treated as up to date. If neither statement can be run, for example without
+     * the REPLICATION CLIENT privilege, the lag is unknown.
+     */
+    private long readLag(Connection conn) throws SQLException {
+        String[][] variants = {
+            { "SHOW REPLICA STATUS", "Seconds_Behind_Source" },
+            { "SHOW SLAVE STATUS", "Seconds_Behind_Master" }
+        };
+
+        for (String[] variant : variants) {
+            try (Statement stmt = conn.createStatement();
+                 ResultSet rs = stmt.executeQuery(variant[0])) {
+
+                if (!rs.next()) {
+                    return 0;
+                }
+                long lag = rs.getLong(variant[1]);
+                return rs.wasNull() ? -1 : lag;
+
+            } catch (SQLException e) {
+                if (e.getSQLState() != null && e.getSQLState().startsWith("08")) {
+                    throw e;
+                }
+                // Statement not supported or not permitted, try the next form
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,277 @@
+package config;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * LRU cache of PreparedStatements for one pooled connection
+ * Statements are keyed by SQL text; closing a cached statement clears its
+ * parameters, restores the fetch size, max rows, query timeout and fetch
+ * direction it was prepared with, and keeps it open for the next borrower of
+ * the same connection.
+ */
+class StatementCache {
+
+    /**
+     * Hit/miss counters shared by all caches of a pool
+     */
+    static class Counters {
+        final LongAdder hits = new LongAdder();
+        final LongAdder misses = new LongAdder();
+        final LongAdder evictions = new LongAdder();
+    }
+
+    private final Connection physical;
+    private final int maxSize;
+    private final Counters counters;
+
+    // Access-ordered so iteration starts at the least recently used statement
+    private final LinkedHashMap<String, CachedStatement> statements =
+        new LinkedHashMap<>(16, 0.75f, true);
+
+    StatementCache(Connection physical, int maxSize, Counters counters) {
+        this.physical = physical;
+        this.maxSize = maxSize;
+        this.counters = counters;
+    }
+
+    /**
+     * Get a statement for the SQL, reusing a cached one when it is free
+     * @param owner Connection handle the statement should report as its connection
+     * @param sql SQL text
+     * @param autoGeneratedKeys Statement.RETURN_GENERATED_KEYS or Statement.NO_GENERATED_KEYS
+     * @return PreparedStatement whose close() returns it to the cache
+     * @throws SQLException if the statement cannot be prepared
+     */
+    synchronized PreparedStatement prepare(Connection owner, String sql, int autoGeneratedKeys)
+            throws SQLException {
+        String key = (autoGeneratedKeys == Statement.RETURN_GENERATED_KEYS ? "K|" : "N|") + sql;
+        CachedStatement cached = statements.get(key);
+
+        if (cached != null && cached.handle == null) {
+            counters.hits.increment();
+            return cached.lease(owner);
+        }
+
+        counters.misses.increment();
+        PreparedStatement statement = physical.prepareStatement(sql, autoGeneratedKeys);
+
+        if (cached != null) {
+            // Same SQL is already open by this borrower, hand out an uncached copy
+            return new CachedStatement(null, statement).lease(owner);
+        }
+
+        try {
+            cached = new CachedStatement(key, statement);
+        } catch (SQLException e) {
+            statement.close();
+            throw e;
+        }
+        statements.put(key, cached);
+        evictOverflow();
+        return cached.lease(owner);
+    }
+
+    /**
+     * Reset statements left open by a borrower when the connection goes back to the pool
+     */
+    synchronized void releaseAll() {
+        for (CachedStatement cached : new ArrayList<>(statements.values())) {
+            if (cached.handle != null) {
+                cached.handle.logicalClose();
+            }
+        }
+    }
+
+    /**
+     * Close all cached statements
+     */
+    synchronized void clear() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    synchronized int size() {
+        return statements.size();
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > maxSize && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            it.remove();
+            counters.evictions.increment();
+            eldest.evicted = true;
+            if (eldest.handle == null) {
+                eldest.closePhysical();
+            }
+        }
+    }
+
+    /**
+     * A physical statement owned by the cache
+     */
+    private class CachedStatement {
+        private final String key;
+        private final PreparedStatement statement;
+        private StatementHandle handle;
+        private boolean evicted;
+
+        // Driver defaults, restored when a borrower changed them
+        private int fetchSize;
+        private int maxRows;
+        private int queryTimeout;
+        private int fetchDirection;
+
+        CachedStatement(String key, PreparedStatement statement) throws SQLException {
+            this.key = key;
+            this.statement = statement;
+            this.evicted = key == null;
+            if (key != null) {
+                fetchSize = statement.getFetchSize();
+                maxRows = statement.getMaxRows();
+                queryTimeout = statement.getQueryTimeout();
+                fetchDirection = statement.getFetchDirection();
+            }
+        }
+
+        /**
+         * Undo settings a borrower changed, such as a streaming fetch size
+         */
+        void restoreSettings() throws SQLException {
+            if (statement.getFetchSize() != fetchSize) {
+                statement.setFetchSize(fetchSize);
+            }
+            if (statement.getMaxRows() != maxRows) {
+                statement.setMaxRows(maxRows);
+            }
+            if (statement.getQueryTimeout() != queryTimeout) {
+                statement.setQueryTimeout(queryTimeout);
+            }
+            if (statement.getFetchDirection() != fetchDirection) {
+                statement.setFetchDirection(fetchDirection);
+            }
+        }
+
+        PreparedStatement lease(Connection owner) {
+            handle = new StatementHandle(this, owner);
+            return (PreparedStatement) Proxy.newProxyInstance(
+                PreparedStatement.class.getClassLoader(),
+                new Class<?>[] { PreparedStatement.class },
+                handle
+            );
+        }
+
+        void closePhysical() {
+            try {
+                statement.close();
+            } catch (SQLException e) {
+                System.err.println("Error closing cached statement: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Borrower-side view of a cached statement
+     */
+    private class StatementHandle implements InvocationHandler {
+        private final CachedStatement cached;
+        private final Connection owner;
+        private final List<ResultSet> openResults = new ArrayList<>();
+        private boolean closed;
+
+        StatementHandle(CachedStatement cached, Connection owner) {
+            this.cached = cached;
+            this.owner = owner;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    synchronized (StatementCache.this) {
+                        logicalClose();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed;
+                case "getConnection":
+                    return owner;
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "CachedStatement[" + cached.statement + "]";
+                default:
+                    break;
+            }
+
+            if (closed) {
+                throw new SQLException("Statement has already been closed");
+            }
+
+            Object result;
+            try {
+                result = method.invoke(cached.statement, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+
+            if (result instanceof ResultSet) {
+                openResults.add((ResultSet) result);
+            }
+            return result;
+        }
+
+        /**
+         * Close result sets and make the statement available again
+         */
+        void logicalClose() {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cached.handle = null;
+
+            for (ResultSet rs : openResults) {
+                try {
+                    rs.close();
+                } catch (SQLException e) {
+                    // Result set already gone with its statement
+                }
+            }
+            openResults.clear();
+
+            if (cached.evicted) {
+                cached.closePhysical();
+                return;
+            }
+
+            try {
+                cached.statement.clearParameters();
+                cached.statement.clearBatch();
+                cached.statement.clearWarnings();
+                cached.restoreSettings();
+            } catch (SQLException e) {
+                statements.remove(cached.key);
+                cached.closePhysical();
+            }
+        }
+    }
+}
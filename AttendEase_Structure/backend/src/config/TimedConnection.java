@@ -0,0 +1,373 @@
+package config;
+
+import utils.Log;
+import utils.MetricsRegistry;
+import utils.QueryTrace;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Connection wrapper that times statement execution per DAO method
+ * Statements created through the wrapper time execute, executeQuery,
+ * executeUpdate and executeBatch, and count the rows returned or affected.
+ * Each finished query is recorded in MetricsRegistry under the DAO method
+ * that created the statement and in the QueryTrace of the current request.
+ * Queries slower than metrics.slowQuery.thresholdMs are logged with their
+ * SQL, bind count, rows and EXPLAIN plan. Reading the result set is not
+ * included in the time.
+ */
+public class TimedConnection {
+
+    private static final StackWalker STACK_WALKER = StackWalker.getInstance();
+
+    // Statements remembered for the explain interval before the map is reset
+    private static final int MAX_EXPLAINED = 500;
+
+    private static volatile Boolean explain;
+    private static long slowQueryNanos;
+    private static long explainIntervalMs;
+    private static final Map<String, Long> lastExplained = new ConcurrentHashMap<>();
+
+    private TimedConnection() {
+    }
+
+    /**
+     * Wrap a connection so its statements are timed
+     * @param conn Pooled connection
+     * @return Connection whose statements report to MetricsRegistry
+     */
+    public static Connection wrap(Connection conn) {
+        if (explain == null) {
+            slowQueryNanos = TimeUnit.MILLISECONDS.toNanos(
+                DBConnection.getLongSetting("metrics.slowQuery.thresholdMs", 500));
+            explainIntervalMs = DBConnection.getLongSetting("metrics.slowQuery.explainIntervalMs", 60000);
+            explain = DBConnection.getBooleanSetting("metrics.slowQuery.explain", true);
+        }
+        return (Connection) Proxy.newProxyInstance(
+            Connection.class.getClassLoader(),
+            new Class<?>[] { Connection.class },
+            new ConnectionHandler(conn)
+        );
+    }
+
+    /**
+     * Find the DAO method on the current call stack, e.g. MarksDAO.addMarks
+     */
+    static String findCaller() {
+        return STACK_WALKER.walk(frames -> frames
+            .filter(frame -> frame.getClassName().startsWith("dao.") &&
+                             !frame.getMethodName().startsWith("lambda$"))
+            .findFirst()
+            .map(frame -> frame.getClassName().substring("dao.".length()) + "." + frame.getMethodName())
+            .orElse("other"));
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    /**
+     * Whether a slow statement should be explained now
+     * Each statement is explained at most once per metrics.slowQuery.explainIntervalMs.
+     */
+    private static boolean shouldExplain(String sql) {
+        if (!explain || sql == null) {
+            return false;
+        }
+        String verb = sql.trim().split("\\s+", 2)[0].toUpperCase(Locale.ROOT);
+        if (!verb.equals("SELECT") && !verb.equals("UPDATE") && !verb.equals("DELETE") &&
+            !verb.equals("INSERT") && !verb.equals("REPLACE")) {
+            return false;
+        }
+
+        long now = System.currentTimeMillis();
+        Long last = lastExplained.get(sql);
+        if (last != null && now - last < explainIntervalMs) {
+            return false;
+        }
+        if (lastExplained.size() >= MAX_EXPLAINED) {
+            lastExplained.clear();
+        }
+        lastExplained.put(sql, now);
+        return true;
+    }
+
+    /**
+     * Run EXPLAIN for a statement with the values it was executed with
+     * @return Header and plan rows, separated by semicolons
+     */
+    private static String explain(Connection conn, String sql, Map<Integer, Object> parameters) {
+        StringBuilder plan = new StringBuilder();
+        try (PreparedStatement pstmt = conn.prepareStatement("EXPLAIN " + sql)) {
+            for (Map.Entry<Integer, Object> parameter : parameters.entrySet()) {
+                pstmt.setObject(parameter.getKey(), parameter.getValue());
+            }
+            try (ResultSet rs = pstmt.executeQuery()) {
+                ResultSetMetaData meta = rs.getMetaData();
+                List<String> columns = new ArrayList<>();
+                for (int i = 1; i <= meta.getColumnCount(); i++) {
+                    columns.add(meta.getColumnLabel(i));
+                }
+                plan.append(String.join(" | ", columns));
+                while (rs.next()) {
+                    List<String> values = new ArrayList<>();
+                    for (int i = 1; i <= columns.size(); i++) {
+                        values.add(String.valueOf(rs.getObject(i)));
+                    }
+                    plan.append("; ").append(String.join(" | ", values));
+                }
+            }
+        } catch (SQLException e) {
+            plan.setLength(0);
+            plan.append("unavailable: ").append(e.getMessage());
+        }
+        return plan.toString();
+    }
+
+    /**
+     * Wraps statements created by the connection
+     */
+    private static class ConnectionHandler implements InvocationHandler {
+        private final Connection conn;
+        private final List<StatementHandler> statements = new ArrayList<>();
+
+        ConnectionHandler(Connection conn) {
+            this.conn = conn;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "close":
+                    // Record queries whose statements were left open
+                    for (StatementHandler statement : new ArrayList<>(statements)) {
+                        statement.finishPending();
+                    }
+                    statements.clear();
+                    break;
+                default:
+                    break;
+            }
+
+            Object result = TimedConnection.invoke(conn, method, args);
+
+            if (result instanceof Statement) {
+                // createStatement, prepareStatement and prepareCall
+                String sql = args != null && args.length > 0 && args[0] instanceof String ? (String) args[0] : null;
+                StatementHandler handler = new StatementHandler(this, (Statement) result, sql, findCaller());
+                statements.add(handler);
+                Class<?> type = method.getReturnType();
+                return Proxy.newProxyInstance(
+                    type.getClassLoader(),
+                    new Class<?>[] { type },
+                    handler
+                );
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Times statement execution and tracks its SQL, binds and rows
+     */
+    private static class StatementHandler implements InvocationHandler {
+        private final ConnectionHandler connection;
+        private final Statement statement;
+        private final String caller;
+        private final QueryTrace trace;
+        private final Map<Integer, Object> parameters = new TreeMap<>();
+        private String sql;
+        private int batchSize;
+        // Query whose result set is still being read
+        private Execution pending;
+
+        StatementHandler(ConnectionHandler connection, Statement statement, String sql, String caller) {
+            this.connection = connection;
+            this.statement = statement;
+            this.sql = sql;
+            this.caller = caller;
+            this.trace = QueryTrace.current();
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+
+            if (name.startsWith("execute")) {
+                return execute(method, args);
+            }
+
+            switch (name) {
+                case "clearParameters":
+                    parameters.clear();
+                    break;
+                case "addBatch":
+                    batchSize++;
+                    if (args != null && args.length == 1) {
+                        sql = (String) args[0];
+                    }
+                    break;
+                case "clearBatch":
+                    batchSize = 0;
+                    break;
+                case "close":
+                    finishPending();
+                    connection.statements.remove(this);
+                    break;
+                case "getResultSet":
+                    Object resultSet = TimedConnection.invoke(statement, method, args);
+                    return pending != null && resultSet != null ? countRows((ResultSet) resultSet, pending) : resultSet;
+                default:
+                    if (name.startsWith("set") && args != null && args.length >= 2 && args[0] instanceof Integer) {
+                        // PreparedStatement parameter; every setter takes the index first
+                        parameters.put((Integer) args[0], name.equals("setNull") ? null : args[1]);
+                    }
+                    break;
+            }
+            return TimedConnection.invoke(statement, method, args);
+        }
+
+        private Object execute(Method method, Object[] args) throws Throwable {
+            if (args != null && args.length > 0 && args[0] instanceof String) {
+                sql = (String) args[0];
+            }
+            // Executing again closes the previous result set
+            finishPending();
+
+            long start = System.nanoTime();
+            Object result;
+            try {
+                result = TimedConnection.invoke(statement, method, args);
+            } catch (Throwable e) {
+                finish(new Execution(System.nanoTime() - start));
+                throw e;
+            }
+            Execution execution = new Execution(System.nanoTime() - start);
+
+            if (method.getName().equals("executeBatch") || method.getName().equals("executeLargeBatch")) {
+                batchSize = 0;
+            }
+
+            if (result instanceof ResultSet) {
+                pending = execution;
+                return countRows((ResultSet) result, execution);
+            } else if (Boolean.TRUE.equals(result)) {
+                // execute() with a result set, read through getResultSet()
+                pending = execution;
+                return result;
+            }
+
+            if (result instanceof Number) {
+                execution.rows = ((Number) result).longValue();
+            } else if (result instanceof int[]) {
+                execution.rows = 0;
+                for (int count : (int[]) result) {
+                    execution.rows += Math.max(count, 0);
+                }
+            } else if (result instanceof long[]) {
+                execution.rows = 0;
+                for (long count : (long[]) result) {
+                    execution.rows += Math.max(count, 0);
+                }
+            } else if (Boolean.FALSE.equals(result)) {
+                execution.rows = statement.getUpdateCount();
+            }
+            finish(execution);
+            return result;
+        }
+
+        /**
+         * Wrap a result set so rows read are counted and the query is
+         * recorded when it is closed
+         */
+        private ResultSet countRows(ResultSet resultSet, Execution execution) {
+            execution.rows = 0;
+            return (ResultSet) Proxy.newProxyInstance(
+                ResultSet.class.getClassLoader(),
+                new Class<?>[] { ResultSet.class },
+                (proxy, method, args) -> {
+                    Object result = TimedConnection.invoke(resultSet, method, args);
+                    if (method.getName().equals("next")) {
+                        if (Boolean.TRUE.equals(result)) {
+                            execution.rows++;
+                        }
+                    } else if (method.getName().equals("close") && pending == execution) {
+                        finishPending();
+                    }
+                    return result;
+                }
+            );
+        }
+
+        void finishPending() {
+            if (pending != null) {
+                Execution execution = pending;
+                pending = null;
+                finish(execution);
+            }
+        }
+
+        private void finish(Execution execution) {
+            boolean slow = slowQueryNanos > 0 && execution.nanos >= slowQueryNanos;
+            MetricsRegistry.getInstance().recordQuery(caller, execution.nanos, execution.rows, slow);
+            if (trace != null) {
+                trace.record(caller, execution.sql, execution.nanos);
+            }
+            if (slow) {
+                logSlowQuery(execution);
+            }
+        }
+
+        private void logSlowQuery(Execution execution) {
+            String sql = execution.sql != null ? execution.sql.replaceAll("\\s+", " ").trim() : null;
+            String plan = execution.batchSize == 0 && shouldExplain(execution.sql)
+                ? explain(connection.conn, execution.sql, execution.boundValues) : null;
+
+            Log.warn("Slow query", "method", caller, "ms", TimeUnit.NANOSECONDS.toMillis(execution.nanos),
+                     "binds", execution.binds, "batched", execution.batchSize, "rows", execution.rows,
+                     "sql", sql, "plan", plan);
+        }
+
+        /**
+         * One execution of the statement
+         */
+        private class Execution {
+            private final String sql = StatementHandler.this.sql;
+            private final int binds = parameters.size();
+            private final int batchSize = StatementHandler.this.batchSize;
+            private final long nanos;
+            // Bound values, kept only for slow queries to explain them
+            private final Map<Integer, Object> boundValues;
+            private long rows = -1;
+
+            Execution(long nanos) {
+                this.nanos = nanos;
+                this.boundValues = slowQueryNanos > 0 && nanos >= slowQueryNanos ? new TreeMap<>(parameters) : null;
+            }
+        }
+    }
+}
@@ -0,0 +1,337 @@
+package dao;
+
+import config.DBConnection;
+import model.Attendance;
+import model.Attendance.AttendanceStatus;
+import utils.Log;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Data Access Object for the attendance_counters table
+ * Keeps per-enrollment PRESENT/ABSENT/LATE/EXCUSED totals in step with the
+ * attendance table so statistics can be read without re-counting rows.
+ * Counter updates run on the caller's connection, inside its transaction.
+ */
+public class AttendanceCounterDAO {
+
+    private static final String APPLY_DELTA_SQL =
+        "INSERT INTO attendance_counters (enrollment_id, present_count, absent_count, " +
+        "late_count, excused_count, total_count) VALUES (?, ?, ?, ?, ?, ?) " +
+        "ON DUPLICATE KEY UPDATE present_count = present_count + VALUES(present_count), " +
+        "absent_count = absent_count + VALUES(absent_count), " +
+        "late_count = late_count + VALUES(late_count), " +
+        "excused_count = excused_count + VALUES(excused_count), " +
+        "total_count = total_count + VALUES(total_count)";
+
+    private static final String RECOUNT_SQL =
+        "SELECT enrollment_id, " +
+        "SUM(CASE WHEN status = 'PRESENT' THEN 1 ELSE 0 END) as present_count, " +
+        "SUM(CASE WHEN status = 'ABSENT' THEN 1 ELSE 0 END) as absent_count, " +
+        "SUM(CASE WHEN status = 'LATE' THEN 1 ELSE 0 END) as late_count, " +
+        "SUM(CASE WHEN status = 'EXCUSED' THEN 1 ELSE 0 END) as excused_count, " +
+        "COUNT(*) as total_count " +
+        "FROM attendance ";
+
+    // SQLState Connector/J reports for deadlocks and lock wait timeouts
+    private static final String LOCK_CONFLICT_SQL_STATE = "40001";
+
+    /**
+     * Lock the attendance row for an enrollment and date and return its current status
+     * If the row does not exist yet this takes a gap lock, and a concurrent first
+     * mark for the same row can fail with a deadlock, see isLockConflict().
+     * @param conn Connection with an open transaction
+     * @param enrollmentId Enrollment ID
+     * @param date Attendance date
+     * @return Current status, or null if attendance has not been marked yet
+     * @throws SQLException if the query fails
+     */
+    public AttendanceStatus lockStatus(Connection conn, int enrollmentId, Date date) throws SQLException {
+        String sql = "SELECT status FROM attendance " +
+                    "WHERE enrollment_id = ? AND attendance_date = ? FOR UPDATE";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, enrollmentId);
+            pstmt.setDate(2, date);
+            ResultSet rs = pstmt.executeQuery();
+
+            return rs.next() ? AttendanceStatus.valueOf(rs.getString("status")) : null;
+        }
+    }
+
+    /**
+     * Lock the attendance rows for a set of enrollments and dates
+     * @param conn Connection with an open transaction
+     * @param records Attendance records identifying the rows
+     * @return Current status keyed by key(enrollmentId, date), rows not yet marked are absent
+     * @throws SQLException if the query fails
+     */
+    public Map<String, AttendanceStatus> lockStatuses(Connection conn, List<Attendance> records)
+            throws SQLException {
+        Map<String, AttendanceStatus> statuses = new HashMap<>();
+        if (records.isEmpty()) {
+            return statuses;
+        }
+
+        StringBuilder sql = new StringBuilder(
+            "SELECT enrollment_id, attendance_date, status FROM attendance " +
+            "WHERE (enrollment_id, attendance_date) IN (");
+        for (int i = 0; i < records.size(); i++) {
+            sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+        }
+        sql.append(") FOR UPDATE");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            for (Attendance record : records) {
+                pstmt.setInt(index++, record.getEnrollmentId());
+                pstmt.setDate(index++, record.getAttendanceDate());
+            }
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                statuses.put(key(rs.getInt("enrollment_id"), rs.getDate("attendance_date")),
+                             AttendanceStatus.valueOf(rs.getString("status")));
+            }
+        }
+
+        return statuses;
+    }
+
+    /**
+     * Whether a failure came from a deadlock or lock wait timeout
+     * The transaction was rolled back by the server and can be retried.
+     * @param e Exception thrown by a locking write
+     * @return true if retrying the whole transaction may succeed
+     */
+    public static boolean isLockConflict(SQLException e) {
+        return LOCK_CONFLICT_SQL_STATE.equals(e.getSQLState());
+    }
+
+    /**
+     * Key identifying one attendance row
+     * @param enrollmentId Enrollment ID
+     * @param date Attendance date
+     * @return Key in the form enrollmentId|yyyy-mm-dd
+     */
+    public static String key(int enrollmentId, Date date) {
+        return enrollmentId + "|" + date;
+    }
+
+    /**
+     * Lock an attendance row by ID
+     * @param conn Connection with an open transaction
+     * @param attendanceId Attendance ID
+     * @return Map with enrollmentId and status, or null if the row does not exist
+     * @throws SQLException if the query fails
+     */
+    public Map<String, Object> lockRow(Connection conn, int attendanceId) throws SQLException {
+        String sql = "SELECT enrollment_id, status FROM attendance WHERE attendance_id = ? FOR UPDATE";
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, attendanceId);
+            ResultSet rs = pstmt.executeQuery();
+
+            if (rs.next()) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("enrollmentId", rs.getInt("enrollment_id"));
+                row.put("status", AttendanceStatus.valueOf(rs.getString("status")));
+                return row;
+            }
+        }
+
+        return null;
+    }
+
+    /**
+     * Record a status change for one attendance row
+     * @param conn Connection with an open transaction
+     * @param enrollmentId Enrollment ID
+     * @param previous Status before the write, null for a new row
+     * @param current Status after the write, null for a deleted row
+     * @throws SQLException if the counter update fails
+     */
+    public void applyChange(Connection conn, int enrollmentId,
+                            AttendanceStatus previous, AttendanceStatus current) throws SQLException {
+        if (previous == current) {
+            return;
+        }
+
+        int[] delta = new int[5];
+        addToDelta(delta, previous, -1);
+        addToDelta(delta, current, 1);
+
+        try (PreparedStatement pstmt = conn.prepareStatement(APPLY_DELTA_SQL)) {
+            bindDelta(pstmt, enrollmentId, delta);
+            pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Record many status changes at once, one counter update per enrollment
+     * @param conn Connection with an open transaction
+     * @param deltas Counter deltas keyed by enrollment ID (see addToDelta)
+     * @throws SQLException if the counter update fails
+     */
+    public void applyDeltas(Connection conn, Map<Integer, int[]> deltas) throws SQLException {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        try (PreparedStatement pstmt = conn.prepareStatement(APPLY_DELTA_SQL)) {
+            for (Map.Entry<Integer, int[]> entry : deltas.entrySet()) {
+                bindDelta(pstmt, entry.getKey(), entry.getValue());
+                pstmt.addBatch();
+            }
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Add a status to a delta array
+     * Delta layout is {present, absent, late, excused, total}
+     * @param delta Delta array to update
+     * @param status Status to add or remove, ignored if null
+     * @param sign 1 to add, -1 to remove
+     */
+    public static void addToDelta(int[] delta, AttendanceStatus status, int sign) {
+        if (status == null) {
+            return;
+        }
+        delta[status.ordinal()] += sign;
+        delta[4] += sign;
+    }
+
+    /**
+     * Rebuild all counters from the attendance table
+     * @return Number of enrollments with counters after the rebuild, -1 on failure
+     */
+    public int rebuildCounters() {
+        Connection conn = null;
+
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM attendance_counters");
+                int rows = stmt.executeUpdate(
+                    "INSERT INTO attendance_counters (enrollment_id, present_count, absent_count, " +
+                    "late_count, excused_count, total_count) " +
+                    RECOUNT_SQL + "GROUP BY enrollment_id");
+                conn.commit();
+
+                Log.info("Rebuilt attendance counters", "enrollments", rows);
+                return rows;
+            }
+
+        } catch (SQLException e) {
+            Log.error("Error rebuilding attendance counters", e);
+
+            if (conn != null) {
+                try {
+                    conn.rollback();
+                } catch (SQLException ex) {
+                    Log.error("Error rolling back attendance counter rebuild", ex);
+                }
+            }
+
+        } finally {
+            DBConnection.closeResources(conn);
+        }
+
+        return -1;
+    }
+
+    /**
+     * Find enrollments whose counters disagree with the attendance table
+     * @return List of drifted enrollments with stored and actual totals
+     */
+    public List<Map<String, Object>> verifyCounters() {
+        List<Map<String, Object>> drift = new ArrayList<>();
+
+        String sql = "SELECT e.enrollment_id, " +
+                    "c.present_count, c.absent_count, c.late_count, c.excused_count, c.total_count, " +
+                    "r.present_count as actual_present, r.absent_count as actual_absent, " +
+                    "r.late_count as actual_late, r.excused_count as actual_excused, " +
+                    "r.total_count as actual_total " +
+                    "FROM enrollments e " +
+                    "LEFT JOIN attendance_counters c ON c.enrollment_id = e.enrollment_id " +
+                    "LEFT JOIN (" + RECOUNT_SQL + "GROUP BY enrollment_id) r " +
+                    "ON r.enrollment_id = e.enrollment_id " +
+                    "WHERE COALESCE(c.present_count, 0) <> COALESCE(r.present_count, 0) " +
+                    "OR COALESCE(c.absent_count, 0) <> COALESCE(r.absent_count, 0) " +
+                    "OR COALESCE(c.late_count, 0) <> COALESCE(r.late_count, 0) " +
+                    "OR COALESCE(c.excused_count, 0) <> COALESCE(r.excused_count, 0) " +
+                    "OR COALESCE(c.total_count, 0) <> COALESCE(r.total_count, 0)";
+
+        try (Connection conn = DBConnection.getConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+
+            ResultSet rs = pstmt.executeQuery();
+
+            while (rs.next()) {
+                Map<String, Object> row = new HashMap<>();
+                row.put("enrollmentId", rs.getInt("enrollment_id"));
+                row.put("storedTotal", rs.getInt("total_count"));
+                row.put("actualTotal", rs.getInt("actual_total"));
+                row.put("storedPresent", rs.getInt("present_count"));
+                row.put("actualPresent", rs.getInt("actual_present"));
+                row.put("storedAbsent", rs.getInt("absent_count"));
+                row.put("actualAbsent", rs.getInt("actual_absent"));
+                row.put("storedLate", rs.getInt("late_count"));
+                row.put("actualLate", rs.getInt("actual_late"));
+                row.put("storedExcused", rs.getInt("excused_count"));
+                row.put("actualExcused", rs.getInt("actual_excused"));
+                drift.add(row);
+            }
+
+        } catch (SQLException e) {
+            Log.error("Error verifying attendance counters", e);
+        }
+
+        return drift;
+    }
+
+    private void bindDelta(PreparedStatement pstmt, int enrollmentId, int[] delta) throws SQLException {
+        pstmt.setInt(1, enrollmentId);
+        for (int i = 0; i < delta.length; i++) {
+            pstmt.setInt(i + 2, delta[i]);
+        }
+    }
+
+    /**
+     * Command-line maintenance tool
+     * Usage: java dao.AttendanceCounterDAO [verify|rebuild]
+     */
+    public static void main(String[] args) {
+        AttendanceCounterDAO counterDAO = new AttendanceCounterDAO();
+        String command = args.length > 0 ? args[0] : "verify";
+
+        if ("rebuild".equals(command)) {
+            int rows = counterDAO.rebuildCounters();
+            if (rows >= 0) {
+                System.out.println("Rebuilt attendance counters for " + rows + " enrollments");
+            } else {
+                System.out.println("Rebuild failed, see the log for details");
+            }
+        } else {
+            List<Map<String, Object>> drift = counterDAO.verifyCounters();
+            if (drift.isEmpty()) {
+                System.out.println("Attendance counters are consistent");
+            } else {
+                System.out.println(drift.size() + " enrollments have drifted counters:");
+                for (Map<String, Object> row : drift) {
+                    System.out.println("  " + row);
+                }
+                System.out.println("Run with 'rebuild' to recompute them");
+            }
+        }
+
+        DBConnection.closeConnection();
+    }
+}
@@ -3,12 +3,15 @@ package dao;
 import config.DBConnection;
 import model.Attendance;
 import model.Attendance.AttendanceStatus;
+import utils.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 
 /**
  * Data Access Object for Attendance operations
@@ -16,20 +19,89 @@ import java.util.Map;
  */
 public class AttendanceDAO {
     
+    // Rows per multi-row INSERT in markBulkAttendance, each chunk is its own transaction
+    public static final int DEFAULT_BULK_CHUNK_SIZE = 500;
+    
+    // Keeps the lock query and INSERT well under MySQL's 65535 placeholder limit
+    private static final int MAX_BULK_CHUNK_SIZE = 5000;
+    
+    public static final String BULK_ROW_INSERTED = "INSERTED";
+    public static final String BULK_ROW_UPDATED = "UPDATED";
+    public static final String BULK_ROW_FAILED = "FAILED";
+    
+    // Fetch size that makes MySQL Connector/J stream result rows one at a time
+    private static final int STREAMING_FETCH_SIZE = Integer.MIN_VALUE;
+    
+    // Attempts at a single mark when InnoDB picks it as a deadlock victim
+    private static final int MAX_MARK_ATTEMPTS = 3;
+    
+    private final AttendanceCounterDAO counterDAO = new AttendanceCounterDAO();
+    private final ReportCache reportCache = ReportCache.getInstance();
+    
     /**
      * Mark attendance for a student
+     * Updates attendance_counters in the same transaction, including status changes
+     * when the student was already marked for that date.
+     * Two first marks for the same enrollment and date both take gap locks on the
+     * missing row and InnoDB aborts one as a deadlock, so the loser is retried.
      * @param attendance Attendance object
      * @return true if attendance marked successfully, false otherwise
      */
     public boolean markAttendance(Attendance attendance) {
+        Connection conn = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
+            
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    AttendanceStatus previous = writeAttendance(conn, attendance);
+                    
+                    // Reports only show statuses, a remarks-only change leaves them valid
+                    if (previous != attendance.getStatus()) {
+                        reportCache.invalidateEnrollment(conn, attendance.getEnrollmentId());
+                    }
+                    return true;
+                    
+                } catch (SQLException e) {
+                    if (attempt >= MAX_MARK_ATTEMPTS || !AttendanceCounterDAO.isLockConflict(e)) {
+                        throw e;
+                    }
+                    rollback(conn);
+                    Log.warn("Retrying attendance mark after lock conflict",
+                             "enrollmentId", attendance.getEnrollmentId(), "attempt", attempt);
+                }
+            }
+            
+        } catch (SQLException e) {
+            Log.error("Error marking attendance", e);
+            rollback(conn);
+            
+        } finally {
+            closeTransaction(conn, null);
+        }
+        
+        return false;
+    }
+    
+    /**
+     * Write and commit one attendance mark together with its counter change
+     * @param conn Connection with auto-commit disabled
+     * @param attendance Attendance object, its ID is set when a row is inserted
+     * @return Status before the write, null if the student was not marked yet
+     * @throws SQLException if the transaction fails, it is left for the caller to roll back
+     */
+    private AttendanceStatus writeAttendance(Connection conn, Attendance attendance) throws SQLException {
         String sql = "INSERT INTO attendance (enrollment_id, attendance_date, status, " +
                     "marked_by, remarks) VALUES (?, ?, ?, ?, ?) " +
                     "ON DUPLICATE KEY UPDATE status = ?, marked_by = ?, " +
                     "marked_at = CURRENT_TIMESTAMP, remarks = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
-            
+        AttendanceStatus previous = counterDAO.lockStatus(conn, attendance.getEnrollmentId(),
+                                                          attendance.getAttendanceDate());
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)) {
             pstmt.setInt(1, attendance.getEnrollmentId());
             pstmt.setDate(2, attendance.getAttendanceDate());
             pstmt.setString(3, attendance.getStatusString());
@@ -48,15 +120,24 @@ public class AttendanceDAO {
                 if (rs.next()) {
                     attendance.setAttendanceId(rs.getInt(1));
                 }
-                return true;
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error marking attendance: " + e.getMessage());
-            e.printStackTrace();
         }
         
-        return false;
+        counterDAO.applyChange(conn, attendance.getEnrollmentId(), previous, attendance.getStatus());
+        conn.commit();
+        return previous;
+    }
+    
+    /**
+     * Mark attendance, going through the write-behind buffer when it is enabled
+     * @param attendance Attendance object
+     * @return Future completing with true once the mark is committed, false if it failed
+     */
+    public CompletableFuture<Boolean> markAttendanceAsync(Attendance attendance) {
+        if (AttendanceWriteBuffer.isEnabled()) {
+            return AttendanceWriteBuffer.getInstance().submit(attendance);
+        }
+        return CompletableFuture.completedFuture(markAttendance(attendance));
     }
     
     /**
@@ -65,57 +146,161 @@ public class AttendanceDAO {
      * @return true if all marked successfully, false otherwise
      */
     public boolean markBulkAttendance(List<Attendance> attendanceList) {
-        String sql = "INSERT INTO attendance (enrollment_id, attendance_date, status, " +
-                    "marked_by, remarks) VALUES (?, ?, ?, ?, ?) " +
-                    "ON DUPLICATE KEY UPDATE status = ?, marked_by = ?, " +
-                    "marked_at = CURRENT_TIMESTAMP, remarks = ?";
+        Map<String, Object> result = markBulkAttendance(attendanceList, DEFAULT_BULK_CHUNK_SIZE);
+        return (Integer) result.get("failed") == 0;
+    }
+    
+    /**
+     * Mark attendance for multiple students in chunks
+     * Each chunk is written with one multi-row INSERT and committed on its own, so
+     * row locks are held for one chunk at a time. If a chunk fails its rows are
+     * retried one by one so a single bad row does not reject its neighbours,
+     * unless the connection itself failed: then the chunk's rows fail together
+     * and later chunks are written on a new connection.
+     * @param attendanceList List of attendance records
+     * @param chunkSize Rows per INSERT statement and transaction
+     * @return Map with totals and rowResults (INSERTED, UPDATED or FAILED per input row)
+     */
+    public Map<String, Object> markBulkAttendance(List<Attendance> attendanceList, int chunkSize) {
+        int size = Math.max(1, Math.min(chunkSize, MAX_BULK_CHUNK_SIZE));
+        String[] rowResults = new String[attendanceList.size()];
+        int chunks = 0;
+        int failedChunks = 0;
         
         Connection conn = null;
-        PreparedStatement pstmt = null;
         
         try {
-            conn = DBConnection.getConnection();
-            conn.setAutoCommit(false);
-            pstmt = conn.prepareStatement(sql);
+            for (int start = 0; start < attendanceList.size(); start += size) {
+                List<Attendance> chunk = attendanceList.subList(start, Math.min(start + size, attendanceList.size()));
+                chunks++;
+                
+                if (conn == null) {
+                    conn = DBConnection.getConnection();
+                    conn.setAutoCommit(false);
+                }
+                
+                try {
+                    if (!writeAttendanceChunk(conn, chunk, rowResults, start)) {
+                        failedChunks++;
+                        for (int i = 0; chunk.size() > 1 && i < chunk.size(); i++) {
+                            writeAttendanceChunk(conn, chunk.subList(i, i + 1), rowResults, start + i);
+                        }
+                    }
+                } catch (SQLException e) {
+                    // Connection lost and already logged; rows not written yet stay failed
+                    failedChunks++;
+                    DBConnection.closeResources(conn);
+                    conn = null;
+                }
+            }
+            
+        } catch (SQLException e) {
+            // No connection for the remaining chunks, their rows stay failed
+            Log.error("Error marking bulk attendance", e);
             
-            for (Attendance attendance : attendanceList) {
-                pstmt.setInt(1, attendance.getEnrollmentId());
-                pstmt.setDate(2, attendance.getAttendanceDate());
-                pstmt.setString(3, attendance.getStatusString());
-                pstmt.setInt(4, attendance.getMarkedBy());
-                pstmt.setString(5, attendance.getRemarks());
+        } finally {
+            closeTransaction(conn, null);
+        }
+        
+        int inserted = 0;
+        int updated = 0;
+        int failed = 0;
+        List<String> results = new ArrayList<>(rowResults.length);
+        
+        for (String rowResult : rowResults) {
+            String value = rowResult != null ? rowResult : BULK_ROW_FAILED;
+            if (BULK_ROW_INSERTED.equals(value)) {
+                inserted++;
+            } else if (BULK_ROW_UPDATED.equals(value)) {
+                updated++;
+            } else {
+                failed++;
+            }
+            results.add(value);
+        }
+        
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("totalRows", rowResults.length);
+        summary.put("inserted", inserted);
+        summary.put("updated", updated);
+        summary.put("failed", failed);
+        summary.put("chunkSize", size);
+        summary.put("chunks", chunks);
+        summary.put("failedChunks", failedChunks);
+        summary.put("rowResults", results);
+        return summary;
+    }
+    
+    /**
+     * Write one chunk of attendance rows in its own transaction
+     * @param conn Connection with auto-commit disabled
+     * @param chunk Rows to write
+     * @param rowResults Per-row results for the whole submission
+     * @param offset Index of the first chunk row in rowResults
+     * @return true if the chunk was committed, false if it was rolled back
+     * @throws SQLException if the connection failed (SQLState class 08), after the
+     *         chunk's rows have been marked failed and the error logged
+     */
+    private boolean writeAttendanceChunk(Connection conn, List<Attendance> chunk,
+                                         String[] rowResults, int offset) throws SQLException {
+        StringBuilder sql = new StringBuilder(
+            "INSERT INTO attendance (enrollment_id, attendance_date, status, marked_by, remarks) VALUES ");
+        for (int i = 0; i < chunk.size(); i++) {
+            sql.append(i == 0 ? "(?, ?, ?, ?, ?)" : ", (?, ?, ?, ?, ?)");
+        }
+        sql.append(" ON DUPLICATE KEY UPDATE status = VALUES(status), marked_by = VALUES(marked_by), " +
+                   "marked_at = CURRENT_TIMESTAMP, remarks = VALUES(remarks)");
+        
+        try {
+            // Statuses before this chunk; later rows for the same enrollment and
+            // date see the status written by earlier rows
+            Map<String, AttendanceStatus> current = counterDAO.lockStatuses(conn, chunk);
+            Map<Integer, int[]> deltas = new HashMap<>();
+            String[] chunkResults = new String[chunk.size()];
+            
+            try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+                int index = 1;
                 
-                // For ON DUPLICATE KEY UPDATE
-                pstmt.setString(6, attendance.getStatusString());
-                pstmt.setInt(7, attendance.getMarkedBy());
-                pstmt.setString(8, attendance.getRemarks());
+                for (int i = 0; i < chunk.size(); i++) {
+                    Attendance attendance = chunk.get(i);
+                    String key = AttendanceCounterDAO.key(attendance.getEnrollmentId(), attendance.getAttendanceDate());
+                    boolean exists = current.containsKey(key);
+                    AttendanceStatus previous = current.put(key, attendance.getStatus());
+                    
+                    if (previous != attendance.getStatus()) {
+                        int[] delta = deltas.computeIfAbsent(attendance.getEnrollmentId(), id -> new int[5]);
+                        AttendanceCounterDAO.addToDelta(delta, previous, -1);
+                        AttendanceCounterDAO.addToDelta(delta, attendance.getStatus(), 1);
+                    }
+                    chunkResults[i] = exists ? BULK_ROW_UPDATED : BULK_ROW_INSERTED;
+                    
+                    pstmt.setInt(index++, attendance.getEnrollmentId());
+                    pstmt.setDate(index++, attendance.getAttendanceDate());
+                    pstmt.setString(index++, attendance.getStatusString());
+                    pstmt.setInt(index++, attendance.getMarkedBy());
+                    pstmt.setString(index++, attendance.getRemarks());
+                }
                 
-                pstmt.addBatch();
+                pstmt.executeUpdate();
             }
             
-            pstmt.executeBatch();
+            counterDAO.applyDeltas(conn, deltas);
             conn.commit();
+            System.arraycopy(chunkResults, 0, rowResults, offset, chunkResults.length);
+            reportCache.invalidateEnrollments(conn, deltas.keySet());
             return true;
             
         } catch (SQLException e) {
-            System.err.println("Error marking bulk attendance: " + e.getMessage());
-            e.printStackTrace();
-            
-            if (conn != null) {
-                try {
-                    conn.rollback();
-                } catch (SQLException ex) {
-                    ex.printStackTrace();
-                }
+            Log.error("Error writing attendance rows", e,
+                      "firstRow", offset, "lastRow", offset + chunk.size() - 1);
+            for (int i = 0; i < chunk.size(); i++) {
+                rowResults[offset + i] = BULK_ROW_FAILED;
             }
-            
-        } finally {
-            try {
-                if (pstmt != null) pstmt.close();
-                if (conn != null) conn.setAutoCommit(true);
-            } catch (SQLException e) {
-                e.printStackTrace();
+            if (isConnectionFailure(e)) {
+                // The server rolled the transaction back when the connection dropped
+                throw e;
             }
+            rollback(conn);
         }
         
         return false;
@@ -148,8 +333,7 @@ public class AttendanceDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting attendance by ID: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting attendance by ID", e);
         }
         
         return null;
@@ -176,7 +360,7 @@ public class AttendanceDAO {
                     "AND e.academic_year = ? " +
                     "ORDER BY a.attendance_date DESC";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, studentId);
@@ -190,8 +374,7 @@ public class AttendanceDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting attendance by student: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting attendance by student", e);
         }
         
         return attendanceList;
@@ -218,7 +401,7 @@ public class AttendanceDAO {
                     "AND e.academic_year = ? " +
                     "ORDER BY s.roll_number";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, subjectId);
@@ -232,13 +415,88 @@ public class AttendanceDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting attendance by date: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting attendance by date", e);
         }
         
         return attendanceList;
     }
     
+    /**
+     * Stream attendance records for export without holding them in memory
+     * Rows are handed to the handler as they arrive from the database, so the
+     * read connection stays borrowed until the handler has seen every row. It
+     * is exempt from leak detection, since a slow client can keep it that long.
+     * @param academicYear Academic year
+     * @param subjectId Subject ID, or 0 for all subjects
+     * @param department Subject department, or null for all departments
+     * @param handler Called for each record, ordered by date, subject and roll number
+     * @return Number of records streamed, -1 on database error
+     */
+    public int forEachAttendance(String academicYear, int subjectId, String department,
+                                 Consumer<Attendance> handler) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT a.*, u.full_name as student_name, s.roll_number, " +
+            "sub.subject_name, sub.subject_code, u2.full_name as marked_by_name " +
+            "FROM attendance a " +
+            "JOIN enrollments e ON a.enrollment_id = e.enrollment_id " +
+            "JOIN students s ON e.student_id = s.student_id " +
+            "JOIN users u ON s.user_id = u.user_id " +
+            "JOIN subjects sub ON e.subject_id = sub.subject_id " +
+            "JOIN users u2 ON a.marked_by = u2.user_id " +
+            "WHERE e.academic_year = ?");
+        if (subjectId > 0) {
+            sql.append(" AND sub.subject_id = ?");
+        }
+        if (department != null) {
+            sql.append(" AND sub.department = ?");
+        }
+        sql.append(" ORDER BY a.attendance_date, sub.subject_code, s.roll_number");
+        
+        try (Connection conn = DBConnection.getStreamingReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql.toString(),
+                 ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            
+            enableStreaming(pstmt);
+            
+            int index = 1;
+            pstmt.setString(index++, academicYear);
+            if (subjectId > 0) {
+                pstmt.setInt(index++, subjectId);
+            }
+            if (department != null) {
+                pstmt.setString(index++, department);
+            }
+            
+            int count = 0;
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    handler.accept(extractAttendanceFromResultSet(rs));
+                    count++;
+                }
+            }
+            return count;
+            
+        } catch (SQLException e) {
+            Log.error("Error streaming attendance", e);
+        }
+        
+        return -1;
+    }
+    
+    /**
+     * Ask the driver to stream rows instead of buffering the whole result
+     * MySQL Connector/J streams when the fetch size is Integer.MIN_VALUE;
+     * drivers that reject it fall back to their default fetching.
+     * @param pstmt Forward-only, read-only statement
+     */
+    private void enableStreaming(PreparedStatement pstmt) {
+        try {
+            pstmt.setFetchSize(STREAMING_FETCH_SIZE);
+        } catch (SQLException e) {
+            // Driver buffers or uses its own cursor size
+        }
+    }
+    
     /**
      * Get attendance statistics for a student in a subject
      * @param studentId Student ID
@@ -247,21 +505,36 @@ public class AttendanceDAO {
      * @return Map with attendance statistics
      */
     public Map<String, Object> getAttendanceStatistics(int studentId, int subjectId, String academicYear) {
+        try (Connection conn = DBConnection.getReadConnection()) {
+            return getAttendanceStatistics(conn, studentId, subjectId, academicYear);
+        } catch (SQLException e) {
+            Log.error("Error getting attendance statistics", e);
+            return new HashMap<>();
+        }
+    }
+    
+    /**
+     * Get attendance statistics on a connection the caller already holds, so a
+     * report does not borrow a second pooled connection while keeping its own
+     */
+    public Map<String, Object> getAttendanceStatistics(Connection conn, int studentId, int subjectId,
+                                                       String academicYear) throws SQLException {
         Map<String, Object> stats = new HashMap<>();
         
+        // Counters are kept per enrollment by the write methods; an enrollment with
+        // no classes held yet has no counter row, so aggregate to always get one row
         String sql = "SELECT " +
-                    "COUNT(*) as total_classes, " +
-                    "SUM(CASE WHEN a.status = 'PRESENT' THEN 1 ELSE 0 END) as present, " +
-                    "SUM(CASE WHEN a.status = 'ABSENT' THEN 1 ELSE 0 END) as absent, " +
-                    "SUM(CASE WHEN a.status = 'LATE' THEN 1 ELSE 0 END) as late, " +
-                    "SUM(CASE WHEN a.status = 'EXCUSED' THEN 1 ELSE 0 END) as excused, " +
-                    "SUM(CASE WHEN a.status IN ('PRESENT', 'LATE', 'EXCUSED') THEN 1 ELSE 0 END) as attended " +
-                    "FROM attendance a " +
-                    "JOIN enrollments e ON a.enrollment_id = e.enrollment_id " +
+                    "COALESCE(SUM(c.total_count), 0) as total_classes, " +
+                    "COALESCE(SUM(c.present_count), 0) as present, " +
+                    "COALESCE(SUM(c.absent_count), 0) as absent, " +
+                    "COALESCE(SUM(c.late_count), 0) as late, " +
+                    "COALESCE(SUM(c.excused_count), 0) as excused, " +
+                    "COALESCE(SUM(c.present_count + c.late_count + c.excused_count), 0) as attended " +
+                    "FROM enrollments e " +
+                    "LEFT JOIN attendance_counters c ON c.enrollment_id = e.enrollment_id " +
                     "WHERE e.student_id = ? AND e.subject_id = ? AND e.academic_year = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, studentId);
             pstmt.setInt(2, subjectId);
@@ -285,10 +558,6 @@ public class AttendanceDAO {
                 stats.put("percentage", percentage);
                 stats.put("belowThreshold", percentage < 75.0);
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error getting attendance statistics: " + e.getMessage());
-            e.printStackTrace();
         }
         
         return stats;
@@ -305,20 +574,19 @@ public class AttendanceDAO {
         
         String sql = "SELECT s.student_id, u.full_name, s.roll_number, u.email, " +
                     "sub.subject_id, sub.subject_name, sub.subject_code, " +
-                    "COUNT(*) as total_classes, " +
-                    "SUM(CASE WHEN a.status IN ('PRESENT', 'LATE', 'EXCUSED') THEN 1 ELSE 0 END) as attended, " +
-                    "ROUND((SUM(CASE WHEN a.status IN ('PRESENT', 'LATE', 'EXCUSED') THEN 1 ELSE 0 END) / COUNT(*)) * 100, 2) as percentage " +
-                    "FROM attendance a " +
-                    "JOIN enrollments e ON a.enrollment_id = e.enrollment_id " +
+                    "c.total_count as total_classes, " +
+                    "(c.present_count + c.late_count + c.excused_count) as attended, " +
+                    "ROUND((c.present_count + c.late_count + c.excused_count) * 100.0 / c.total_count, 2) as percentage " +
+                    "FROM attendance_counters c " +
+                    "JOIN enrollments e ON c.enrollment_id = e.enrollment_id " +
                     "JOIN students s ON e.student_id = s.student_id " +
                     "JOIN users u ON s.user_id = u.user_id " +
                     "JOIN subjects sub ON e.subject_id = sub.subject_id " +
-                    "WHERE e.academic_year = ? " +
-                    "GROUP BY s.student_id, sub.subject_id " +
-                    "HAVING percentage < ? " +
+                    "WHERE e.academic_year = ? AND c.total_count > 0 " +
+                    "AND (c.present_count + c.late_count + c.excused_count) * 100.0 / c.total_count < ? " +
                     "ORDER BY percentage ASC";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setString(1, academicYear);
@@ -343,8 +611,7 @@ public class AttendanceDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting students with low attendance: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting students with low attendance", e);
         }
         
         return lowAttendanceStudents;
@@ -361,18 +628,40 @@ public class AttendanceDAO {
         String sql = "UPDATE attendance SET status = ?, remarks = ?, " +
                     "marked_at = CURRENT_TIMESTAMP WHERE attendance_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
             
+            Map<String, Object> row = counterDAO.lockRow(conn, attendanceId);
+            if (row == null) {
+                conn.rollback();
+                return false;
+            }
+            
+            pstmt = conn.prepareStatement(sql);
             pstmt.setString(1, status.name());
             pstmt.setString(2, remarks);
             pstmt.setInt(3, attendanceId);
+            pstmt.executeUpdate();
             
-            return pstmt.executeUpdate() > 0;
+            counterDAO.applyChange(conn, (Integer) row.get("enrollmentId"),
+                                   (AttendanceStatus) row.get("status"), status);
+            conn.commit();
+            
+            if (row.get("status") != status) {
+                reportCache.invalidateEnrollment(conn, (Integer) row.get("enrollmentId"));
+            }
+            return true;
             
         } catch (SQLException e) {
-            System.err.println("Error updating attendance: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error updating attendance", e);
+            rollback(conn);
+            
+        } finally {
+            closeTransaction(conn, pstmt);
         }
         
         return false;
@@ -386,20 +675,76 @@ public class AttendanceDAO {
     public boolean deleteAttendance(int attendanceId) {
         String sql = "DELETE FROM attendance WHERE attendance_id = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        Connection conn = null;
+        PreparedStatement pstmt = null;
+        
+        try {
+            conn = DBConnection.getConnection();
+            conn.setAutoCommit(false);
             
+            Map<String, Object> row = counterDAO.lockRow(conn, attendanceId);
+            if (row == null) {
+                conn.rollback();
+                return false;
+            }
+            
+            pstmt = conn.prepareStatement(sql);
             pstmt.setInt(1, attendanceId);
-            return pstmt.executeUpdate() > 0;
+            pstmt.executeUpdate();
+            
+            counterDAO.applyChange(conn, (Integer) row.get("enrollmentId"),
+                                   (AttendanceStatus) row.get("status"), null);
+            conn.commit();
+            reportCache.invalidateEnrollment(conn, (Integer) row.get("enrollmentId"));
+            return true;
             
         } catch (SQLException e) {
-            System.err.println("Error deleting attendance: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error deleting attendance", e);
+            rollback(conn);
+            
+        } finally {
+            closeTransaction(conn, pstmt);
         }
         
         return false;
     }
     
+    /**
+     * Whether a failure means the connection itself is gone (SQLState class 08)
+     */
+    private static boolean isConnectionFailure(SQLException e) {
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+    
+    /**
+     * Roll back a failed write transaction
+     * @param conn Connection, may be null
+     */
+    private void rollback(Connection conn) {
+        if (conn != null) {
+            try {
+                conn.rollback();
+            } catch (SQLException ex) {
+                Log.error("Error rolling back attendance write", ex);
+            }
+        }
+    }
+    
+    /**
+     * Close statement, restore auto-commit and return the connection
+     * @param conn Connection, may be null
+     * @param pstmt Statement, may be null
+     */
+    private void closeTransaction(Connection conn, PreparedStatement pstmt) {
+        try {
+            if (pstmt != null) pstmt.close();
+            if (conn != null) conn.setAutoCommit(true);
+        } catch (SQLException e) {
+            Log.error("Error closing attendance write", e);
+        }
+        DBConnection.closeResources(conn);
+    }
+    
     /**
      * Extract Attendance object from ResultSet
      * @param rs ResultSet
@@ -0,0 +1,333 @@
+package dao;
+
+import config.DBConnection;
+import model.Attendance;
+import utils.LatencyHistogram;
+import utils.Log;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for attendance marking
+ * Queues marks in memory and group-commits them from a background flusher,
+ * so a burst of teachers marking at the start of a period shares a few
+ * transactions instead of taking one each. Marks for the same enrollment and
+ * date within a flush are coalesced, the last one wins. Every mark goes
+ * through the queue, so marks are written in the order they were submitted.
+ *
+ * Enabled with attendance.writeBehind.enabled=true in db.properties.
+ */
+public class AttendanceWriteBuffer {
+
+    private static final long DEFAULT_FLUSH_INTERVAL_MS = 50;
+    private static final int DEFAULT_MAX_BATCH_ROWS = 500;
+    private static final int DEFAULT_QUEUE_CAPACITY = 10000;
+    private static final long DEFAULT_OFFER_TIMEOUT_MS = 5000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 30 * 1000;
+
+    private static volatile AttendanceWriteBuffer instance;
+    private static volatile Boolean enabled;
+
+    private final AttendanceDAO attendanceDAO;
+    private final BlockingQueue<PendingMark> queue;
+    private final long flushIntervalMs;
+    private final int maxBatchRows;
+    private final long offerTimeoutMs;
+    private final Thread flusher;
+    private volatile boolean running = true;
+
+    // Statistics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder rowsWritten = new LongAdder();
+    private final LongAdder rowsFailed = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram flushTime = new LatencyHistogram();
+    private final LatencyHistogram commitDelay = new LatencyHistogram();
+
+    /**
+     * Create and start a buffer
+     * @param attendanceDAO DAO used for the group-commit writes
+     * @param flushIntervalMs Longest time a mark waits before being written
+     * @param maxBatchRows Flush as soon as this many marks are waiting
+     * @param queueCapacity Marks that may be waiting at once
+     * @param offerTimeoutMs How long a caller waits for room in a full queue
+     */
+    public AttendanceWriteBuffer(AttendanceDAO attendanceDAO, long flushIntervalMs,
+                                 int maxBatchRows, int queueCapacity, long offerTimeoutMs) {
+        this.attendanceDAO = attendanceDAO;
+        this.flushIntervalMs = flushIntervalMs;
+        this.maxBatchRows = maxBatchRows;
+        this.offerTimeoutMs = offerTimeoutMs;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+
+        this.flusher = new Thread(this::runFlusher, "attendease-attendance-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+    }
+
+    /**
+     * Whether write-behind marking is enabled in db.properties
+     */
+    public static boolean isEnabled() {
+        if (enabled == null) {
+            enabled = DBConnection.getBooleanSetting("attendance.writeBehind.enabled", false);
+        }
+        return enabled;
+    }
+
+    /**
+     * Get the shared buffer, creating it from db.properties on first use
+     * @return AttendanceWriteBuffer instance
+     */
+    public static AttendanceWriteBuffer getInstance() {
+        if (instance == null) {
+            synchronized (AttendanceWriteBuffer.class) {
+                if (instance == null) {
+                    instance = new AttendanceWriteBuffer(
+                        new AttendanceDAO(),
+                        DBConnection.getLongSetting("attendance.writeBehind.flushIntervalMs", DEFAULT_FLUSH_INTERVAL_MS),
+                        (int) DBConnection.getLongSetting("attendance.writeBehind.maxBatchRows", DEFAULT_MAX_BATCH_ROWS),
+                        (int) DBConnection.getLongSetting("attendance.writeBehind.queueCapacity", DEFAULT_QUEUE_CAPACITY),
+                        DBConnection.getLongSetting("attendance.writeBehind.offerTimeoutMs", DEFAULT_OFFER_TIMEOUT_MS)
+                    );
+                    Log.info("Attendance write-behind buffer started");
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get statistics of the shared write-behind buffer without starting it
+     * @return Map with statistics, empty if it has not been started
+     */
+    public static Map<String, Object> getInstanceStatistics() {
+        AttendanceWriteBuffer current = instance;
+        return current != null ? current.getStatistics() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Drain and stop the shared buffer if it was started
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown(SHUTDOWN_TIMEOUT_MS);
+            instance = null;
+        }
+    }
+
+    /**
+     * Queue an attendance mark
+     * When the queue is full the caller waits up to offerTimeoutMs for room.
+     * Writing the mark on the calling thread instead would let it overtake
+     * older queued marks for the same enrollment and date.
+     * @param attendance Attendance record
+     * @return Future completing with true once the mark is committed, false if it
+     *         failed, was not queued in time or arrived after shutdown
+     */
+    public CompletableFuture<Boolean> submit(Attendance attendance) {
+        submitted.increment();
+        PendingMark pending = new PendingMark(attendance);
+
+        boolean queued = false;
+        if (running) {
+            try {
+                queued = queue.offer(pending, offerTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Offered after shutdown drained the queue: take it back unless
+        // the flusher already has it, in which case it will be completed
+        if (queued && !running && queue.remove(pending)) {
+            queued = false;
+        }
+
+        if (!queued) {
+            rejected.increment();
+            pending.future.complete(false);
+        }
+        return pending.future;
+    }
+
+    /**
+     * Stop accepting marks, write everything still queued and stop the flusher
+     * @param timeoutMs Longest time to wait for the queue to drain
+     */
+    public void shutdown(long timeoutMs) {
+        // No interrupt: the flusher notices within one flush interval, and an
+        // interrupt could abort a group commit that is already in progress
+        running = false;
+
+        try {
+            flusher.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (!flusher.isAlive()) {
+            // Marks offered while the flusher was exiting
+            List<PendingMark> rest = new ArrayList<>();
+            queue.drainTo(rest);
+            if (!rest.isEmpty()) {
+                flush(rest);
+            }
+        }
+
+        if (flusher.isAlive()) {
+            Log.warn("Attendance flusher did not finish before the shutdown timeout",
+                     "timeoutMs", timeoutMs, "queuedMarks", queue.size());
+        } else {
+            Log.info("Attendance write-behind buffer drained");
+        }
+    }
+
+    public int getQueueDepth() {
+        return queue.size();
+    }
+
+    public LatencyHistogram getFlushTimeHistogram() {
+        return flushTime;
+    }
+
+    public LatencyHistogram getCommitDelayHistogram() {
+        return commitDelay;
+    }
+
+    /**
+     * Get buffer statistics
+     * @return Map with queue and flush statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("running", running);
+        stats.put("queueDepth", queue.size());
+        stats.put("flushIntervalMs", flushIntervalMs);
+        stats.put("maxBatchRows", maxBatchRows);
+        stats.put("submitted", submitted.sum());
+        stats.put("coalesced", coalesced.sum());
+        stats.put("rowsWritten", rowsWritten.sum());
+        stats.put("rowsFailed", rowsFailed.sum());
+        stats.put("flushes", flushes.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("flushTime", flushTime.toMap());
+        stats.put("commitDelay", commitDelay.toMap());
+        return stats;
+    }
+
+    /**
+     * Flusher loop: wait for the first mark, gather more until the batch is
+     * full or the flush interval has passed, then write them in one go.
+     * Keeps going after shutdown until the queue is empty.
+     */
+    private void runFlusher() {
+        List<PendingMark> batch = new ArrayList<>(maxBatchRows);
+
+        while (running || !queue.isEmpty()) {
+            try {
+                PendingMark first = running
+                    ? queue.poll(flushIntervalMs, TimeUnit.MILLISECONDS)
+                    : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+
+                long deadline = first.enqueuedAt + TimeUnit.MILLISECONDS.toNanos(flushIntervalMs);
+                while (batch.size() < maxBatchRows) {
+                    queue.drainTo(batch, maxBatchRows - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchRows || remaining <= 0 || !running) {
+                        break;
+                    }
+                    PendingMark next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Not expected, write what we have and carry on
+            }
+
+            if (!batch.isEmpty()) {
+                flush(batch);
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Coalesce a batch by enrollment and date and write it
+     */
+    private void flush(List<PendingMark> batch) {
+        long start = System.nanoTime();
+
+        Map<String, List<PendingMark>> byKey = new LinkedHashMap<>();
+        for (PendingMark pending : batch) {
+            String key = AttendanceCounterDAO.key(pending.attendance.getEnrollmentId(),
+                                                  pending.attendance.getAttendanceDate());
+            byKey.computeIfAbsent(key, k -> new ArrayList<>()).add(pending);
+        }
+        coalesced.add(batch.size() - byKey.size());
+
+        List<Attendance> rows = new ArrayList<>(byKey.size());
+        for (List<PendingMark> marks : byKey.values()) {
+            rows.add(marks.get(marks.size() - 1).attendance);
+        }
+
+        List<String> rowResults = null;
+        try {
+            Map<String, Object> result = attendanceDAO.markBulkAttendance(rows, maxBatchRows);
+            rowResults = castResults(result.get("rowResults"));
+        } catch (RuntimeException e) {
+            Log.error("Error flushing attendance buffer", e);
+        }
+
+        flushes.increment();
+        flushTime.recordSince(start);
+
+        int i = 0;
+        for (List<PendingMark> marks : byKey.values()) {
+            boolean written = rowResults != null &&
+                              !AttendanceDAO.BULK_ROW_FAILED.equals(rowResults.get(i++));
+            if (written) {
+                rowsWritten.increment();
+            } else {
+                rowsFailed.increment();
+            }
+            for (PendingMark pending : marks) {
+                commitDelay.recordSince(pending.enqueuedAt);
+                pending.future.complete(written);
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<String> castResults(Object rowResults) {
+        return (List<String>) rowResults;
+    }
+
+    /**
+     * A queued mark and the future its caller is waiting on
+     */
+    private static class PendingMark {
+        private final Attendance attendance;
+        private final CompletableFuture<Boolean> future = new CompletableFuture<>();
+        private final long enqueuedAt = System.nanoTime();
+
+        PendingMark(Attendance attendance) {
+            this.attendance = attendance;
+        }
+    }
+}
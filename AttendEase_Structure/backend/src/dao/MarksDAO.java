@@ -2,12 +2,15 @@ package dao;
 
 import config.DBConnection;
 import model.Marks;
+import utils.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * Data Access Object for Marks operations
@@ -15,6 +18,8 @@ import java.util.Map;
  */
 public class MarksDAO {
     
+    private final ReportCache reportCache = ReportCache.getInstance();
+    
     /**
      * Add marks for a student
      * @param marks Marks object
@@ -43,12 +48,12 @@ public class MarksDAO {
                 if (rs.next()) {
                     marks.setMarkId(rs.getInt(1));
                 }
+                reportCache.invalidateEnrollment(conn, marks.getEnrollmentId());
                 return true;
             }
             
         } catch (SQLException e) {
-            System.err.println("Error adding marks: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error adding marks", e);
         }
         
         return false;
@@ -86,17 +91,22 @@ public class MarksDAO {
             
             pstmt.executeBatch();
             conn.commit();
+            
+            Set<Integer> enrollmentIds = new HashSet<>();
+            for (Marks marks : marksList) {
+                enrollmentIds.add(marks.getEnrollmentId());
+            }
+            reportCache.invalidateEnrollments(conn, enrollmentIds);
             return true;
             
         } catch (SQLException e) {
-            System.err.println("Error adding bulk marks: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error adding bulk marks", e);
             
             if (conn != null) {
                 try {
                     conn.rollback();
                 } catch (SQLException ex) {
-                    ex.printStackTrace();
+                    Log.error("Error rolling back bulk marks", ex);
                 }
             }
             
@@ -105,8 +115,9 @@ public class MarksDAO {
                 if (pstmt != null) pstmt.close();
                 if (conn != null) conn.setAutoCommit(true);
             } catch (SQLException e) {
-                e.printStackTrace();
+                Log.error("Error closing bulk marks statement", e);
             }
+            DBConnection.closeResources(conn);
         }
         
         return false;
@@ -141,8 +152,7 @@ public class MarksDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting marks by ID: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting marks by ID", e);
         }
         
         return null;
@@ -171,7 +181,7 @@ public class MarksDAO {
                     "AND e.academic_year = ? " +
                     "ORDER BY m.assessment_date DESC";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, studentId);
@@ -185,8 +195,7 @@ public class MarksDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting marks by student: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting marks by student", e);
         }
         
         return marksList;
@@ -215,7 +224,7 @@ public class MarksDAO {
                     "AND e.academic_year = ? " +
                     "ORDER BY s.roll_number";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, subjectId);
@@ -229,8 +238,7 @@ public class MarksDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting marks by subject and assessment: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting marks by subject and assessment", e);
         }
         
         return marksList;
@@ -244,6 +252,19 @@ public class MarksDAO {
      * @return Map with marks statistics
      */
     public Map<String, Object> getMarksStatistics(int studentId, int subjectId, String academicYear) {
+        try (Connection conn = DBConnection.getReadConnection()) {
+            return getMarksStatistics(conn, studentId, subjectId, academicYear);
+        } catch (SQLException e) {
+            Log.error("Error getting marks statistics", e);
+            return new HashMap<>();
+        }
+    }
+    
+    /**
+     * Get marks statistics on a connection the caller already holds
+     */
+    public Map<String, Object> getMarksStatistics(Connection conn, int studentId, int subjectId,
+                                                  String academicYear) throws SQLException {
         Map<String, Object> stats = new HashMap<>();
         
         String sql = "SELECT " +
@@ -255,8 +276,7 @@ public class MarksDAO {
                     "JOIN enrollments e ON m.enrollment_id = e.enrollment_id " +
                     "WHERE e.student_id = ? AND e.subject_id = ? AND e.academic_year = ?";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, studentId);
             pstmt.setInt(2, subjectId);
@@ -279,10 +299,6 @@ public class MarksDAO {
                 stats.put("grade", grade);
                 stats.put("passed", percentage >= 40.0);
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error getting marks statistics: " + e.getMessage());
-            e.printStackTrace();
         }
         
         return stats;
@@ -302,7 +318,7 @@ public class MarksDAO {
                     "JOIN assessment_types at ON m.assessment_type_id = at.type_id " +
                     "WHERE e.student_id = ? AND e.subject_id = ? AND e.academic_year = ?";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, studentId);
@@ -316,8 +332,7 @@ public class MarksDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error calculating weighted marks: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error calculating weighted marks", e);
         }
         
         return 0.0;
@@ -347,7 +362,7 @@ public class MarksDAO {
                     "HAVING percentage < 40 " +
                     "ORDER BY percentage ASC";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, subjectId);
@@ -371,8 +386,7 @@ public class MarksDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting failing students: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting failing students", e);
         }
         
         return failingStudents;
@@ -397,11 +411,14 @@ public class MarksDAO {
             pstmt.setString(4, marks.getRemarks());
             pstmt.setInt(5, marks.getMarkId());
             
-            return pstmt.executeUpdate() > 0;
+            int enrollmentId = findEnrollmentId(conn, marks.getMarkId());
+            if (pstmt.executeUpdate() > 0) {
+                reportCache.invalidateEnrollment(conn, enrollmentId);
+                return true;
+            }
             
         } catch (SQLException e) {
-            System.err.println("Error updating marks: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error updating marks", e);
         }
         
         return false;
@@ -419,16 +436,40 @@ public class MarksDAO {
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, markId);
-            return pstmt.executeUpdate() > 0;
+            
+            int enrollmentId = findEnrollmentId(conn, markId);
+            if (pstmt.executeUpdate() > 0) {
+                reportCache.invalidateEnrollment(conn, enrollmentId);
+                return true;
+            }
             
         } catch (SQLException e) {
-            System.err.println("Error deleting marks: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error deleting marks", e);
         }
         
         return false;
     }
     
+    /**
+     * Find the enrollment a marks record belongs to, for report cache invalidation
+     * @param conn Connection to query on
+     * @param markId Mark ID
+     * @return Enrollment ID, or 0 if the record does not exist
+     * @throws SQLException if the query fails
+     */
+    private int findEnrollmentId(Connection conn, int markId) throws SQLException {
+        if (!reportCache.isEnabled()) {
+            return 0;
+        }
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(
+                 "SELECT enrollment_id FROM marks WHERE mark_id = ?")) {
+            pstmt.setInt(1, markId);
+            ResultSet rs = pstmt.executeQuery();
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+    
     /**
      * Get top performers in a subject
      * @param subjectId Subject ID
@@ -450,7 +491,7 @@ public class MarksDAO {
                     "ORDER BY percentage DESC " +
                     "LIMIT ?";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, subjectId);
@@ -471,8 +512,7 @@ public class MarksDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting top performers: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting top performers", e);
         }
         
         return topPerformers;
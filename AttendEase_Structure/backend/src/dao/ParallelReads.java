@@ -0,0 +1,196 @@
+package dao;
+
+import config.DBConnection;
+import utils.QueryTrace;
+import utils.Workload;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Shared worker pool for running independent read queries of one request in parallel
+ * Each forked query borrows its own read connection, so the worker count bounds
+ * how many extra pool connections fan-out can take. When the workers are busy
+ * the query runs on the calling thread instead of waiting.
+ *
+ * Callers must not hold a pooled connection while joining a forked query,
+ * otherwise a pool exhausted by waiting callers would leave the workers without
+ * a connection.
+ *
+ * Configured with the reports.parallel.* settings in db.properties.
+ */
+public class ParallelReads {
+
+    private static final int DEFAULT_WORKERS = 8;
+
+    private static volatile ParallelReads instance;
+
+    /**
+     * A read query run on a connection borrowed for it
+     */
+    @FunctionalInterface
+    public interface ReadQuery<T> {
+        T run(Connection conn) throws SQLException;
+    }
+
+    private final ThreadPoolExecutor workers;
+    private final int maxPerRequest;
+
+    // Statistics
+    private final LongAdder forked = new LongAdder();
+    private final LongAdder ranInline = new LongAdder();
+
+    /**
+     * Create and start a worker pool
+     * @param workerCount Forked queries that run at once across all requests
+     * @param maxPerRequest Queries one request may run at once, including its own thread
+     */
+    public ParallelReads(int workerCount, int maxPerRequest) {
+        this.maxPerRequest = Math.max(maxPerRequest, 1);
+
+        // No queue: a fork is either taken by an idle worker or rejected and run inline
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new SynchronousQueue<>(), r -> {
+                Thread t = new Thread(r, "attendease-read-worker-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+    }
+
+    /**
+     * Get the shared pool, creating it from db.properties on first use
+     * @return ParallelReads instance
+     */
+    public static ParallelReads getInstance() {
+        if (instance == null) {
+            synchronized (ParallelReads.class) {
+                if (instance == null) {
+                    instance = new ParallelReads(
+                        (int) DBConnection.getLongSetting("reports.parallel.workers", DEFAULT_WORKERS),
+                        DBConnection.getParallelReadsPerRequest()
+                    );
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get statistics of the shared parallel read pool without starting it
+     * @return Map with statistics, empty if it has not been started
+     */
+    public static Map<String, Object> getInstanceStatistics() {
+        ParallelReads current = instance;
+        return current != null ? current.getStatistics() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Stop the shared pool if it was started
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.workers.shutdownNow();
+            instance = null;
+        }
+    }
+
+    /**
+     * Queries one request may run at once, including the one on its own thread
+     */
+    public int getMaxPerRequest() {
+        return maxPerRequest;
+    }
+
+    /**
+     * Start a query on a worker with its own read connection
+     * The worker runs it in the caller's workload class, so it reads from the
+     * same pool the caller would, and records it in the caller's query trace.
+     * Runs it on the calling thread if all workers are busy.
+     * @param query Query to run
+     * @return Future for the query result, read with join()
+     */
+    public <T> Future<T> fork(ReadQuery<T> query) {
+        try {
+            Workload workload = Workload.current();
+            QueryTrace trace = QueryTrace.current();
+            Future<T> future = workers.submit(() -> {
+                Workload previous = Workload.enter(workload);
+                QueryTrace previousTrace = QueryTrace.enter(trace);
+                try {
+                    return runOnReadConnection(query);
+                } finally {
+                    QueryTrace.restore(previousTrace);
+                    Workload.restore(previous);
+                }
+            });
+            forked.increment();
+            return future;
+        } catch (RejectedExecutionException e) {
+            ranInline.increment();
+            CompletableFuture<T> result = new CompletableFuture<>();
+            try {
+                result.complete(runOnReadConnection(query));
+            } catch (SQLException | RuntimeException ex) {
+                result.completeExceptionally(ex);
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Wait for a forked query
+     * @param future Future returned by fork()
+     * @return Query result
+     * @throws SQLException if the query failed or the wait was interrupted
+     */
+    public static <T> T join(Future<T> future) throws SQLException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted waiting for a parallel query", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof SQLException) {
+                throw (SQLException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new SQLException("Parallel query failed", cause);
+        }
+    }
+
+    /**
+     * Get pool statistics
+     * @return Map with worker usage and fork counts
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workers.getMaximumPoolSize());
+        stats.put("active", workers.getActiveCount());
+        stats.put("maxPerRequest", maxPerRequest);
+        stats.put("forked", forked.sum());
+        stats.put("ranInline", ranInline.sum());
+        return stats;
+    }
+
+    private static <T> T runOnReadConnection(ReadQuery<T> query) throws SQLException {
+        try (Connection conn = DBConnection.getReadConnection()) {
+            return query.run(conn);
+        }
+    }
+}
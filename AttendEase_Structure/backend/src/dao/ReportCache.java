@@ -0,0 +1,360 @@
+package dao;
+
+import config.DBConnection;
+import model.Report;
+import utils.Log;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * LRU cache for generated reports
+ * Holds student reports keyed by student, subject and academic year, and
+ * subject performance summaries keyed by subject and academic year.
+ * Attendance and marks writes invalidate the entries for the enrollments they
+ * touch once committed. A report whose computation started before, or within
+ * the replica lag bound after, an invalidation of its key is not cached, since
+ * it may have been read from a replica that had not seen the write yet.
+ * Entries also expire after a time-to-live.
+ *
+ * Cached values are shared between requests and must not be modified.
+ * Configured with the reports.cache.* settings in db.properties.
+ */
+public class ReportCache {
+
+    private static final int DEFAULT_MAX_ENTRIES = 5000;
+    private static final long DEFAULT_TTL_SECONDS = 300;
+
+    // Invalidations are remembered at least this long so slower loads cannot cache stale results
+    private static final long MIN_TOMBSTONE_RETENTION_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    // Enrollment lookups kept before the map is cleared and rebuilt on demand
+    private static final int MAX_KNOWN_ENROLLMENTS = 100000;
+
+    private static volatile ReportCache instance;
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final long staleWindowNanos;
+    private final long tombstoneRetentionNanos;
+
+    // Guarded by this
+    private final LinkedHashMap<String, CacheEntry> entries;
+    private final LinkedHashMap<String, Long> tombstones = new LinkedHashMap<>();
+    private Long clearedAt;
+
+    // enrollment_id -> {student_id, subject_id, academic_year}
+    private final Map<Integer, Object[]> enrollments = new ConcurrentHashMap<>();
+
+    // Statistics, guarded by this
+    private long hits;
+    private long misses;
+    private long puts;
+    private long evictions;
+    private long expirations;
+    private long invalidations;
+    private long staleLoads;
+
+    /**
+     * Create a cache
+     * @param maxEntries Entries kept before the least recently used is evicted, 0 disables caching
+     * @param ttlSeconds Seconds an entry stays valid
+     * @param staleWindowMs How long after an invalidation reads may still miss the write,
+     *                      the replica lag bound or 0 when reads go to the primary
+     */
+    public ReportCache(int maxEntries, long ttlSeconds, long staleWindowMs) {
+        this.maxEntries = Math.max(maxEntries, 0);
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSeconds);
+        this.staleWindowNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(staleWindowMs, 0));
+        this.tombstoneRetentionNanos = MIN_TOMBSTONE_RETENTION_NANOS + staleWindowNanos;
+        this.entries = new LinkedHashMap<String, CacheEntry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                if (size() > ReportCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    /**
+     * Get the shared cache, creating it from db.properties on first use
+     * @return ReportCache instance
+     */
+    public static ReportCache getInstance() {
+        if (instance == null) {
+            synchronized (ReportCache.class) {
+                if (instance == null) {
+                    boolean enabled = DBConnection.getBooleanSetting("reports.cache.enabled", true);
+                    instance = new ReportCache(
+                        enabled ? (int) DBConnection.getLongSetting("reports.cache.maxEntries", DEFAULT_MAX_ENTRIES) : 0,
+                        DBConnection.getLongSetting("reports.cache.ttlSeconds", DEFAULT_TTL_SECONDS),
+                        DBConnection.getReplicaStalenessBoundMs()
+                    );
+                }
+            }
+        }
+        return instance;
+    }
+
+    public boolean isEnabled() {
+        return maxEntries > 0;
+    }
+
+    /**
+     * Mark the start of a report computation
+     * Pass the returned value to the matching put so a result computed while
+     * a write to the same enrollment committed is not cached.
+     * @return Load start time
+     */
+    public long startLoad() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Get a cached student report
+     * @return Report, or null if not cached
+     */
+    public Report getStudentReport(int studentId, int subjectId, String academicYear) {
+        return (Report) get(studentKey(studentId, subjectId, academicYear));
+    }
+
+    /**
+     * Cache a student report
+     * @param loadStart Value of startLoad() taken before the report was computed
+     */
+    public void putStudentReport(int studentId, int subjectId, String academicYear,
+                                 Report report, long loadStart) {
+        put(studentKey(studentId, subjectId, academicYear), report, loadStart);
+    }
+
+    /**
+     * Get a cached subject performance summary
+     * @return Summary map, or null if not cached
+     */
+    @SuppressWarnings("unchecked")
+    public Map<String, Object> getSubjectSummary(int subjectId, String academicYear) {
+        return (Map<String, Object>) get(summaryKey(subjectId, academicYear));
+    }
+
+    /**
+     * Cache a subject performance summary
+     * @param loadStart Value of startLoad() taken before the summary was computed
+     */
+    public void putSubjectSummary(int subjectId, String academicYear,
+                                  Map<String, Object> summary, long loadStart) {
+        put(summaryKey(subjectId, academicYear), Collections.unmodifiableMap(summary), loadStart);
+    }
+
+    /**
+     * Invalidate the reports that depend on an enrollment
+     * Call after the write has been committed.
+     * @param conn Connection used to look up enrollments not seen before
+     * @param enrollmentId Enrollment whose attendance or marks changed
+     */
+    public void invalidateEnrollment(Connection conn, int enrollmentId) {
+        invalidateEnrollments(conn, Collections.singleton(enrollmentId));
+    }
+
+    /**
+     * Invalidate the reports that depend on a set of enrollments
+     * Call after the write has been committed.
+     * @param conn Connection used to look up enrollments not seen before
+     * @param enrollmentIds Enrollments whose attendance or marks changed
+     */
+    public void invalidateEnrollments(Connection conn, Collection<Integer> enrollmentIds) {
+        if (!isEnabled() || enrollmentIds.isEmpty()) {
+            return;
+        }
+
+        List<String> keys = new ArrayList<>(enrollmentIds.size() + 1);
+        try {
+            resolveEnrollments(conn, enrollmentIds);
+        } catch (SQLException e) {
+            // Cannot tell which reports are affected, so drop them all
+            Log.warn("Error resolving enrollments for report cache, clearing it", "error", e.getMessage());
+            clear();
+            return;
+        }
+
+        for (Integer enrollmentId : enrollmentIds) {
+            Object[] enrollment = enrollments.get(enrollmentId);
+            if (enrollment == null) {
+                continue; // deleted enrollment, nothing cached for it can be read again
+            }
+            int studentId = (Integer) enrollment[0];
+            int subjectId = (Integer) enrollment[1];
+            String academicYear = (String) enrollment[2];
+            keys.add(studentKey(studentId, subjectId, academicYear));
+            String summaryKey = summaryKey(subjectId, academicYear);
+            if (!keys.contains(summaryKey)) {
+                keys.add(summaryKey);
+            }
+        }
+
+        long now = System.nanoTime();
+        synchronized (this) {
+            for (String key : keys) {
+                if (entries.remove(key) != null) {
+                    invalidations++;
+                }
+                tombstones.remove(key);
+                tombstones.put(key, now);
+            }
+            pruneTombstones(now);
+        }
+    }
+
+    /**
+     * Drop all cached reports
+     */
+    public synchronized void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        // Acts as a tombstone for every key, including loads in progress
+        clearedAt = System.nanoTime();
+    }
+
+    /**
+     * Get cache statistics
+     * @return Map with size, hit ratio and eviction counts
+     */
+    public synchronized Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        long lookups = hits + misses;
+        stats.put("enabled", isEnabled());
+        stats.put("size", entries.size());
+        stats.put("maxEntries", maxEntries);
+        stats.put("ttlSeconds", TimeUnit.NANOSECONDS.toSeconds(ttlNanos));
+        stats.put("hits", hits);
+        stats.put("misses", misses);
+        stats.put("hitRatio", lookups > 0 ? (double) hits / lookups : 0.0);
+        stats.put("puts", puts);
+        stats.put("evictions", evictions);
+        stats.put("expirations", expirations);
+        stats.put("invalidations", invalidations);
+        stats.put("staleLoadsDiscarded", staleLoads);
+        return stats;
+    }
+
+    private synchronized Object get(String key) {
+        if (!isEnabled()) {
+            return null;
+        }
+
+        CacheEntry entry = entries.get(key);
+        if (entry != null && System.nanoTime() - entry.storedAt > ttlNanos) {
+            entries.remove(key);
+            expirations++;
+            entry = null;
+        }
+
+        if (entry == null) {
+            misses++;
+            return null;
+        }
+        hits++;
+        return entry.value;
+    }
+
+    private synchronized void put(String key, Object value, long loadStart) {
+        if (!isEnabled()) {
+            return;
+        }
+
+        if (isStale(tombstones.get(key), loadStart) || isStale(clearedAt, loadStart)) {
+            // A write committed while this was being computed, or so shortly
+            // before that a replica read may not have seen it
+            staleLoads++;
+            return;
+        }
+
+        entries.put(key, new CacheEntry(value, loadStart));
+        puts++;
+    }
+
+    private boolean isStale(Long invalidatedAt, long loadStart) {
+        return invalidatedAt != null && invalidatedAt + staleWindowNanos - loadStart >= 0;
+    }
+
+    private void pruneTombstones(long now) {
+        Iterator<Long> iterator = tombstones.values().iterator();
+        while (iterator.hasNext() && now - iterator.next() > tombstoneRetentionNanos) {
+            iterator.remove();
+        }
+    }
+
+    /**
+     * Look up student, subject and year for enrollments not seen before
+     */
+    private void resolveEnrollments(Connection conn, Collection<Integer> enrollmentIds) throws SQLException {
+        List<Integer> unknown = new ArrayList<>();
+        for (Integer enrollmentId : enrollmentIds) {
+            if (!enrollments.containsKey(enrollmentId)) {
+                unknown.add(enrollmentId);
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        if (enrollments.size() + unknown.size() > MAX_KNOWN_ENROLLMENTS) {
+            enrollments.clear();
+        }
+
+        StringBuilder sql = new StringBuilder(
+            "SELECT enrollment_id, student_id, subject_id, academic_year FROM enrollments " +
+            "WHERE enrollment_id IN (");
+        for (int i = 0; i < unknown.size(); i++) {
+            sql.append(i == 0 ? "?" : ", ?");
+        }
+        sql.append(")");
+
+        try (PreparedStatement pstmt = conn.prepareStatement(sql.toString())) {
+            for (int i = 0; i < unknown.size(); i++) {
+                pstmt.setInt(i + 1, unknown.get(i));
+            }
+
+            ResultSet rs = pstmt.executeQuery();
+            while (rs.next()) {
+                enrollments.put(rs.getInt("enrollment_id"), new Object[] {
+                    rs.getInt("student_id"), rs.getInt("subject_id"), rs.getString("academic_year")
+                });
+            }
+        }
+    }
+
+    private static String studentKey(int studentId, int subjectId, String academicYear) {
+        return "student|" + studentId + "|" + subjectId + "|" + academicYear;
+    }
+
+    private static String summaryKey(int subjectId, String academicYear) {
+        return "summary|" + subjectId + "|" + academicYear;
+    }
+
+    /**
+     * A cached value and when it was loaded
+     */
+    private static class CacheEntry {
+        private final Object value;
+        private final long storedAt;
+
+        CacheEntry(Object value, long storedAt) {
+            this.value = value;
+            this.storedAt = storedAt;
+        }
+    }
+}
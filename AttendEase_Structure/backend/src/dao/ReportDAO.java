@@ -2,10 +2,14 @@ package dao;
 
 import config.DBConnection;
 import model.Report;
+import utils.Log;
 
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Future;
 
 /**
  * Data Access Object for Report operations
@@ -13,12 +17,18 @@ import java.util.List;
  */
 public class ReportDAO {
     
+    // Report.analyzeRiskLevel flags a student below either of these as at risk
+    private static final double AT_RISK_ATTENDANCE_THRESHOLD = 75.0;
+    private static final double AT_RISK_MARKS_THRESHOLD = 50.0;
+    
     private AttendanceDAO attendanceDAO;
     private MarksDAO marksDAO;
+    private final ReportCache reportCache;
     
     public ReportDAO() {
         this.attendanceDAO = new AttendanceDAO();
         this.marksDAO = new MarksDAO();
+        this.reportCache = ReportCache.getInstance();
     }
     
     /**
@@ -26,12 +36,18 @@ public class ReportDAO {
      * @param studentId Student ID
      * @param subjectId Subject ID
      * @param academicYear Academic year
-     * @return Report object with all statistics
+     * @return Report object with all statistics, shared with the report cache
      */
     public Report generateStudentReport(int studentId, int subjectId, String academicYear) {
+        Report cached = reportCache.getStudentReport(studentId, subjectId, academicYear);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long loadStart = reportCache.startLoad();
         Report report = new Report(studentId, subjectId, academicYear, "COMPREHENSIVE");
         
-        try (Connection conn = DBConnection.getConnection()) {
+        try (Connection conn = DBConnection.getReadConnection()) {
             
             // Get student information
             String studentSql = "SELECT u.full_name, s.roll_number, u.email, s.semester " +
@@ -67,7 +83,7 @@ public class ReportDAO {
             }
             
             // Get attendance statistics
-            var attendanceStats = attendanceDAO.getAttendanceStatistics(studentId, subjectId, academicYear);
+            var attendanceStats = attendanceDAO.getAttendanceStatistics(conn, studentId, subjectId, academicYear);
             if (!attendanceStats.isEmpty()) {
                 report.setTotalClasses((Integer) attendanceStats.get("totalClasses"));
                 report.setClassesAttended((Integer) attendanceStats.get("attended"));
@@ -78,7 +94,7 @@ public class ReportDAO {
             }
             
             // Get marks statistics
-            var marksStats = marksDAO.getMarksStatistics(studentId, subjectId, academicYear);
+            var marksStats = marksDAO.getMarksStatistics(conn, studentId, subjectId, academicYear);
             if (!marksStats.isEmpty()) {
                 report.setTotalMarksObtained((Double) marksStats.get("totalObtained"));
                 report.setTotalMaxMarks((Double) marksStats.get("totalMax"));
@@ -111,24 +127,11 @@ public class ReportDAO {
                 }
             }
             
-            // Calculate performance level
-            if (report.getOverallPercentage() >= 80) {
-                report.setPerformanceLevel("Excellent");
-            } else if (report.getOverallPercentage() >= 60) {
-                report.setPerformanceLevel("Good");
-            } else if (report.getOverallPercentage() >= 40) {
-                report.setPerformanceLevel("Average");
-            } else {
-                report.setPerformanceLevel("Poor");
-            }
-            
-            // Analyze risk and generate insights
-            report.analyzeRiskLevel();
-            report.generateInsights();
+            completeAnalysis(report);
+            reportCache.putStudentReport(studentId, subjectId, academicYear, report, loadStart);
             
         } catch (SQLException e) {
-            System.err.println("Error generating student report: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error generating student report", e);
         }
         
         return report;
@@ -136,6 +139,7 @@ public class ReportDAO {
     
     /**
      * Generate attendance report for all students in a subject
+     * Computes every student's counts in a single grouped query
      * @param subjectId Subject ID
      * @param academicYear Academic year
      * @return List of attendance reports
@@ -143,14 +147,20 @@ public class ReportDAO {
     public List<Report> generateSubjectAttendanceReport(int subjectId, String academicYear) {
         List<Report> reports = new ArrayList<>();
         
-        String sql = "SELECT DISTINCT s.student_id, u.full_name, s.roll_number, u.email " +
+        String sql = "SELECT s.student_id, u.full_name, s.roll_number, u.email, " +
+                    "COALESCE(c.total_count, 0) as total_classes, " +
+                    "COALESCE(c.absent_count, 0) as absent, " +
+                    "COALESCE(c.late_count, 0) as late, " +
+                    "COALESCE(c.excused_count, 0) as excused, " +
+                    "COALESCE(c.present_count + c.late_count + c.excused_count, 0) as attended " +
                     "FROM enrollments e " +
                     "JOIN students s ON e.student_id = s.student_id " +
                     "JOIN users u ON s.user_id = u.user_id " +
+                    "LEFT JOIN attendance_counters c ON c.enrollment_id = e.enrollment_id " +
                     "WHERE e.subject_id = ? AND e.academic_year = ? " +
                     "ORDER BY s.roll_number";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, subjectId);
@@ -164,22 +174,13 @@ public class ReportDAO {
                 report.setStudentName(rs.getString("full_name"));
                 report.setRollNumber(rs.getString("roll_number"));
                 report.setEmail(rs.getString("email"));
-                
-                // Get attendance statistics
-                var attendanceStats = attendanceDAO.getAttendanceStatistics(studentId, subjectId, academicYear);
-                if (!attendanceStats.isEmpty()) {
-                    report.setTotalClasses((Integer) attendanceStats.get("totalClasses"));
-                    report.setClassesAttended((Integer) attendanceStats.get("attended"));
-                    report.setClassesAbsent((Integer) attendanceStats.get("absent"));
-                    report.setAttendancePercentage((Double) attendanceStats.get("percentage"));
-                }
+                applyAttendanceCounts(report, rs);
                 
                 reports.add(report);
             }
             
         } catch (SQLException e) {
-            System.err.println("Error generating subject attendance report: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error generating subject attendance report", e);
         }
         
         return reports;
@@ -187,6 +188,7 @@ public class ReportDAO {
     
     /**
      * Generate marks report for all students in a subject
+     * Computes every student's totals in a single grouped query
      * @param subjectId Subject ID
      * @param academicYear Academic year
      * @return List of marks reports
@@ -194,14 +196,19 @@ public class ReportDAO {
     public List<Report> generateSubjectMarksReport(int subjectId, String academicYear) {
         List<Report> reports = new ArrayList<>();
         
-        String sql = "SELECT DISTINCT s.student_id, u.full_name, s.roll_number, u.email " +
+        String sql = "SELECT s.student_id, u.full_name, s.roll_number, u.email, " +
+                    "SUM(m.marks_obtained) as total_obtained, " +
+                    "SUM(m.max_marks) as total_max, " +
+                    "ROUND((SUM(m.marks_obtained) / SUM(m.max_marks)) * 100, 2) as overall_percentage " +
                     "FROM enrollments e " +
                     "JOIN students s ON e.student_id = s.student_id " +
                     "JOIN users u ON s.user_id = u.user_id " +
+                    "LEFT JOIN marks m ON m.enrollment_id = e.enrollment_id " +
                     "WHERE e.subject_id = ? AND e.academic_year = ? " +
+                    "GROUP BY s.student_id, u.full_name, s.roll_number, u.email " +
                     "ORDER BY s.roll_number";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, subjectId);
@@ -215,22 +222,13 @@ public class ReportDAO {
                 report.setStudentName(rs.getString("full_name"));
                 report.setRollNumber(rs.getString("roll_number"));
                 report.setEmail(rs.getString("email"));
-                
-                // Get marks statistics
-                var marksStats = marksDAO.getMarksStatistics(studentId, subjectId, academicYear);
-                if (!marksStats.isEmpty()) {
-                    report.setTotalMarksObtained((Double) marksStats.get("totalObtained"));
-                    report.setTotalMaxMarks((Double) marksStats.get("totalMax"));
-                    report.setOverallPercentage((Double) marksStats.get("percentage"));
-                    report.setOverallGrade((String) marksStats.get("grade"));
-                }
+                applyMarksTotals(report, rs);
                 
                 reports.add(report);
             }
             
         } catch (SQLException e) {
-            System.err.println("Error generating subject marks report: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error generating subject marks report", e);
         }
         
         return reports;
@@ -238,38 +236,212 @@ public class ReportDAO {
     
     /**
      * Get all subjects for a student
+     * Uses three independent queries (student, per-subject totals, assessments)
+     * regardless of how many subjects the student is enrolled in. Up to
+     * reports.parallel.maxPerRequest of them run at once, so the report takes
+     * as long as the slowest query rather than all three in turn.
      * @param studentId Student ID
      * @param academicYear Academic year
-     * @return List of reports for all subjects
+     * @return List of reports for all subjects, in subject code order, empty on database error
      */
     public List<Report> generateStudentAllSubjectsReport(int studentId, String academicYear) {
-        List<Report> reports = new ArrayList<>();
+        try {
+            return queryStudentAllSubjectsReport(studentId, academicYear);
+        } catch (SQLException e) {
+            Log.error("Error generating student all subjects report", e);
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Get all subjects for a student, failing on database errors
+     * Used by report jobs, which must end FAILED rather than with an empty result.
+     * @param studentId Student ID
+     * @param academicYear Academic year
+     * @return List of reports for all subjects, in subject code order
+     * @throws SQLException if any of the queries fails
+     */
+    public List<Report> queryStudentAllSubjectsReport(int studentId, String academicYear) throws SQLException {
+        List<Report> reports;
+        
+        ParallelReads parallelReads = ParallelReads.getInstance();
+        int forks = Math.min(parallelReads.getMaxPerRequest() - 1, 2);
+        
+        // Forked before this thread borrows a connection, see ParallelReads
+        Future<Map<Integer, List<Report.AssessmentMark>>> assessmentsFuture = forks >= 1
+            ? parallelReads.fork(conn -> loadAssessmentMarks(conn, studentId, academicYear)) : null;
+        Future<Report> studentFuture = forks >= 2
+            ? parallelReads.fork(conn -> loadStudentDetails(conn, studentId)) : null;
+        
+        try {
+            Report student = null;
+            Map<Integer, List<Report.AssessmentMark>> assessments = null;
+            
+            try (Connection conn = DBConnection.getReadConnection()) {
+                if (studentFuture == null) {
+                    student = loadStudentDetails(conn, studentId);
+                }
+                reports = loadSubjectTotals(conn, studentId, academicYear);
+                if (assessmentsFuture == null && !reports.isEmpty()) {
+                    assessments = loadAssessmentMarks(conn, studentId, academicYear);
+                }
+            }
+            
+            if (studentFuture != null) {
+                student = ParallelReads.join(studentFuture);
+            }
+            if (assessmentsFuture != null) {
+                assessments = ParallelReads.join(assessmentsFuture);
+            }
+            
+            for (Report report : reports) {
+                report.setStudentName(student.getStudentName());
+                report.setRollNumber(student.getRollNumber());
+                report.setEmail(student.getEmail());
+                report.setSemester(student.getSemester());
+                
+                List<Report.AssessmentMark> marks = assessments != null 
+                    ? assessments.get(report.getSubjectId()) : null;
+                if (marks != null) {
+                    for (Report.AssessmentMark mark : marks) {
+                        report.addAssessmentMark(mark);
+                    }
+                }
+                
+                completeAnalysis(report);
+            }
+            
+        } finally {
+            // No-op for queries that finished; stops the rest if anything above failed
+            cancel(studentFuture);
+            cancel(assessmentsFuture);
+        }
+        
+        return reports;
+    }
+    
+    /**
+     * Load a student's name, roll number, email and semester
+     * @return Report holding the student details, empty if the student does not exist
+     */
+    private Report loadStudentDetails(Connection conn, int studentId) throws SQLException {
+        String sql = "SELECT u.full_name, s.roll_number, u.email, s.semester " +
+                    "FROM students s " +
+                    "JOIN users u ON s.user_id = u.user_id " +
+                    "WHERE s.student_id = ?";
+        
+        Report student = new Report();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            pstmt.setInt(1, studentId);
+            ResultSet rs = pstmt.executeQuery();
+            
+            if (rs.next()) {
+                student.setStudentName(rs.getString("full_name"));
+                student.setRollNumber(rs.getString("roll_number"));
+                student.setEmail(rs.getString("email"));
+                student.setSemester(rs.getInt("semester"));
+            }
+        }
         
-        String sql = "SELECT DISTINCT sub.subject_id, sub.subject_name, sub.subject_code, sub.credits " +
+        return student;
+    }
+    
+    /**
+     * Load attendance and marks totals for each subject a student is enrolled in
+     * @return One report per subject, in subject code order
+     */
+    private List<Report> loadSubjectTotals(Connection conn, int studentId, String academicYear) 
+            throws SQLException {
+        String sql = "SELECT sub.subject_id, sub.subject_name, sub.subject_code, sub.credits, " +
+                    "COALESCE(c.total_count, 0) as total_classes, " +
+                    "COALESCE(c.absent_count, 0) as absent, " +
+                    "COALESCE(c.late_count, 0) as late, " +
+                    "COALESCE(c.excused_count, 0) as excused, " +
+                    "COALESCE(c.present_count + c.late_count + c.excused_count, 0) as attended, " +
+                    "mk.total_obtained, mk.total_max, mk.overall_percentage " +
                     "FROM enrollments e " +
                     "JOIN subjects sub ON e.subject_id = sub.subject_id " +
+                    "LEFT JOIN attendance_counters c ON c.enrollment_id = e.enrollment_id " +
+                    "LEFT JOIN ( " +
+                    "  SELECT m.enrollment_id, SUM(m.marks_obtained) as total_obtained, " +
+                    "  SUM(m.max_marks) as total_max, " +
+                    "  ROUND((SUM(m.marks_obtained) / SUM(m.max_marks)) * 100, 2) as overall_percentage " +
+                    "  FROM marks m " +
+                    "  JOIN enrollments em ON m.enrollment_id = em.enrollment_id " +
+                    "  WHERE em.student_id = ? AND em.academic_year = ? " +
+                    "  GROUP BY m.enrollment_id " +
+                    ") mk ON mk.enrollment_id = e.enrollment_id " +
                     "WHERE e.student_id = ? AND e.academic_year = ? " +
                     "ORDER BY sub.subject_code";
         
-        try (Connection conn = DBConnection.getConnection();
-             PreparedStatement pstmt = conn.prepareStatement(sql)) {
+        List<Report> reports = new ArrayList<>();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+            for (int i = 0; i < 2; i++) {
+                pstmt.setInt(i * 2 + 1, studentId);
+                pstmt.setString(i * 2 + 2, academicYear);
+            }
+            ResultSet rs = pstmt.executeQuery();
             
+            while (rs.next()) {
+                Report report = new Report(studentId, rs.getInt("subject_id"), academicYear, "COMPREHENSIVE");
+                
+                report.setSubjectName(rs.getString("subject_name"));
+                report.setSubjectCode(rs.getString("subject_code"));
+                report.setCredits(rs.getInt("credits"));
+                
+                applyAttendanceCounts(report, rs);
+                applyMarksTotals(report, rs);
+                
+                reports.add(report);
+            }
+        }
+        
+        return reports;
+    }
+    
+    /**
+     * Load a student's assessment marks for an academic year
+     * @return Marks by subject ID, each list in assessment date order
+     */
+    private Map<Integer, List<Report.AssessmentMark>> loadAssessmentMarks(Connection conn, int studentId, 
+                                                                         String academicYear) throws SQLException {
+        String sql = "SELECT e.subject_id, at.type_name, m.marks_obtained, m.max_marks, at.weightage " +
+                    "FROM marks m " +
+                    "JOIN enrollments e ON m.enrollment_id = e.enrollment_id " +
+                    "JOIN assessment_types at ON m.assessment_type_id = at.type_id " +
+                    "WHERE e.student_id = ? AND e.academic_year = ? " +
+                    "ORDER BY e.subject_id, m.assessment_date";
+        
+        Map<Integer, List<Report.AssessmentMark>> marksBySubject = new HashMap<>();
+        
+        try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
             pstmt.setInt(1, studentId);
             pstmt.setString(2, academicYear);
             ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
-                int subjectId = rs.getInt("subject_id");
-                Report report = generateStudentReport(studentId, subjectId, academicYear);
-                reports.add(report);
+                marksBySubject.computeIfAbsent(rs.getInt("subject_id"), id -> new ArrayList<>())
+                    .add(new Report.AssessmentMark(
+                        rs.getString("type_name"),
+                        rs.getDouble("marks_obtained"),
+                        rs.getDouble("max_marks"),
+                        rs.getDouble("weightage")
+                    ));
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error generating student all subjects report: " + e.getMessage());
-            e.printStackTrace();
         }
         
-        return reports;
+        return marksBySubject;
+    }
+    
+    /**
+     * Cancel a forked query whose result is no longer needed
+     */
+    private static void cancel(Future<?> future) {
+        if (future != null) {
+            future.cancel(true);
+        }
     }
     
     /**
@@ -278,57 +450,101 @@ public class ReportDAO {
      * @return List of at-risk student reports
      */
     public List<Report> getAtRiskStudents(String academicYear) {
+        return getAtRiskStudents(academicYear, 0, Integer.MAX_VALUE);
+    }
+    
+    /**
+     * Get a page of at-risk students
+     * Attendance and marks for every enrollment in the year are evaluated in one
+     * scan, so a student who is both below the attendance threshold and failing
+     * appears once per subject with both figures filled in. Risk levels follow
+     * Report.analyzeRiskLevel; attendance or marks not recorded yet are ignored.
+     * @param academicYear Academic year
+     * @param offset Number of at-risk entries to skip
+     * @param limit Maximum number of entries to return
+     * @return List of at-risk student reports ordered by roll number and subject code,
+     *         empty on database error
+     */
+    public List<Report> getAtRiskStudents(String academicYear, int offset, int limit) {
+        try {
+            return queryAtRiskStudents(academicYear, offset, limit);
+        } catch (SQLException e) {
+            Log.error("Error getting at-risk students", e);
+            return new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Get a page of at-risk students, failing on database errors
+     * Used by report jobs, which must end FAILED rather than with an empty result.
+     * @param academicYear Academic year
+     * @param offset Number of at-risk entries to skip
+     * @param limit Maximum number of entries to return
+     * @return List of at-risk student reports ordered by roll number and subject code
+     * @throws SQLException if the query fails
+     */
+    public List<Report> queryAtRiskStudents(String academicYear, int offset, int limit) throws SQLException {
         List<Report> atRiskReports = new ArrayList<>();
         
-        // Get students with low attendance
-        var lowAttendanceStudents = attendanceDAO.getStudentsWithLowAttendance(75.0, academicYear);
+        String sql = "SELECT * FROM ( " +
+                    "  SELECT s.student_id, u.full_name, s.roll_number, u.email, s.semester, " +
+                    "  sub.subject_id, sub.subject_name, sub.subject_code, sub.credits, " +
+                    "  COALESCE(c.total_count, 0) as total_classes, " +
+                    "  COALESCE(c.absent_count, 0) as absent, " +
+                    "  COALESCE(c.late_count, 0) as late, " +
+                    "  COALESCE(c.excused_count, 0) as excused, " +
+                    "  COALESCE(c.present_count + c.late_count + c.excused_count, 0) as attended, " +
+                    "  (c.present_count + c.late_count + c.excused_count) * 100.0 / NULLIF(c.total_count, 0) as attendance_percentage, " +
+                    "  mk.total_obtained, mk.total_max, mk.overall_percentage " +
+                    "  FROM enrollments e " +
+                    "  JOIN students s ON e.student_id = s.student_id " +
+                    "  JOIN users u ON s.user_id = u.user_id " +
+                    "  JOIN subjects sub ON e.subject_id = sub.subject_id " +
+                    "  LEFT JOIN attendance_counters c ON c.enrollment_id = e.enrollment_id " +
+                    "  LEFT JOIN ( " +
+                    "    SELECT m.enrollment_id, SUM(m.marks_obtained) as total_obtained, " +
+                    "    SUM(m.max_marks) as total_max, " +
+                    "    ROUND((SUM(m.marks_obtained) / SUM(m.max_marks)) * 100, 2) as overall_percentage " +
+                    "    FROM marks m " +
+                    "    JOIN enrollments em ON m.enrollment_id = em.enrollment_id " +
+                    "    WHERE em.academic_year = ? " +
+                    "    GROUP BY m.enrollment_id " +
+                    "  ) mk ON mk.enrollment_id = e.enrollment_id " +
+                    "  WHERE e.academic_year = ? " +
+                    ") as enrollment_stats " +
+                    "WHERE attendance_percentage < ? OR overall_percentage < ? " +
+                    "ORDER BY roll_number, subject_code " +
+                    "LIMIT ? OFFSET ?";
         
-        for (var studentData : lowAttendanceStudents) {
-            int studentId = (Integer) studentData.get("studentId");
-            int subjectId = (Integer) studentData.get("subjectId");
-            
-            Report report = new Report(studentId, subjectId, academicYear, "AT_RISK");
-            report.setStudentName((String) studentData.get("fullName"));
-            report.setRollNumber((String) studentData.get("rollNumber"));
-            report.setSubjectName((String) studentData.get("subjectName"));
-            report.setSubjectCode((String) studentData.get("subjectCode"));
-            report.setAttendancePercentage((Double) studentData.get("percentage"));
-            report.setAtRisk(true);
-            report.setRiskLevel("HIGH");
+        try (Connection conn = DBConnection.getReadConnection();
+             PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
-            atRiskReports.add(report);
-        }
-        
-        // Get students with failing grades
-        String sql = "SELECT DISTINCT sub.subject_id FROM subjects WHERE is_active = TRUE";
-        
-        try (Connection conn = DBConnection.getConnection();
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(sql)) {
+            pstmt.setString(1, academicYear);
+            pstmt.setString(2, academicYear);
+            pstmt.setDouble(3, AT_RISK_ATTENDANCE_THRESHOLD);
+            pstmt.setDouble(4, AT_RISK_MARKS_THRESHOLD);
+            pstmt.setInt(5, limit);
+            pstmt.setInt(6, offset);
+            ResultSet rs = pstmt.executeQuery();
             
             while (rs.next()) {
-                int subjectId = rs.getInt("subject_id");
-                var failingStudents = marksDAO.getFailingStudents(subjectId, academicYear);
+                Report report = new Report(rs.getInt("student_id"), rs.getInt("subject_id"),
+                                           academicYear, "AT_RISK");
+                report.setStudentName(rs.getString("full_name"));
+                report.setRollNumber(rs.getString("roll_number"));
+                report.setEmail(rs.getString("email"));
+                report.setSemester(rs.getInt("semester"));
+                report.setSubjectName(rs.getString("subject_name"));
+                report.setSubjectCode(rs.getString("subject_code"));
+                report.setCredits(rs.getInt("credits"));
                 
-                for (var studentData : failingStudents) {
-                    int studentId = (Integer) studentData.get("studentId");
-                    
-                    Report report = new Report(studentId, subjectId, academicYear, "AT_RISK");
-                    report.setStudentName((String) studentData.get("fullName"));
-                    report.setRollNumber((String) studentData.get("rollNumber"));
-                    report.setSubjectName((String) studentData.get("subjectName"));
-                    report.setSubjectCode((String) studentData.get("subjectCode"));
-                    report.setOverallPercentage((Double) studentData.get("percentage"));
-                    report.setAtRisk(true);
-                    report.setRiskLevel("HIGH");
-                    
-                    atRiskReports.add(report);
-                }
+                boolean marksRecorded = rs.getObject("total_max") != null;
+                applyAttendanceCounts(report, rs);
+                applyMarksTotals(report, rs);
+                
+                report.analyzeRiskLevel(report.getTotalClasses() > 0, marksRecorded);
+                atRiskReports.add(report);
             }
-            
-        } catch (SQLException e) {
-            System.err.println("Error getting at-risk students: " + e.getMessage());
-            e.printStackTrace();
         }
         
         return atRiskReports;
@@ -338,28 +554,34 @@ public class ReportDAO {
      * Get subject-wise performance summary
      * @param subjectId Subject ID
      * @param academicYear Academic year
-     * @return Summary statistics map
+     * @return Summary statistics map, shared with the report cache
      */
     public java.util.Map<String, Object> getSubjectPerformanceSummary(int subjectId, String academicYear) {
+        java.util.Map<String, Object> cached = reportCache.getSubjectSummary(subjectId, academicYear);
+        if (cached != null) {
+            return cached;
+        }
+        
+        long loadStart = reportCache.startLoad();
         java.util.Map<String, Object> summary = new java.util.HashMap<>();
         
         String sql = "SELECT " +
-                    "COUNT(DISTINCT e.student_id) as total_students, " +
+                    "COUNT(DISTINCT student_id) as total_students, " +
                     "AVG(attendance_percentage) as avg_attendance, " +
                     "AVG(marks_percentage) as avg_marks, " +
                     "SUM(CASE WHEN marks_percentage >= 40 THEN 1 ELSE 0 END) as passed, " +
                     "SUM(CASE WHEN marks_percentage < 40 THEN 1 ELSE 0 END) as failed " +
                     "FROM ( " +
                     "  SELECT e.student_id, " +
-                    "  (SELECT ROUND((SUM(CASE WHEN a.status IN ('PRESENT', 'LATE', 'EXCUSED') THEN 1 ELSE 0 END) / COUNT(*)) * 100, 2) " +
-                    "   FROM attendance a WHERE a.enrollment_id = e.enrollment_id) as attendance_percentage, " +
+                    "  ROUND((c.present_count + c.late_count + c.excused_count) * 100.0 / NULLIF(c.total_count, 0), 2) as attendance_percentage, " +
                     "  (SELECT ROUND((SUM(m.marks_obtained) / SUM(m.max_marks)) * 100, 2) " +
                     "   FROM marks m WHERE m.enrollment_id = e.enrollment_id) as marks_percentage " +
                     "  FROM enrollments e " +
+                    "  LEFT JOIN attendance_counters c ON c.enrollment_id = e.enrollment_id " +
                     "  WHERE e.subject_id = ? AND e.academic_year = ? " +
                     ") as student_stats";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, subjectId);
@@ -379,9 +601,10 @@ public class ReportDAO {
                 summary.put("passPercentage", passPercentage);
             }
             
+            reportCache.putSubjectSummary(subjectId, academicYear, summary, loadStart);
+            
         } catch (SQLException e) {
-            System.err.println("Error getting subject performance summary: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting subject performance summary", e);
         }
         
         return summary;
@@ -411,7 +634,7 @@ public class ReportDAO {
                     "GROUP BY a.attendance_date " +
                     "ORDER BY a.attendance_date";
         
-        try (Connection conn = DBConnection.getConnection();
+        try (Connection conn = DBConnection.getReadConnection();
              PreparedStatement pstmt = conn.prepareStatement(sql)) {
             
             pstmt.setInt(1, subjectId);
@@ -432,10 +655,51 @@ public class ReportDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting date range attendance summary: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting date range attendance summary", e);
         }
         
         return dailyStats;
     }
+    
+    /**
+     * Copy grouped attendance counts from the current row into a report
+     * Expects total_classes, absent, late, excused and attended columns
+     */
+    private void applyAttendanceCounts(Report report, ResultSet rs) throws SQLException {
+        report.setTotalClasses(rs.getInt("total_classes"));
+        report.setClassesAttended(rs.getInt("attended"));
+        report.setClassesAbsent(rs.getInt("absent"));
+        report.setClassesLate(rs.getInt("late"));
+        report.setClassesExcused(rs.getInt("excused"));
+        report.calculateAttendancePercentage();
+    }
+    
+    /**
+     * Copy grouped marks totals from the current row into a report
+     * Expects total_obtained, total_max and overall_percentage columns
+     */
+    private void applyMarksTotals(Report report, ResultSet rs) throws SQLException {
+        report.setTotalMarksObtained(rs.getDouble("total_obtained"));
+        report.setTotalMaxMarks(rs.getDouble("total_max"));
+        report.setOverallPercentage(rs.getDouble("overall_percentage"));
+        report.calculateOverallGrade();
+    }
+    
+    /**
+     * Set performance level, risk level and insights once statistics are filled in
+     */
+    private void completeAnalysis(Report report) {
+        if (report.getOverallPercentage() >= 80) {
+            report.setPerformanceLevel("Excellent");
+        } else if (report.getOverallPercentage() >= 60) {
+            report.setPerformanceLevel("Good");
+        } else if (report.getOverallPercentage() >= 40) {
+            report.setPerformanceLevel("Average");
+        } else {
+            report.setPerformanceLevel("Poor");
+        }
+        
+        report.analyzeRiskLevel();
+        report.generateInsights();
+    }
 }
@@ -3,6 +3,7 @@ package dao;
 import config.DBConnection;
 import model.User;
 import model.User.UserRole;
+import utils.Log;
 import utils.PasswordUtil;
 
 import java.sql.*;
@@ -45,8 +46,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error authenticating user: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error authenticating user", e);
         }
         
         return null;
@@ -83,8 +83,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error creating user: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error creating user", e);
         }
         
         return false;
@@ -109,8 +108,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting user by ID: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting user by ID", e);
         }
         
         return null;
@@ -135,8 +133,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting user by email: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting user by email", e);
         }
         
         return null;
@@ -163,8 +160,7 @@ public class UserDAO {
             return pstmt.executeUpdate() > 0;
             
         } catch (SQLException e) {
-            System.err.println("Error updating user: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error updating user", e);
         }
         
         return false;
@@ -189,8 +185,7 @@ public class UserDAO {
             return pstmt.executeUpdate() > 0;
             
         } catch (SQLException e) {
-            System.err.println("Error updating password: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error updating password", e);
         }
         
         return false;
@@ -210,7 +205,7 @@ public class UserDAO {
             pstmt.executeUpdate();
             
         } catch (SQLException e) {
-            System.err.println("Error updating last login: " + e.getMessage());
+            Log.error("Error updating last login", e);
         }
     }
     
@@ -229,8 +224,7 @@ public class UserDAO {
             return pstmt.executeUpdate() > 0;
             
         } catch (SQLException e) {
-            System.err.println("Error deleting user: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error deleting user", e);
         }
         
         return false;
@@ -256,8 +250,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting users by role: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting users by role", e);
         }
         
         return users;
@@ -280,8 +273,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting all users: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting all users", e);
         }
         
         return users;
@@ -306,8 +298,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error checking email existence: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error checking email existence", e);
         }
         
         return false;
@@ -332,8 +323,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error getting user count: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error getting user count", e);
         }
         
         return 0;
@@ -363,8 +353,7 @@ public class UserDAO {
             }
             
         } catch (SQLException e) {
-            System.err.println("Error searching users: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error searching users", e);
         }
         
         return users;
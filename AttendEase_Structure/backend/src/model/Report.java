@@ -416,9 +416,18 @@ public class Report {
      * Analyze risk level based on attendance and marks
      */
     public void analyzeRiskLevel() {
-        boolean lowAttendance = attendancePercentage < 75;
-        boolean failingGrades = overallPercentage < 40;
-        boolean poorPerformance = overallPercentage < 50;
+        analyzeRiskLevel(true, true);
+    }
+    
+    /**
+     * Analyze risk level, ignoring attendance or marks that have not been recorded yet
+     * @param attendanceRecorded Whether any attendance has been taken
+     * @param marksRecorded Whether any marks have been entered
+     */
+    public void analyzeRiskLevel(boolean attendanceRecorded, boolean marksRecorded) {
+        boolean lowAttendance = attendanceRecorded && attendancePercentage < 75;
+        boolean failingGrades = marksRecorded && overallPercentage < 40;
+        boolean poorPerformance = marksRecorded && overallPercentage < 50;
         
         if (failingGrades || (lowAttendance && poorPerformance)) {
             this.isAtRisk = true;
@@ -426,7 +435,8 @@ public class Report {
         } else if (lowAttendance || poorPerformance) {
             this.isAtRisk = true;
             this.riskLevel = "MEDIUM";
-        } else if (attendancePercentage < 85 || overallPercentage < 60) {
+        } else if ((attendanceRecorded && attendancePercentage < 85)
+                || (marksRecorded && overallPercentage < 60)) {
             this.isAtRisk = false;
             this.riskLevel = "LOW";
         } else {
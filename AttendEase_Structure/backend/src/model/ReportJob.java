@@ -0,0 +1,165 @@
+package model;
+
+import java.io.File;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Future;
+
+/**
+ * Report Job Model Class for AttendEase
+ * Tracks a report that is generated in the background and downloaded later
+ */
+public class ReportJob {
+
+    // Job status enum
+    public enum JobStatus {
+        QUEUED, RUNNING, COMPLETED, FAILED, CANCELLED;
+
+        public boolean isFinished() {
+            return this == COMPLETED || this == FAILED || this == CANCELLED;
+        }
+    }
+
+    // Job attributes
+    private final String jobId;
+    private final String jobType;
+    private final int userId;
+    private final String contentType;
+    private final String fileName;
+    private final long submittedAt;
+
+    // Progress, written by the worker and read by polling requests
+    private volatile JobStatus status = JobStatus.QUEUED;
+    private volatile long startedAt;
+    private volatile long finishedAt;
+    private volatile String errorMessage;
+    private volatile File resultFile;
+    private volatile Future<?> future;
+
+    /**
+     * Create a queued job
+     * @param jobId Job ID
+     * @param jobType Report action the job runs
+     * @param userId User who submitted the job
+     * @param contentType Content type of the result
+     * @param fileName File name the result is downloaded as
+     */
+    public ReportJob(String jobId, String jobType, int userId, String contentType, String fileName) {
+        this.jobId = jobId;
+        this.jobType = jobType;
+        this.userId = userId;
+        this.contentType = contentType;
+        this.fileName = fileName;
+        this.submittedAt = System.currentTimeMillis();
+    }
+
+    // Getters and Setters
+
+    public String getJobId() {
+        return jobId;
+    }
+
+    public String getJobType() {
+        return jobType;
+    }
+
+    public int getUserId() {
+        return userId;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public JobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(JobStatus status) {
+        this.status = status;
+    }
+
+    public long getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(long startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public long getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(long finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getErrorMessage() {
+        return errorMessage;
+    }
+
+    public void setErrorMessage(String errorMessage) {
+        this.errorMessage = errorMessage;
+    }
+
+    public File getResultFile() {
+        return resultFile;
+    }
+
+    public void setResultFile(File resultFile) {
+        this.resultFile = resultFile;
+    }
+
+    public Future<?> getFuture() {
+        return future;
+    }
+
+    public void setFuture(Future<?> future) {
+        this.future = future;
+    }
+
+    /**
+     * Job state for status responses
+     * @return Map with status and timings
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("jobId", jobId);
+        map.put("type", jobType);
+        map.put("status", status.name());
+        map.put("submittedAt", submittedAt);
+        if (startedAt > 0) {
+            map.put("startedAt", startedAt);
+        }
+        if (finishedAt > 0) {
+            map.put("finishedAt", finishedAt);
+        }
+        if (errorMessage != null) {
+            map.put("error", errorMessage);
+        }
+        if (status == JobStatus.COMPLETED) {
+            map.put("fileName", fileName);
+            map.put("contentType", contentType);
+        }
+        return map;
+    }
+
+    @Override
+    public String toString() {
+        return "ReportJob{" +
+                "jobId='" + jobId + '\'' +
+                ", jobType='" + jobType + '\'' +
+                ", userId=" + userId +
+                ", status=" + status +
+                '}';
+    }
+}
@@ -0,0 +1,40 @@
+package servlet;
+
+import config.DBConnection;
+import dao.AttendanceWriteBuffer;
+import dao.ParallelReads;
+import utils.AsyncLogger;
+import utils.ReportJobQueue;
+import utils.RequestExecutor;
+
+import javax.servlet.ServletContextEvent;
+import javax.servlet.ServletContextListener;
+import javax.servlet.annotation.WebListener;
+
+/**
+ * Application lifecycle listener for AttendEase
+ * Flushes buffered writes, stops background report jobs, closes database
+ * pools and writes out buffered log events when the application stops
+ */
+@WebListener
+public class AppContextListener implements ServletContextListener {
+    
+    @Override
+    public void contextInitialized(ServletContextEvent sce) {
+        System.out.println("AttendEase application started");
+    }
+    
+    @Override
+    public void contextDestroyed(ServletContextEvent sce) {
+        // Let requests running off the container threads finish first
+        RequestExecutor.shutdownInstance();
+        ReportJobQueue.shutdownInstance();
+        ParallelReads.shutdownInstance();
+        // Drain queued attendance marks before the pool they are written through goes away
+        AttendanceWriteBuffer.shutdownInstance();
+        DBConnection.closeConnection();
+        // Last, so everything logged while stopping is written out
+        AsyncLogger.shutdownInstance();
+        System.out.println("AttendEase application stopped");
+    }
+}
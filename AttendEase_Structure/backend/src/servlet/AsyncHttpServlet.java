@@ -0,0 +1,160 @@
+package servlet;
+
+import utils.Bulkhead;
+import utils.Log;
+import utils.MetricsRegistry;
+import utils.QueryTrace;
+import utils.RequestExecutor;
+import utils.Workload;
+
+import javax.servlet.AsyncContext;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+
+/**
+ * Base servlet that isolates workload classes and can handle requests off
+ * the container threads
+ * Each request is classified by workloadOf() and admitted through the
+ * bulkhead of its class; a saturated class gets 503 with Retry-After while
+ * the others carry on. When servlet.async.enabled is set, requests are put
+ * in async mode and handled by RequestExecutor, on a virtual thread where
+ * available, so the container thread returns to the pool straight away
+ * instead of blocking on JDBC. Latency, status and response size of every
+ * request are recorded in MetricsRegistry by servlet and action, together
+ * with a QueryTrace of the queries it ran.
+ *
+ * Subclasses must be registered with asyncSupported = true.
+ */
+public abstract class AsyncHttpServlet extends HttpServlet {
+
+    // Seconds a client is asked to wait when no bulkhead applies
+    private static final int DEFAULT_RETRY_AFTER_SECONDS = 1;
+
+    @Override
+    protected void service(HttpServletRequest request, HttpServletResponse httpResponse)
+            throws ServletException, IOException {
+
+        long start = System.nanoTime();
+        MeteredResponse response = new MeteredResponse(httpResponse);
+        Workload workload = workloadOf(request);
+        Bulkhead bulkhead = Bulkhead.isEnabled() ? Bulkhead.forWorkload(workload) : null;
+
+        if (!RequestExecutor.isEnabled() || !request.isAsyncSupported() || !runsAsync(request)) {
+            if (bulkhead != null && !bulkhead.tryEnter()) {
+                sendBusy(response, bulkhead);
+                recordMetrics(request, response, start, null);
+                return;
+            }
+            QueryTrace trace = QueryTrace.isEnabled() ? new QueryTrace() : null;
+            Workload previous = Workload.enter(workload);
+            QueryTrace previousTrace = QueryTrace.enter(trace);
+            try {
+                super.service(request, response);
+            } finally {
+                QueryTrace.restore(previousTrace);
+                Workload.restore(previous);
+                if (bulkhead != null) {
+                    bulkhead.exit();
+                }
+                recordMetrics(request, response, start, trace);
+            }
+            return;
+        }
+
+        AsyncContext asyncContext = request.startAsync();
+        // Exports can stream for minutes; the acquire timeout bounds waiting instead
+        asyncContext.setTimeout(0);
+
+        RequestExecutor.getInstance().execute(bulkhead,
+            () -> handle(asyncContext, workload, request, response, start),
+            () -> reject(asyncContext, request, response, bulkhead, start)
+        );
+    }
+
+    /**
+     * Workload class of a request, used to pick its bulkhead
+     */
+    protected Workload workloadOf(HttpServletRequest request) {
+        return Workload.READ;
+    }
+
+    /**
+     * Whether a request may be handled asynchronously
+     * Requests that forward or include must stay on the container thread.
+     */
+    protected boolean runsAsync(HttpServletRequest request) {
+        return true;
+    }
+
+    /**
+     * Handle a request on an executor thread and complete it
+     */
+    private void handle(AsyncContext asyncContext, Workload workload, HttpServletRequest request,
+                        MeteredResponse response, long start) {
+        QueryTrace trace = QueryTrace.isEnabled() ? new QueryTrace() : null;
+        Workload previous = Workload.enter(workload);
+        QueryTrace previousTrace = QueryTrace.enter(trace);
+        try {
+            super.service(request, response);
+
+        } catch (Exception e) {
+            Log.error("Error handling async request", e);
+            try {
+                if (!response.isCommitted()) {
+                    response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, "Error processing request");
+                }
+            } catch (IOException ex) {
+                // Client went away
+            }
+
+        } finally {
+            QueryTrace.restore(previousTrace);
+            Workload.restore(previous);
+            recordMetrics(request, response, start, trace);
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * Turn an async request away and complete it
+     */
+    private void reject(AsyncContext asyncContext, HttpServletRequest request, MeteredResponse response,
+                        Bulkhead bulkhead, long start) {
+        try {
+            sendBusy(response, bulkhead);
+        } catch (IOException e) {
+            // Client went away
+        } finally {
+            recordMetrics(request, response, start, null);
+            asyncContext.complete();
+        }
+    }
+
+    /**
+     * Record latency, status, response size and queries of a finished request
+     */
+    private void recordMetrics(HttpServletRequest request, MeteredResponse response, long start,
+                               QueryTrace trace) {
+        long elapsed = System.nanoTime() - start;
+        String servlet = getClass().getSimpleName();
+        String action = request.getParameter("action");
+
+        MetricsRegistry.getInstance().recordRequest(servlet, action, response.getStatus(), elapsed,
+                                                    response.getBytesWritten(), trace);
+        if (trace != null) {
+            trace.log(servlet + " " + request.getMethod() + (action != null ? " action=" + action : ""), elapsed);
+        }
+    }
+
+    /**
+     * Send 503 with Retry-After
+     */
+    private void sendBusy(HttpServletResponse response, Bulkhead bulkhead) throws IOException {
+        int retryAfter = bulkhead != null ? bulkhead.getRetryAfterSeconds() : DEFAULT_RETRY_AFTER_SECONDS;
+        response.setHeader("Retry-After", String.valueOf(retryAfter));
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE, "Server busy, try again shortly");
+    }
+}
@@ -2,7 +2,9 @@ package servlet;
 
 import dao.UserDAO;
 import model.User;
+import utils.Log;
 import utils.PasswordUtil;
+import utils.Workload;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -15,8 +17,8 @@ import org.json.JSONObject;
  * Login Servlet for AttendEase
  * Handles user authentication and session management
  */
-@WebServlet("/login")
-public class LoginServlet extends HttpServlet {
+@WebServlet(value = "/login", asyncSupported = true)
+public class LoginServlet extends AsyncHttpServlet {
     
     private UserDAO userDAO;
     
@@ -26,6 +28,19 @@ public class LoginServlet extends HttpServlet {
         userDAO = new UserDAO();
     }
     
+    @Override
+    protected Workload workloadOf(HttpServletRequest request) {
+        return Workload.AUTH;
+    }
+    
+    /**
+     * Only logins run async, the login page is forwarded on the container thread
+     */
+    @Override
+    protected boolean runsAsync(HttpServletRequest request) {
+        return "POST".equals(request.getMethod());
+    }
+    
     /**
      * Handle GET request - Show login page
      */
@@ -98,7 +113,7 @@ public class LoginServlet extends HttpServlet {
                 }
                 
                 // Log login activity
-                System.out.println("User logged in: " + user.getEmail() + " (Role: " + user.getRoleString() + ")");
+                Log.info("User logged in", "email", user.getEmail(), "role", user.getRoleString());
                 
                 // Prepare success response
                 JSONObject jsonResponse = new JSONObject();
@@ -122,7 +137,7 @@ public class LoginServlet extends HttpServlet {
                 // Authentication failed
                 
                 // Log failed login attempt
-                System.out.println("Failed login attempt for: " + email);
+                Log.warn("Failed login attempt", "email", email);
                 
                 JSONObject jsonResponse = new JSONObject();
                 jsonResponse.put("success", false);
@@ -131,8 +146,7 @@ public class LoginServlet extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("Error in LoginServlet: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error in LoginServlet", e);
             
             JSONObject jsonResponse = new JSONObject();
             jsonResponse.put("success", false);
@@ -2,6 +2,9 @@ package servlet;
 
 import dao.MarksDAO;
 import model.Marks;
+import utils.JsonUtil;
+import utils.Log;
+import utils.Workload;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
@@ -19,8 +22,8 @@ import org.json.JSONArray;
  * Marks Servlet for AttendEase
  * Handles marks entry and retrieval operations
  */
-@WebServlet("/marks")
-public class MarksServlet extends HttpServlet {
+@WebServlet(value = "/marks", asyncSupported = true)
+public class MarksServlet extends AsyncHttpServlet {
     
     private MarksDAO marksDAO;
     
@@ -30,6 +33,14 @@ public class MarksServlet extends HttpServlet {
         marksDAO = new MarksDAO();
     }
     
+    /**
+     * Reads go to the read bulkhead, adds, updates and deletes to the write bulkhead
+     */
+    @Override
+    protected Workload workloadOf(HttpServletRequest request) {
+        return "GET".equals(request.getMethod()) ? Workload.READ : Workload.WRITE;
+    }
+    
     /**
      * Handle GET request - Retrieve marks data
      */
@@ -85,8 +96,7 @@ public class MarksServlet extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("Error in MarksServlet GET: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error in MarksServlet GET", e);
             sendErrorResponse(out, "Internal server error", 500);
         }
     }
@@ -142,8 +152,7 @@ public class MarksServlet extends HttpServlet {
             }
             
         } catch (Exception e) {
-            System.err.println("Error in MarksServlet POST: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error in MarksServlet POST", e);
             sendErrorResponse(out, "Internal server error", 500);
         }
     }
@@ -187,7 +196,7 @@ public class MarksServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error in MarksServlet DELETE: " + e.getMessage());
+            Log.error("Error in MarksServlet DELETE", e);
             sendErrorResponse(out, "Internal server error", 500);
         }
     }
@@ -211,13 +220,10 @@ public class MarksServlet extends HttpServlet {
             
             List<Marks> marksList = marksDAO.getMarksByStudent(studentId, subjectId, academicYear);
             
-            JSONObject jsonResponse = new JSONObject();
-            jsonResponse.put("success", true);
-            jsonResponse.put("data", convertMarksListToJSON(marksList));
-            out.print(jsonResponse.toString());
+            JsonUtil.writeMarksListResponse(marksList, out);
             
         } catch (Exception e) {
-            System.err.println("Error getting marks by student: " + e.getMessage());
+            Log.error("Error getting marks by student", e);
             sendErrorResponse(out, "Error retrieving marks", 500);
         }
     }
@@ -243,13 +249,10 @@ public class MarksServlet extends HttpServlet {
                 subjectId, assessmentTypeId, academicYear
             );
             
-            JSONObject jsonResponse = new JSONObject();
-            jsonResponse.put("success", true);
-            jsonResponse.put("data", convertMarksListToJSON(marksList));
-            out.print(jsonResponse.toString());
+            JsonUtil.writeMarksListResponse(marksList, out);
             
         } catch (Exception e) {
-            System.err.println("Error getting marks: " + e.getMessage());
+            Log.error("Error getting marks", e);
             sendErrorResponse(out, "Error retrieving marks", 500);
         }
     }
@@ -281,7 +284,7 @@ public class MarksServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error getting marks statistics: " + e.getMessage());
+            Log.error("Error getting marks statistics", e);
             sendErrorResponse(out, "Error retrieving statistics", 500);
         }
     }
@@ -311,7 +314,7 @@ public class MarksServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error getting weighted marks: " + e.getMessage());
+            Log.error("Error getting weighted marks", e);
             sendErrorResponse(out, "Error retrieving weighted marks", 500);
         }
     }
@@ -340,7 +343,7 @@ public class MarksServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error getting failing students: " + e.getMessage());
+            Log.error("Error getting failing students", e);
             sendErrorResponse(out, "Error retrieving data", 500);
         }
     }
@@ -371,7 +374,7 @@ public class MarksServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error getting top performers: " + e.getMessage());
+            Log.error("Error getting top performers", e);
             sendErrorResponse(out, "Error retrieving data", 500);
         }
     }
@@ -412,7 +415,7 @@ public class MarksServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error adding marks: " + e.getMessage());
+            Log.error("Error adding marks", e);
             sendErrorResponse(out, "Error adding marks", 500);
         }
     }
@@ -456,7 +459,7 @@ public class MarksServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error adding bulk marks: " + e.getMessage());
+            Log.error("Error adding bulk marks", e);
             sendErrorResponse(out, "Error adding bulk marks", 500);
         }
     }
@@ -496,41 +499,11 @@ public class MarksServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error updating marks: " + e.getMessage());
+            Log.error("Error updating marks", e);
             sendErrorResponse(out, "Error updating marks", 500);
         }
     }
     
-    /**
-     * Convert marks list to JSON
-     */
-    private JSONArray convertMarksListToJSON(List<Marks> marksList) {
-        JSONArray jsonArray = new JSONArray();
-        
-        for (Marks marks : marksList) {
-            JSONObject jsonObj = new JSONObject();
-            jsonObj.put("markId", marks.getMarkId());
-            jsonObj.put("enrollmentId", marks.getEnrollmentId());
-            jsonObj.put("assessmentTypeId", marks.getAssessmentTypeId());
-            jsonObj.put("assessmentTypeName", marks.getAssessmentTypeName());
-            jsonObj.put("maxMarks", marks.getMaxMarks());
-            jsonObj.put("marksObtained", marks.getMarksObtained());
-            jsonObj.put("percentage", marks.getPercentage());
-            jsonObj.put("grade", marks.calculateGrade());
-            jsonObj.put("date", marks.getAssessmentDate() != null ? 
-                marks.getAssessmentDate().toString() : null);
-            jsonObj.put("studentName", marks.getStudentName());
-            jsonObj.put("rollNumber", marks.getRollNumber());
-            jsonObj.put("subjectName", marks.getSubjectName());
-            jsonObj.put("subjectCode", marks.getSubjectCode());
-            jsonObj.put("remarks", marks.getRemarks());
-            
-            jsonArray.put(jsonObj);
-        }
-        
-        return jsonArray;
-    }
-    
     /**
      * Send error response
      */
@@ -0,0 +1,105 @@
+package servlet;
+
+import javax.servlet.ServletOutputStream;
+import javax.servlet.WriteListener;
+import javax.servlet.http.HttpServletResponse;
+import javax.servlet.http.HttpServletResponseWrapper;
+import java.io.FilterWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+
+/**
+ * Response wrapper that counts the body written, for request metrics
+ * Bytes are counted for the output stream and characters for the writer,
+ * which matches the encoded size for the mostly ASCII JSON and CSV bodies.
+ */
+class MeteredResponse extends HttpServletResponseWrapper {
+
+    private long written;
+    private ServletOutputStream outputStream;
+    private PrintWriter writer;
+
+    MeteredResponse(HttpServletResponse response) {
+        super(response);
+    }
+
+    /**
+     * Size of the body written so far
+     */
+    long getBytesWritten() {
+        return written;
+    }
+
+    @Override
+    public ServletOutputStream getOutputStream() throws IOException {
+        if (outputStream == null) {
+            ServletOutputStream out = super.getOutputStream();
+            outputStream = new ServletOutputStream() {
+                @Override
+                public void write(int b) throws IOException {
+                    out.write(b);
+                    written++;
+                }
+
+                @Override
+                public void write(byte[] b, int off, int len) throws IOException {
+                    out.write(b, off, len);
+                    written += len;
+                }
+
+                @Override
+                public void flush() throws IOException {
+                    out.flush();
+                }
+
+                @Override
+                public void close() throws IOException {
+                    out.close();
+                }
+
+                @Override
+                public boolean isReady() {
+                    return out.isReady();
+                }
+
+                @Override
+                public void setWriteListener(WriteListener listener) {
+                    out.setWriteListener(listener);
+                }
+            };
+        }
+        return outputStream;
+    }
+
+    @Override
+    public PrintWriter getWriter() throws IOException {
+        if (writer == null) {
+            writer = new PrintWriter(new FilterWriter(super.getWriter()) {
+                @Override
+                public void write(int c) throws IOException {
+                    out.write(c);
+                    written++;
+                }
+
+                @Override
+                public void write(char[] cbuf, int off, int len) throws IOException {
+                    out.write(cbuf, off, len);
+                    written += len;
+                }
+
+                @Override
+                public void write(String str, int off, int len) throws IOException {
+                    out.write(str, off, len);
+                    written += len;
+                }
+            });
+        }
+        return writer;
+    }
+
+    @Override
+    public void reset() {
+        super.reset();
+        written = 0;
+    }
+}
@@ -0,0 +1,97 @@
+package servlet;
+
+import config.DBConnection;
+import dao.AttendanceWriteBuffer;
+import dao.ParallelReads;
+import dao.ReportCache;
+import utils.AsyncLogger;
+import utils.Bulkhead;
+import utils.MetricsRegistry;
+import utils.ReportJobQueue;
+import utils.RequestExecutor;
+
+import javax.servlet.ServletException;
+import javax.servlet.annotation.WebServlet;
+import javax.servlet.http.HttpServlet;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Metrics Servlet for AttendEase
+ * Exposes request, query and component metrics in the Prometheus text format.
+ * Only addresses listed in metrics.allowedAddresses may scrape it
+ * (localhost by default, * for any).
+ */
+@WebServlet("/metrics")
+public class MetricsServlet extends HttpServlet {
+
+    private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+    private Set<String> allowedAddresses;
+
+    @Override
+    public void init() throws ServletException {
+        super.init();
+        allowedAddresses = new HashSet<>(Arrays.asList(DBConnection.getSetting(
+            "metrics.allowedAddresses", "127.0.0.1,0:0:0:0:0:0:0:1,::1").split("\\s*,\\s*")));
+    }
+
+    /**
+     * Handle GET request - Write all metrics
+     */
+    @Override
+    protected void doGet(HttpServletRequest request, HttpServletResponse response)
+            throws ServletException, IOException {
+
+        if (!allowedAddresses.contains("*") && !allowedAddresses.contains(request.getRemoteAddr())) {
+            response.sendError(HttpServletResponse.SC_FORBIDDEN, "Forbidden");
+            return;
+        }
+
+        response.setContentType(CONTENT_TYPE);
+        Writer out = new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8);
+
+        MetricsRegistry.getInstance().writeTo(out);
+
+        Map<String, Map<String, Object>> pools = new LinkedHashMap<>();
+        pools.put("pool=\"primary\"", DBConnection.getPoolStatistics());
+        pools.put("pool=\"replica\"", DBConnection.getReplicaStatistics());
+        pools.put("pool=\"report\"", DBConnection.getReportPoolStatistics());
+        MetricsRegistry.writeStatistics(out, "db_pool", pools);
+
+        Map<String, Map<String, Object>> bulkheads = new LinkedHashMap<>();
+        for (Map.Entry<String, Object> entry : Bulkhead.getAllStatistics().entrySet()) {
+            @SuppressWarnings("unchecked")
+            Map<String, Object> stats = (Map<String, Object>) entry.getValue();
+            bulkheads.put("workload=\"" + entry.getKey() + "\"", stats);
+        }
+        MetricsRegistry.writeStatistics(out, "bulkhead", bulkheads);
+
+        writeComponent(out, "request_executor", RequestExecutor.getInstanceStatistics());
+        writeComponent(out, "report_cache", ReportCache.getInstance().getStatistics());
+        writeComponent(out, "report_coalescing", ReportServlet.getCoalescingStatistics());
+        writeComponent(out, "report_jobs", ReportJobQueue.getInstanceStatistics());
+        writeComponent(out, "parallel_reads", ParallelReads.getInstanceStatistics());
+        writeComponent(out, "attendance_write_buffer", AttendanceWriteBuffer.getInstanceStatistics());
+        writeComponent(out, "logging", AsyncLogger.getInstanceStatistics());
+
+        out.flush();
+    }
+
+    /**
+     * Write statistics of a component without labels
+     */
+    private void writeComponent(Writer out, String component, Map<String, Object> stats) throws IOException {
+        MetricsRegistry.writeStatistics(out, component, Collections.singletonMap("", stats));
+    }
+}
@@ -1,35 +1,73 @@
 package servlet;
 
+import config.DBConnection;
+import dao.AttendanceDAO;
 import dao.ReportDAO;
 import model.Report;
+import model.ReportJob;
+import utils.CsvEncoder;
 import utils.ExportUtil;
+import utils.JsonUtil;
+import utils.Log;
+import utils.ReportJobQueue;
+import utils.SingleFlight;
+import utils.Workload;
 
 import javax.servlet.ServletException;
 import javax.servlet.annotation.WebServlet;
 import javax.servlet.http.*;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
-import java.io.File;
-import java.io.FileInputStream;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
 import org.json.JSONObject;
-import org.json.JSONArray;
 
 /**
  * Report Servlet for AttendEase
  * Handles report generation and export operations
  */
-@WebServlet("/reports")
-public class ReportServlet extends HttpServlet {
+@WebServlet(value = "/reports", asyncSupported = true)
+public class ReportServlet extends AsyncHttpServlet {
+    
+    // Identical report requests in flight at the same time share one computation
+    private static final SingleFlight reportRequests = 
+        new SingleFlight(DBConnection.getBooleanSetting("reports.coalescing.enabled", true));
+    
+    // Actions that scan whole subjects or years run in the report bulkhead
+    private static final Set<String> HEAVY_ACTIONS = new HashSet<>(Arrays.asList(
+        "generateSubjectAttendance", "generateSubjectMarks", "generateAllSubjects",
+        "getAtRiskStudents", "exportAttendanceCSV"
+    ));
     
     private ReportDAO reportDAO;
+    private AttendanceDAO attendanceDAO;
     
     @Override
     public void init() throws ServletException {
         super.init();
         reportDAO = new ReportDAO();
+        attendanceDAO = new AttendanceDAO();
+    }
+    
+    /**
+     * Heavy reports go to the report bulkhead. Single-student reports, subject
+     * summaries and their exports stay in the read bulkhead with job polling:
+     * they are mostly served from the report cache or a shared computation and
+     * read on one connection, so they should not queue behind heavy reports.
+     */
+    @Override
+    protected Workload workloadOf(HttpServletRequest request) {
+        return HEAVY_ACTIONS.contains(request.getParameter("action")) ? Workload.REPORT : Workload.READ;
     }
     
     /**
@@ -87,18 +125,45 @@ public class ReportServlet extends HttpServlet {
                     exportReportText(request, response);
                     break;
                     
+                case "exportAttendanceCSV":
+                    exportAttendanceCSV(request, response);
+                    break;
+                    
+                case "submitJob":
+                    submitReportJob(request, response, session);
+                    break;
+                    
+                case "jobStatus":
+                    getReportJobStatus(request, response, session);
+                    break;
+                    
+                case "jobResult":
+                    downloadReportJob(request, response, session);
+                    break;
+                    
+                case "cancelJob":
+                    cancelReportJob(request, response, session);
+                    break;
+                    
                 default:
                     response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Invalid action");
             }
             
         } catch (Exception e) {
-            System.err.println("Error in ReportServlet: " + e.getMessage());
-            e.printStackTrace();
+            Log.error("Error in ReportServlet", e);
             response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 
                 "Error generating report");
         }
     }
     
+    /**
+     * Get statistics on coalesced report requests
+     * @return Map with executions and coalesced request counts
+     */
+    public static Map<String, Object> getCoalescingStatistics() {
+        return reportRequests.getStatistics();
+    }
+    
     /**
      * Generate student report
      */
@@ -122,15 +187,12 @@ public class ReportServlet extends HttpServlet {
             int studentId = Integer.parseInt(studentIdStr);
             int subjectId = Integer.parseInt(subjectIdStr);
             
-            Report report = reportDAO.generateStudentReport(studentId, subjectId, academicYear);
+            Report report = studentReport(studentId, subjectId, academicYear);
             
-            JSONObject jsonResponse = new JSONObject();
-            jsonResponse.put("success", true);
-            jsonResponse.put("data", convertReportToJSON(report));
-            out.print(jsonResponse.toString());
+            JsonUtil.writeReportResponse(report, out);
             
         } catch (Exception e) {
-            System.err.println("Error generating student report: " + e.getMessage());
+            Log.error("Error generating student report", e);
             sendErrorResponse(out, "Error generating report", 500);
         }
     }
@@ -156,17 +218,15 @@ public class ReportServlet extends HttpServlet {
             
             int subjectId = Integer.parseInt(subjectIdStr);
             
-            List<Report> reports = reportDAO.generateSubjectAttendanceReport(
-                subjectId, academicYear
+            List<Report> reports = reportRequests.execute(
+                requestKey("generateSubjectAttendance", subjectId, academicYear),
+                () -> reportDAO.generateSubjectAttendanceReport(subjectId, academicYear)
             );
             
-            JSONObject jsonResponse = new JSONObject();
-            jsonResponse.put("success", true);
-            jsonResponse.put("data", convertReportListToJSON(reports));
-            out.print(jsonResponse.toString());
+            JsonUtil.writeReportListResponse(reports, out);
             
         } catch (Exception e) {
-            System.err.println("Error generating attendance report: " + e.getMessage());
+            Log.error("Error generating attendance report", e);
             sendErrorResponse(out, "Error generating report", 500);
         }
     }
@@ -192,15 +252,15 @@ public class ReportServlet extends HttpServlet {
             
             int subjectId = Integer.parseInt(subjectIdStr);
             
-            List<Report> reports = reportDAO.generateSubjectMarksReport(subjectId, academicYear);
+            List<Report> reports = reportRequests.execute(
+                requestKey("generateSubjectMarks", subjectId, academicYear),
+                () -> reportDAO.generateSubjectMarksReport(subjectId, academicYear)
+            );
             
-            JSONObject jsonResponse = new JSONObject();
-            jsonResponse.put("success", true);
-            jsonResponse.put("data", convertReportListToJSON(reports));
-            out.print(jsonResponse.toString());
+            JsonUtil.writeReportListResponse(reports, out);
             
         } catch (Exception e) {
-            System.err.println("Error generating marks report: " + e.getMessage());
+            Log.error("Error generating marks report", e);
             sendErrorResponse(out, "Error generating report", 500);
         }
     }
@@ -226,17 +286,15 @@ public class ReportServlet extends HttpServlet {
             
             int studentId = Integer.parseInt(studentIdStr);
             
-            List<Report> reports = reportDAO.generateStudentAllSubjectsReport(
-                studentId, academicYear
+            List<Report> reports = reportRequests.execute(
+                requestKey("generateAllSubjects", studentId, academicYear),
+                () -> reportDAO.generateStudentAllSubjectsReport(studentId, academicYear)
             );
             
-            JSONObject jsonResponse = new JSONObject();
-            jsonResponse.put("success", true);
-            jsonResponse.put("data", convertReportListToJSON(reports));
-            out.print(jsonResponse.toString());
+            JsonUtil.writeReportListResponse(reports, out);
             
         } catch (Exception e) {
-            System.err.println("Error generating all subjects report: " + e.getMessage());
+            Log.error("Error generating all subjects report", e);
             sendErrorResponse(out, "Error generating report", 500);
         }
     }
@@ -253,21 +311,26 @@ public class ReportServlet extends HttpServlet {
         
         try {
             String academicYear = request.getParameter("academicYear");
+            String offsetStr = request.getParameter("offset");
+            String limitStr = request.getParameter("limit");
             
             if (academicYear == null) {
                 sendErrorResponse(out, "Academic year is required", 400);
                 return;
             }
             
-            List<Report> reports = reportDAO.getAtRiskStudents(academicYear);
+            int offset = offsetStr != null ? Integer.parseInt(offsetStr) : 0;
+            int limit = limitStr != null ? Integer.parseInt(limitStr) : Integer.MAX_VALUE;
             
-            JSONObject jsonResponse = new JSONObject();
-            jsonResponse.put("success", true);
-            jsonResponse.put("data", convertReportListToJSON(reports));
-            out.print(jsonResponse.toString());
+            List<Report> reports = reportRequests.execute(
+                requestKey("getAtRiskStudents", academicYear, offset, limit),
+                () -> reportDAO.getAtRiskStudents(academicYear, offset, limit)
+            );
+            
+            JsonUtil.writeReportListResponse(reports, out);
             
         } catch (Exception e) {
-            System.err.println("Error getting at-risk students: " + e.getMessage());
+            Log.error("Error getting at-risk students", e);
             sendErrorResponse(out, "Error retrieving data", 500);
         }
     }
@@ -293,8 +356,9 @@ public class ReportServlet extends HttpServlet {
             
             int subjectId = Integer.parseInt(subjectIdStr);
             
-            Map<String, Object> summary = reportDAO.getSubjectPerformanceSummary(
-                subjectId, academicYear
+            Map<String, Object> summary = reportRequests.execute(
+                requestKey("getSubjectSummary", subjectId, academicYear),
+                () -> reportDAO.getSubjectPerformanceSummary(subjectId, academicYear)
             );
             
             JSONObject jsonResponse = new JSONObject();
@@ -303,13 +367,13 @@ public class ReportServlet extends HttpServlet {
             out.print(jsonResponse.toString());
             
         } catch (Exception e) {
-            System.err.println("Error getting subject summary: " + e.getMessage());
+            Log.error("Error getting subject summary", e);
             sendErrorResponse(out, "Error retrieving summary", 500);
         }
     }
     
     /**
-     * Export report to CSV
+     * Export report to CSV, written straight to the response
      */
     private void exportReportCSV(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
@@ -327,43 +391,21 @@ public class ReportServlet extends HttpServlet {
             int studentId = Integer.parseInt(studentIdStr);
             int subjectId = Integer.parseInt(subjectIdStr);
             
-            Report report = reportDAO.generateStudentReport(studentId, subjectId, academicYear);
+            Report report = studentReport(studentId, subjectId, academicYear);
             
             String filename = "report_" + report.getRollNumber() + "_" + 
                             report.getSubjectCode();
-            String filePath = ExportUtil.exportStudentReportToCSV(report, filename);
-            
-            if (filePath != null) {
-                // Send file for download
-                File file = new File(filePath);
-                response.setContentType("text/csv");
-                response.setHeader("Content-Disposition", 
-                    "attachment; filename=\"" + file.getName() + "\"");
-                
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    byte[] buffer = new byte[4096];
-                    int bytesRead;
-                    while ((bytesRead = fis.read(buffer)) != -1) {
-                        response.getOutputStream().write(buffer, 0, bytesRead);
-                    }
-                }
-                
-                // Delete file after sending
-                file.delete();
-            } else {
-                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 
-                    "Failed to generate report");
-            }
+            startDownload(response, "text/csv", ExportUtil.timestampedFileName(filename, "csv"));
+            ExportUtil.writeStudentReportCSV(report, response.getWriter());
             
         } catch (Exception e) {
-            System.err.println("Error exporting report: " + e.getMessage());
-            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 
-                "Error exporting report");
+            Log.error("Error exporting report", e);
+            sendExportError(response);
         }
     }
     
     /**
-     * Export report to text
+     * Export report to text, written straight to the response
      */
     private void exportReportText(HttpServletRequest request, HttpServletResponse response) 
             throws IOException {
@@ -381,108 +423,308 @@ public class ReportServlet extends HttpServlet {
             int studentId = Integer.parseInt(studentIdStr);
             int subjectId = Integer.parseInt(subjectIdStr);
             
-            Report report = reportDAO.generateStudentReport(studentId, subjectId, academicYear);
+            Report report = studentReport(studentId, subjectId, academicYear);
             
             String filename = "report_" + report.getRollNumber() + "_" + 
                             report.getSubjectCode();
-            String filePath = ExportUtil.exportReportToText(report, filename);
+            startDownload(response, "text/plain", ExportUtil.timestampedFileName(filename, "txt"));
+            ExportUtil.writeReportText(report, response.getWriter());
             
-            if (filePath != null) {
-                File file = new File(filePath);
-                response.setContentType("text/plain");
-                response.setHeader("Content-Disposition", 
-                    "attachment; filename=\"" + file.getName() + "\"");
-                
-                try (FileInputStream fis = new FileInputStream(file)) {
-                    byte[] buffer = new byte[4096];
-                    int bytesRead;
-                    while ((bytesRead = fis.read(buffer)) != -1) {
-                        response.getOutputStream().write(buffer, 0, bytesRead);
+        } catch (Exception e) {
+            Log.error("Error exporting report", e);
+            sendExportError(response);
+        }
+    }
+    
+    /**
+     * Export attendance records to CSV, streamed from the database row by row
+     * Optional subjectId and department narrow the export; without them the
+     * whole academic year is exported.
+     */
+    private void exportAttendanceCSV(HttpServletRequest request, HttpServletResponse response) 
+            throws IOException {
+        
+        try {
+            String academicYear = request.getParameter("academicYear");
+            String subjectIdStr = request.getParameter("subjectId");
+            String department = request.getParameter("department");
+            
+            if (academicYear == null) {
+                response.sendError(HttpServletResponse.SC_BAD_REQUEST, "Missing parameters");
+                return;
+            }
+            
+            int subjectId = subjectIdStr != null ? Integer.parseInt(subjectIdStr) : 0;
+            
+            startDownload(response, "text/csv",
+                ExportUtil.timestampedFileName("attendance_" + academicYear, "csv"));
+            // Written to the output stream rather than getWriter(), whose PrintWriter
+            // swallows errors: a client going away then fails the next write
+            writeAttendanceCSV(new OutputStreamWriter(response.getOutputStream(), StandardCharsets.UTF_8),
+                               academicYear, subjectId, department);
+            
+        } catch (Exception e) {
+            Log.error("Error exporting attendance", e);
+            sendExportError(response);
+        }
+    }
+    
+    /**
+     * Stream attendance records from the database as CSV
+     */
+    private void writeAttendanceCSV(Writer out, String academicYear, int subjectId, String department) 
+            throws IOException {
+        
+        CsvEncoder csv = new CsvEncoder(out);
+        ExportUtil.writeAttendanceCSVHeader(csv);
+        
+        int rows = attendanceDAO.forEachAttendance(academicYear, subjectId, department, attendance -> {
+            try {
+                ExportUtil.writeAttendanceCSVRow(csv, attendance);
+            } catch (IOException e) {
+                // Output failed (client went away), stop reading from the database
+                throw new UncheckedIOException(e);
+            }
+        });
+        
+        if (rows < 0) {
+            throw new IOException("Attendance export failed while reading from the database");
+        }
+        csv.flush();
+    }
+    
+    /**
+     * Queue a heavy report to run in the background
+     * The type parameter names the report action and takes the same parameters.
+     * Responds 202 with the job ID to poll with jobStatus.
+     */
+    private void submitReportJob(HttpServletRequest request, HttpServletResponse response, 
+                                 HttpSession session) throws IOException {
+        
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+        
+        try {
+            String type = request.getParameter("type");
+            String academicYear = request.getParameter("academicYear");
+            
+            if (type == null || academicYear == null) {
+                response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                sendErrorResponse(out, "Missing required parameters", 400);
+                return;
+            }
+            
+            ReportJobQueue.ReportTask task;
+            String contentType = "application/json";
+            String fileName;
+            
+            switch (type) {
+                case "generateAllSubjects": {
+                    String studentIdStr = request.getParameter("studentId");
+                    if (studentIdStr == null) {
+                        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                        sendErrorResponse(out, "Missing required parameters", 400);
+                        return;
                     }
+                    int studentId = Integer.parseInt(studentIdStr);
+                    task = writer -> JsonUtil.writeReportListResponse(
+                        reportDAO.queryStudentAllSubjectsReport(studentId, academicYear), writer);
+                    fileName = "all_subjects_" + studentId + "_" + academicYear + ".json";
+                    break;
                 }
                 
-                file.delete();
-            } else {
-                response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 
-                    "Failed to generate report");
+                case "getAtRiskStudents": {
+                    String offsetStr = request.getParameter("offset");
+                    String limitStr = request.getParameter("limit");
+                    int offset = offsetStr != null ? Integer.parseInt(offsetStr) : 0;
+                    int limit = limitStr != null ? Integer.parseInt(limitStr) : Integer.MAX_VALUE;
+                    task = writer -> JsonUtil.writeReportListResponse(
+                        reportDAO.queryAtRiskStudents(academicYear, offset, limit), writer);
+                    fileName = "at_risk_" + academicYear + ".json";
+                    break;
+                }
+                
+                case "exportAttendanceCSV": {
+                    String subjectIdStr = request.getParameter("subjectId");
+                    String department = request.getParameter("department");
+                    int subjectId = subjectIdStr != null ? Integer.parseInt(subjectIdStr) : 0;
+                    task = writer -> writeAttendanceCSV(writer, academicYear, subjectId, department);
+                    contentType = "text/csv";
+                    fileName = ExportUtil.timestampedFileName(
+                        "attendance_" + (department != null ? department + "_" : "") + academicYear, "csv");
+                    break;
+                }
+                
+                default:
+                    response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+                    sendErrorResponse(out, "Report type cannot run as a job", 400);
+                    return;
             }
             
-        } catch (Exception e) {
-            System.err.println("Error exporting report: " + e.getMessage());
-            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 
-                "Error exporting report");
+            int userId = (Integer) session.getAttribute("userId");
+            ReportJob job = ReportJobQueue.getInstance().submit(userId, type, contentType, fileName, task);
+            
+            response.setStatus(HttpServletResponse.SC_ACCEPTED);
+            JSONObject jsonResponse = new JSONObject();
+            jsonResponse.put("success", true);
+            jsonResponse.put("data", new JSONObject(job.toMap()));
+            out.print(jsonResponse.toString());
+            
+        } catch (ReportJobQueue.UserLimitException e) {
+            response.setStatus(429);
+            sendErrorResponse(out, e.getMessage(), 429);
+            
+        } catch (RejectedExecutionException e) {
+            response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            sendErrorResponse(out, e.getMessage(), 503);
+            
+        } catch (NumberFormatException e) {
+            response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+            sendErrorResponse(out, "Invalid parameters", 400);
         }
     }
     
     /**
-     * Convert Report to JSON
+     * Get the status of a report job
      */
-    private JSONObject convertReportToJSON(Report report) {
-        JSONObject jsonObj = new JSONObject();
-        
-        // Student info
-        jsonObj.put("studentName", report.getStudentName());
-        jsonObj.put("rollNumber", report.getRollNumber());
-        jsonObj.put("email", report.getEmail());
-        jsonObj.put("semester", report.getSemester());
-        
-        // Subject info
-        jsonObj.put("subjectName", report.getSubjectName());
-        jsonObj.put("subjectCode", report.getSubjectCode());
-        jsonObj.put("credits", report.getCredits());
-        jsonObj.put("academicYear", report.getAcademicYear());
-        
-        // Attendance
-        jsonObj.put("totalClasses", report.getTotalClasses());
-        jsonObj.put("classesAttended", report.getClassesAttended());
-        jsonObj.put("classesAbsent", report.getClassesAbsent());
-        jsonObj.put("attendancePercentage", report.getAttendancePercentage());
-        
-        // Marks
-        jsonObj.put("totalMarksObtained", report.getTotalMarksObtained());
-        jsonObj.put("totalMaxMarks", report.getTotalMaxMarks());
-        jsonObj.put("overallPercentage", report.getOverallPercentage());
-        jsonObj.put("overallGrade", report.getOverallGrade());
-        jsonObj.put("performanceLevel", report.getPerformanceLevel());
-        
-        // Assessment marks
-        JSONArray assessments = new JSONArray();
-        if (report.getAssessmentMarks() != null) {
-            for (Report.AssessmentMark am : report.getAssessmentMarks()) {
-                JSONObject assessment = new JSONObject();
-                assessment.put("type", am.getAssessmentType());
-                assessment.put("marksObtained", am.getMarksObtained());
-                assessment.put("maxMarks", am.getMaxMarks());
-                assessment.put("percentage", am.getPercentage());
-                assessment.put("grade", am.getGrade());
-                assessments.put(assessment);
-            }
+    private void getReportJobStatus(HttpServletRequest request, HttpServletResponse response, 
+                                    HttpSession session) throws IOException {
+        
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+        
+        ReportJob job = findJob(request, response, session, out);
+        if (job == null) {
+            return;
         }
-        jsonObj.put("assessments", assessments);
         
-        // Risk analysis
-        jsonObj.put("isAtRisk", report.isAtRisk());
-        jsonObj.put("riskLevel", report.getRiskLevel());
+        JSONObject jsonResponse = new JSONObject();
+        jsonResponse.put("success", true);
+        jsonResponse.put("data", new JSONObject(job.toMap()));
+        out.print(jsonResponse.toString());
+    }
+    
+    /**
+     * Download the result of a completed report job
+     */
+    private void downloadReportJob(HttpServletRequest request, HttpServletResponse response, 
+                                   HttpSession session) throws IOException {
+        
+        ReportJob job = findJob(request, response, session, null);
+        if (job == null) {
+            return;
+        }
         
-        // Insights
-        jsonObj.put("strengths", new JSONArray(report.getStrengths()));
-        jsonObj.put("weaknesses", new JSONArray(report.getWeaknesses()));
-        jsonObj.put("recommendations", new JSONArray(report.getRecommendations()));
+        if (job.getStatus() != ReportJob.JobStatus.COMPLETED) {
+            response.sendError(HttpServletResponse.SC_CONFLICT, "Report is " + job.getStatus());
+            return;
+        }
         
-        return jsonObj;
+        try {
+            startDownload(response, job.getContentType(), job.getFileName());
+            response.setContentLengthLong(job.getResultFile().length());
+            Files.copy(job.getResultFile().toPath(), response.getOutputStream());
+            
+        } catch (IOException e) {
+            Log.error("Error sending report job result", e);
+            sendExportError(response);
+        }
     }
     
     /**
-     * Convert Report list to JSON
+     * Cancel a queued or running report job
      */
-    private JSONArray convertReportListToJSON(List<Report> reports) {
-        JSONArray jsonArray = new JSONArray();
+    private void cancelReportJob(HttpServletRequest request, HttpServletResponse response, 
+                                 HttpSession session) throws IOException {
         
-        for (Report report : reports) {
-            jsonArray.put(convertReportToJSON(report));
+        response.setContentType("application/json");
+        response.setCharacterEncoding("UTF-8");
+        PrintWriter out = response.getWriter();
+        
+        ReportJob job = findJob(request, response, session, out);
+        if (job == null) {
+            return;
         }
         
-        return jsonArray;
+        boolean cancelled = ReportJobQueue.getInstance().cancel(job.getJobId());
+        
+        JSONObject jsonResponse = new JSONObject();
+        jsonResponse.put("success", cancelled);
+        jsonResponse.put("message", cancelled ? "Report cancelled" : "Report has already finished");
+        jsonResponse.put("data", new JSONObject(job.toMap()));
+        out.print(jsonResponse.toString());
+    }
+    
+    /**
+     * Look up the job named by the jobId parameter
+     * Other users' jobs are reported as not found, except to administrators.
+     * @param out Writer for a JSON error, or null to send a plain error
+     * @return Job, or null after an error has been sent
+     */
+    private ReportJob findJob(HttpServletRequest request, HttpServletResponse response, 
+                              HttpSession session, PrintWriter out) throws IOException {
+        
+        ReportJob job = ReportJobQueue.getInstance().getJob(request.getParameter("jobId"));
+        int userId = (Integer) session.getAttribute("userId");
+        
+        if (job == null || (job.getUserId() != userId && 
+                            !"ADMIN".equals(session.getAttribute("userRole")))) {
+            if (out != null) {
+                response.setStatus(HttpServletResponse.SC_NOT_FOUND);
+                sendErrorResponse(out, "Report job not found", 404);
+            } else {
+                response.sendError(HttpServletResponse.SC_NOT_FOUND, "Report job not found");
+            }
+            return null;
+        }
+        return job;
+    }
+    
+    /**
+     * Generate a student report, shared with identical requests in flight
+     * The JSON, CSV and text actions all need the same report, so they coalesce together.
+     */
+    private Report studentReport(int studentId, int subjectId, String academicYear) throws Exception {
+        return reportRequests.execute(
+            requestKey("generateStudent", studentId, subjectId, academicYear),
+            () -> reportDAO.generateStudentReport(studentId, subjectId, academicYear)
+        );
+    }
+    
+    /**
+     * Build the coalescing key for a report computation and its parameters
+     */
+    private static String requestKey(String action, Object... params) {
+        StringBuilder key = new StringBuilder(action);
+        for (Object param : params) {
+            key.append('|').append(param);
+        }
+        return key.toString();
+    }
+    
+    /**
+     * Set download headers before the export is written
+     */
+    private void startDownload(HttpServletResponse response, String contentType, String fileName) {
+        response.setContentType(contentType);
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Disposition", 
+            "attachment; filename=\"" + fileName + "\"");
+    }
+    
+    /**
+     * Report an export failure if nothing has been sent yet
+     * Once rows have been streamed the status line is gone, so the
+     * truncated download is all the client will see.
+     */
+    private void sendExportError(HttpServletResponse response) throws IOException {
+        if (!response.isCommitted()) {
+            response.reset();
+            response.sendError(HttpServletResponse.SC_INTERNAL_SERVER_ERROR, 
+                "Error exporting report");
+        }
     }
     
     /**
@@ -0,0 +1,424 @@
+package utils;
+
+import config.DBConnection;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Asynchronous structured logger
+ * Request threads only check the level and put the event in a lock-free ring
+ * buffer; a background thread formats events as one line of key=value pairs
+ * and writes them in batches, so logging never waits on the console or disk.
+ * When the buffer is full events are dropped and counted rather than blocking
+ * the caller. Logs go to logging.file, rotated by size, or to the console.
+ *
+ * Configured with the logging.* settings in db.properties; use it through Log.
+ */
+public class AsyncLogger {
+
+    public enum Level { DEBUG, INFO, WARN, ERROR }
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final long DEFAULT_MAX_FILE_SIZE_MB = 10;
+    private static final int DEFAULT_MAX_FILES = 5;
+    private static final long SHUTDOWN_TIMEOUT_MS = 5 * 1000;
+
+    // Events formatted per write
+    private static final int MAX_BATCH = 512;
+    private static final long IDLE_PARK_NANOS = 10 * 1000 * 1000;
+
+    private static final DateTimeFormatter TIMESTAMP =
+        DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX").withZone(ZoneId.systemDefault());
+
+    private static volatile AsyncLogger instance;
+
+    private final Level level;
+    private final RingBuffer<Event> buffer;
+    private final Path file;
+    private final long maxFileBytes;
+    private final int maxFiles;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    // Only touched by the writer thread
+    private Writer fileWriter;
+    private long fileBytes;
+    private long droppedReported;
+
+    // Statistics
+    private final LongAdder logged = new LongAdder();
+    private final LongAdder dropped = new LongAdder();
+    private final LongAdder written = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder rotations = new LongAdder();
+    private final LongAdder writeErrors = new LongAdder();
+
+    /**
+     * Create and start a logger
+     * @param level Lowest level written
+     * @param file Log file, or null to write to the console
+     * @param maxFileBytes Size at which the file is rotated
+     * @param maxFiles Rotated files kept, as file.1 (newest) to file.N
+     * @param bufferSize Events that may wait for the writer
+     */
+    public AsyncLogger(Level level, Path file, long maxFileBytes, int maxFiles, int bufferSize) {
+        this.level = level;
+        this.file = file;
+        this.maxFileBytes = maxFileBytes;
+        this.maxFiles = maxFiles;
+        this.buffer = new RingBuffer<>(bufferSize);
+
+        this.writer = new Thread(this::runWriter, "attendease-log-writer");
+        this.writer.setDaemon(true);
+        this.writer.start();
+    }
+
+    /**
+     * Get the shared logger, creating it from db.properties on first use
+     * After shutdownInstance() it stays in place and writes straight to the
+     * console, so messages logged late in shutdown are not lost.
+     * @return AsyncLogger instance
+     */
+    public static AsyncLogger getInstance() {
+        AsyncLogger current = instance;
+        if (current == null) {
+            synchronized (AsyncLogger.class) {
+                if (instance == null) {
+                    String file = DBConnection.getSetting("logging.file", null);
+                    instance = new AsyncLogger(
+                        parseLevel(DBConnection.getSetting("logging.level", "INFO")),
+                        file != null ? Paths.get(file) : null,
+                        DBConnection.getLongSetting("logging.maxFileSizeMb", DEFAULT_MAX_FILE_SIZE_MB) * 1024 * 1024,
+                        (int) DBConnection.getLongSetting("logging.maxFiles", DEFAULT_MAX_FILES),
+                        (int) DBConnection.getLongSetting("logging.bufferSize", DEFAULT_BUFFER_SIZE)
+                    );
+                }
+                current = instance;
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Get statistics of the shared logger without starting it
+     * @return Map with statistics, empty if it has not been started
+     */
+    public static Map<String, Object> getInstanceStatistics() {
+        AsyncLogger current = instance;
+        return current != null ? current.getStatistics() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Write out buffered events and stop the writer of the shared logger
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown(SHUTDOWN_TIMEOUT_MS);
+        }
+    }
+
+    private static Level parseLevel(String name) {
+        try {
+            return Level.valueOf(name.trim().toUpperCase());
+        } catch (IllegalArgumentException e) {
+            System.err.println("Unknown logging.level '" + name + "', using INFO");
+            return Level.INFO;
+        }
+    }
+
+    /**
+     * Whether events of a level are written
+     */
+    public boolean isEnabled(Level eventLevel) {
+        return eventLevel.compareTo(level) >= 0;
+    }
+
+    /**
+     * Log an event
+     * @param eventLevel Level of the event
+     * @param message What happened
+     * @param error Exception to include with its stack trace, or null
+     * @param keyValues Alternating keys and values added to the line; null values are left out
+     */
+    public void log(Level eventLevel, String message, Throwable error, Object... keyValues) {
+        if (!isEnabled(eventLevel)) {
+            return;
+        }
+        Event event = new Event(eventLevel, message, error, keyValues);
+
+        if (!running) {
+            writeToConsole(format(new StringBuilder(), event).toString(), eventLevel);
+            return;
+        }
+        if (buffer.offer(event)) {
+            logged.increment();
+        } else {
+            dropped.increment();
+        }
+    }
+
+    /**
+     * Write out buffered events and stop the writer
+     * @param timeoutMs How long to wait for the writer
+     */
+    public void shutdown(long timeoutMs) {
+        running = false;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(timeoutMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void runWriter() {
+        try {
+            while (running) {
+                if (writeBatch() == 0) {
+                    LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+                }
+            }
+            // Events offered before running was cleared
+            while (writeBatch() > 0) {
+                // Keep draining
+            }
+        } finally {
+            closeFile();
+        }
+    }
+
+    /**
+     * Format and write the events waiting in the buffer, up to MAX_BATCH
+     * @return Number of events written
+     */
+    private int writeBatch() {
+        StringBuilder out = new StringBuilder();
+        StringBuilder err = file == null ? new StringBuilder() : out;
+
+        long droppedNow = dropped.sum();
+        if (droppedNow > droppedReported) {
+            format(err, new Event(Level.WARN, "Log buffer full, events dropped", null,
+                                  new Object[] { "count", droppedNow - droppedReported }));
+            droppedReported = droppedNow;
+        }
+
+        int count = 0;
+        Event event;
+        while (count < MAX_BATCH && (event = buffer.poll()) != null) {
+            format(event.level.compareTo(Level.WARN) >= 0 ? err : out, event);
+            count++;
+        }
+
+        if (out.length() > 0 || err.length() > 0) {
+            write(out, err);
+            written.add(count);
+            batches.increment();
+        }
+        return count;
+    }
+
+    private void write(StringBuilder out, StringBuilder err) {
+        if (file == null) {
+            writeToConsole(out.toString(), Level.INFO);
+            writeToConsole(err.toString(), Level.ERROR);
+            return;
+        }
+
+        try {
+            if (fileWriter == null) {
+                openFile();
+            }
+            fileWriter.write(out.toString());
+            fileWriter.flush();
+            fileBytes += out.length();
+            if (fileBytes >= maxFileBytes) {
+                rotate();
+            }
+        } catch (IOException e) {
+            writeErrors.increment();
+            closeFile();
+            System.err.println("Error writing log file " + file + ": " + e.getMessage());
+            System.err.print(out);
+        }
+    }
+
+    private static void writeToConsole(String text, Level eventLevel) {
+        if (!text.isEmpty()) {
+            if (eventLevel.compareTo(Level.WARN) >= 0) {
+                System.err.print(text);
+            } else {
+                System.out.print(text);
+            }
+        }
+    }
+
+    private void openFile() throws IOException {
+        Path parent = file.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        fileWriter = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                                             StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        fileBytes = Files.size(file);
+    }
+
+    private void closeFile() {
+        if (fileWriter != null) {
+            try {
+                fileWriter.close();
+            } catch (IOException e) {
+                writeErrors.increment();
+            }
+            fileWriter = null;
+        }
+    }
+
+    /**
+     * Move file to file.1, file.1 to file.2 and so on, dropping the oldest
+     */
+    private void rotate() throws IOException {
+        closeFile();
+        if (maxFiles > 0) {
+            for (int i = maxFiles - 1; i >= 1; i--) {
+                Path older = rotated(i);
+                if (Files.exists(older)) {
+                    Files.move(older, rotated(i + 1), StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            Files.move(file, rotated(1), StandardCopyOption.REPLACE_EXISTING);
+        } else {
+            Files.delete(file);
+        }
+        rotations.increment();
+        openFile();
+    }
+
+    private Path rotated(int index) {
+        return file.resolveSibling(file.getFileName() + "." + index);
+    }
+
+    /**
+     * Format an event as one line, followed by the stack trace of its error
+     */
+    private static StringBuilder format(StringBuilder line, Event event) {
+        TIMESTAMP.formatTo(Instant.ofEpochMilli(event.timestamp), line);
+        line.append(' ').append(event.level.name());
+        if (event.level.name().length() == 4) {
+            line.append(' ');
+        }
+        line.append(" [").append(event.thread).append("] ").append(event.message);
+
+        Object[] keyValues = event.keyValues;
+        for (int i = 0; i + 1 < keyValues.length; i += 2) {
+            if (keyValues[i + 1] != null) {
+                line.append(' ').append(keyValues[i]).append('=');
+                appendValue(line, keyValues[i + 1]);
+            }
+        }
+        if (event.error != null) {
+            line.append(" error=");
+            appendValue(line, event.error.toString());
+        }
+        line.append(System.lineSeparator());
+
+        if (event.error != null) {
+            StringWriter trace = new StringWriter();
+            event.error.printStackTrace(new PrintWriter(trace));
+            line.append(trace);
+        }
+        return line;
+    }
+
+    /**
+     * Append a value, quoted if it contains spaces, quotes or equals signs
+     */
+    private static void appendValue(StringBuilder line, Object value) {
+        String text = String.valueOf(value);
+        boolean quote = text.isEmpty();
+        for (int i = 0; i < text.length() && !quote; i++) {
+            char c = text.charAt(i);
+            quote = c <= ' ' || c == '"' || c == '=';
+        }
+        if (!quote) {
+            line.append(text);
+            return;
+        }
+
+        line.append('"');
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '"':
+                    line.append("\\\"");
+                    break;
+                case '\\':
+                    line.append("\\\\");
+                    break;
+                case '\n':
+                    line.append("\\n");
+                    break;
+                case '\r':
+                    line.append("\\r");
+                    break;
+                default:
+                    line.append(c);
+            }
+        }
+        line.append('"');
+    }
+
+    /**
+     * Get logger statistics
+     * @return Map with statistics
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("level", level.name());
+        stats.put("file", file != null ? file.toString() : "console");
+        stats.put("running", running);
+        stats.put("bufferCapacity", buffer.capacity());
+        stats.put("buffered", buffer.size());
+        stats.put("logged", logged.sum());
+        stats.put("dropped", dropped.sum());
+        stats.put("written", written.sum());
+        stats.put("batches", batches.sum());
+        stats.put("rotations", rotations.sum());
+        stats.put("writeErrors", writeErrors.sum());
+        return stats;
+    }
+
+    /**
+     * A logged event, formatted later by the writer
+     */
+    private static class Event {
+        private final long timestamp = System.currentTimeMillis();
+        private final String thread = Thread.currentThread().getName();
+        private final Level level;
+        private final String message;
+        private final Throwable error;
+        private final Object[] keyValues;
+
+        Event(Level level, String message, Throwable error, Object[] keyValues) {
+            this.level = level;
+            this.message = message;
+            this.error = error;
+            this.keyValues = keyValues != null ? keyValues : new Object[0];
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package utils;
+
+import config.DBConnection;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Concurrency limit for one workload class
+ * Each class (auth, write, read, report) admits a bounded number of requests
+ * at once and lets a few more wait briefly for a slot. Requests beyond that are
+ * turned away, so a storm in one class cannot take the threads and connections
+ * the others need. Heavy report reads also get their own connection pool,
+ * see DBConnection.getReadConnection().
+ *
+ * Configured with the bulkhead.* settings in db.properties.
+ */
+public class Bulkhead {
+
+    private static volatile Boolean enabled;
+    private static final Map<Workload, Bulkhead> bulkheads = new EnumMap<>(Workload.class);
+
+    private final Workload workload;
+    private final int maxConcurrent;
+    private final int maxWaiting;
+    private final long maxWaitMs;
+    private final int retryAfterSeconds;
+    private final Semaphore permits;
+
+    // Statistics
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder admitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram admissionWait = new LatencyHistogram();
+
+    /**
+     * Create a bulkhead
+     * @param workload Workload class it limits
+     * @param maxConcurrent Requests admitted at once
+     * @param maxWaiting Requests that may wait for a slot, beyond which they are rejected at once
+     * @param maxWaitMs How long a request waits for a slot
+     * @param retryAfterSeconds Retry-After sent with rejections
+     */
+    public Bulkhead(Workload workload, int maxConcurrent, int maxWaiting, long maxWaitMs, int retryAfterSeconds) {
+        this.workload = workload;
+        this.maxConcurrent = maxConcurrent;
+        this.maxWaiting = maxWaiting;
+        this.maxWaitMs = maxWaitMs;
+        this.retryAfterSeconds = retryAfterSeconds;
+        this.permits = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Whether bulkheads are enabled in db.properties
+     */
+    public static boolean isEnabled() {
+        if (enabled == null) {
+            enabled = DBConnection.getBooleanSetting("bulkhead.enabled", true);
+        }
+        return enabled;
+    }
+
+    /**
+     * Get the bulkhead for a workload class, creating it from db.properties on first use
+     * @param workload Workload class
+     * @return Bulkhead instance
+     */
+    public static Bulkhead forWorkload(Workload workload) {
+        synchronized (bulkheads) {
+            Bulkhead bulkhead = bulkheads.get(workload);
+            if (bulkhead == null) {
+                int poolSize = DBConnection.getMaxPoolSize();
+                String prefix = "bulkhead." + workload.key() + ".";
+                int defaultMax;
+                long defaultWaitMs;
+                int defaultRetryAfter = 1;
+                switch (workload) {
+                    case AUTH:
+                        defaultMax = Math.max(poolSize / 2, 1);
+                        defaultWaitMs = 2000;
+                        break;
+                    case WRITE:
+                        defaultMax = poolSize;
+                        defaultWaitMs = 5000;
+                        break;
+                    case REPORT:
+                        defaultMax = Math.max(poolSize / 5, 1);
+                        defaultWaitMs = 1000;
+                        defaultRetryAfter = 10;
+                        break;
+                    default:
+                        defaultMax = poolSize;
+                        defaultWaitMs = 2000;
+                }
+                int max = (int) DBConnection.getLongSetting(prefix + "maxConcurrent", defaultMax);
+                bulkhead = new Bulkhead(workload, max,
+                    (int) DBConnection.getLongSetting(prefix + "maxWaiting", max * 2L),
+                    DBConnection.getLongSetting(prefix + "maxWaitMs", defaultWaitMs),
+                    (int) DBConnection.getLongSetting(prefix + "retryAfterSeconds", defaultRetryAfter));
+                bulkheads.put(workload, bulkhead);
+            }
+            return bulkhead;
+        }
+    }
+
+    /**
+     * Get statistics for every bulkhead created so far
+     * @return Map of workload class to statistics
+     */
+    public static Map<String, Object> getAllStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        synchronized (bulkheads) {
+            for (Bulkhead bulkhead : bulkheads.values()) {
+                stats.put(bulkhead.workload.key(), bulkhead.getStatistics());
+            }
+        }
+        return stats;
+    }
+
+    /**
+     * Take a slot, waiting up to maxWaitMs for one
+     * Every successful call must be paired with exit().
+     * @return true if admitted, false if the request should be rejected
+     */
+    public boolean tryEnter() {
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            admissionWait.record(0);
+            return true;
+        }
+
+        if (maxWaitMs <= 0) {
+            rejected.increment();
+            return false;
+        }
+        if (waiting.incrementAndGet() > maxWaiting) {
+            waiting.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+
+        long start = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+
+        if (!acquired) {
+            rejected.increment();
+            return false;
+        }
+        admitted.increment();
+        admissionWait.recordSince(start);
+        return true;
+    }
+
+    /**
+     * Take a slot only if one is free right now
+     * Every successful call must be paired with exit().
+     * @return true if admitted, false if the request should be rejected
+     */
+    public boolean tryEnterNow() {
+        if (permits.tryAcquire()) {
+            admitted.increment();
+            admissionWait.record(0);
+            return true;
+        }
+        rejected.increment();
+        return false;
+    }
+
+    /**
+     * Release a slot taken by tryEnter() or tryEnterNow()
+     */
+    public void exit() {
+        permits.release();
+    }
+
+    public Workload getWorkload() {
+        return workload;
+    }
+
+    public int getMaxConcurrent() {
+        return maxConcurrent;
+    }
+
+    public int getRetryAfterSeconds() {
+        return retryAfterSeconds;
+    }
+
+    /**
+     * Get bulkhead statistics
+     * @return Map with limits, usage and rejection counts
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("maxWaiting", maxWaiting);
+        stats.put("active", maxConcurrent - permits.availablePermits());
+        stats.put("waiting", waiting.get());
+        stats.put("admitted", admitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("admissionWait", admissionWait.toMap());
+        return stats;
+    }
+}
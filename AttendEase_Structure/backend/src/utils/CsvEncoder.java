@@ -0,0 +1,318 @@
+package utils;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+
+/**
+ * RFC 4180 CSV encoder for AttendEase exports
+ * Fields are encoded into a reusable char buffer that is written to the
+ * underlying Writer when full, without going through String.format.
+ *
+ * An encoder belongs to one export: create one per Writer. It keeps no shared
+ * static state, so any number of threads can run their own exports at once.
+ */
+public class CsvEncoder implements Flushable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 8192;
+    private static final char[] LINE_END = { '\r', '\n' };
+    private static final long[] POWERS_OF_TEN = {
+        1L, 10L, 100L, 1000L, 10000L, 100000L, 1000000L
+    };
+
+    // Above this the scaled value is too coarse to tell a rounding tie apart
+    private static final double MAX_FAST_SCALED = 1e9;
+
+    private final Writer out;
+    private final char[] buffer;
+    private int position;
+    private boolean rowStarted;
+
+    /**
+     * Create an encoder with the default buffer size
+     * @param out Writer to encode to
+     */
+    public CsvEncoder(Writer out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create an encoder
+     * @param out Writer to encode to
+     * @param bufferSize Characters buffered before writing to out
+     */
+    public CsvEncoder(Writer out, int bufferSize) {
+        this.out = out;
+        this.buffer = new char[Math.max(bufferSize, 64)];
+    }
+
+    /**
+     * Write a text field, quoted when it contains a comma, quote or line break
+     * @param value Field value, null is written as an empty field
+     * @return this encoder
+     */
+    public CsvEncoder field(String value) throws IOException {
+        separator();
+        if (value == null || value.isEmpty()) {
+            return this;
+        }
+
+        if (!needsQuoting(value)) {
+            append(value);
+            return this;
+        }
+
+        append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                append('"');
+            }
+            append(c);
+        }
+        append('"');
+        return this;
+    }
+
+    /**
+     * Write an integer field
+     * @param value Field value
+     * @return this encoder
+     */
+    public CsvEncoder field(long value) throws IOException {
+        separator();
+        appendLong(value);
+        return this;
+    }
+
+    /**
+     * Write a decimal field with a fixed number of decimals
+     * Rounds half up like String.format("%.2f", value).
+     * @param value Field value
+     * @param decimals Digits after the point, 0 to 6
+     * @return this encoder
+     */
+    public CsvEncoder field(double value, int decimals) throws IOException {
+        separator();
+        appendDecimal(value, decimals);
+        return this;
+    }
+
+    /**
+     * Write a decimal field followed by a percent sign, e.g. 82.50%
+     * @param value Percentage value
+     * @param decimals Digits after the point, 0 to 6
+     * @return this encoder
+     */
+    public CsvEncoder percentField(double value, int decimals) throws IOException {
+        separator();
+        appendDecimal(value, decimals);
+        append('%');
+        return this;
+    }
+
+    /**
+     * Write a date field as yyyy-MM-dd
+     * @param value Date, null is written as an empty field
+     * @return this encoder
+     */
+    public CsvEncoder field(java.util.Date value) throws IOException {
+        if (value == null) {
+            return field((String) null);
+        }
+        LocalDate date = value instanceof java.sql.Date
+            ? ((java.sql.Date) value).toLocalDate()
+            : new java.sql.Date(value.getTime()).toLocalDate();
+        return field(date);
+    }
+
+    /**
+     * Write a date field as yyyy-MM-dd
+     * @param value Date, null is written as an empty field
+     * @return this encoder
+     */
+    public CsvEncoder field(LocalDate value) throws IOException {
+        separator();
+        if (value == null) {
+            return this;
+        }
+        appendDigits(value.getYear(), 4);
+        append('-');
+        appendDigits(value.getMonthValue(), 2);
+        append('-');
+        appendDigits(value.getDayOfMonth(), 2);
+        return this;
+    }
+
+    /**
+     * Write a field of any type, using its toString() for non-numeric values
+     * @param value Field value
+     * @return this encoder
+     */
+    public CsvEncoder field(Object value) throws IOException {
+        if (value instanceof Integer || value instanceof Long ||
+            value instanceof Short || value instanceof Byte) {
+            return field(((Number) value).longValue());
+        }
+        if (value instanceof java.util.Date) {
+            return field((java.util.Date) value);
+        }
+        return field(value != null ? value.toString() : null);
+    }
+
+    /**
+     * Write a complete line as-is, for headers and section titles that
+     * are already valid CSV
+     * @param line Line content without line ending
+     */
+    public void line(String line) throws IOException {
+        if (rowStarted) {
+            endRow();
+        }
+        append(line);
+        append(LINE_END[0]);
+        append(LINE_END[1]);
+    }
+
+    /**
+     * End the current row with CRLF
+     */
+    public void endRow() throws IOException {
+        append(LINE_END[0]);
+        append(LINE_END[1]);
+        rowStarted = false;
+    }
+
+    /**
+     * Write buffered characters and flush the underlying Writer
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Write buffered characters to the underlying Writer without flushing it
+     */
+    public void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return value.charAt(0) == ' ' || value.charAt(value.length() - 1) == ' ';
+    }
+
+    private void separator() throws IOException {
+        if (rowStarted) {
+            append(',');
+        }
+        rowStarted = true;
+    }
+
+    private void append(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+    }
+
+    private void append(String value) throws IOException {
+        int offset = 0;
+        int length = value.length();
+        while (offset < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - offset, buffer.length - position);
+            value.getChars(offset, offset + count, buffer, position);
+            position += count;
+            offset += count;
+        }
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+        appendDigits(value, 1);
+    }
+
+    /**
+     * Append at least minDigits digits of a non-negative value, zero padded
+     */
+    private void appendDigits(long value, int minDigits) throws IOException {
+        // 19 digits is enough for any positive long
+        if (buffer.length - position < 20) {
+            drain();
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int width = Math.max(digits, minDigits);
+        int end = position + width;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        position = end;
+    }
+
+    private void appendDecimal(double value, int decimals) throws IOException {
+        if (decimals < 0 || decimals >= POWERS_OF_TEN.length) {
+            throw new IllegalArgumentException("decimals must be between 0 and " + (POWERS_OF_TEN.length - 1));
+        }
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            append(value > 0 ? "Infinity" : value < 0 ? "-Infinity" : "NaN");
+            return;
+        }
+
+        long scale = POWERS_OF_TEN[decimals];
+        double magnitude = Math.abs(value);
+        double scaled = magnitude * scale;
+        double fraction = scaled - Math.floor(scaled);
+
+        if (value < 0) {
+            // Formatter keeps the sign even when the value rounds to zero
+            append('-');
+        }
+
+        long units;
+        if (scaled < MAX_FAST_SCALED && Math.abs(fraction - 0.5) > 1e-6) {
+            units = (long) Math.floor(scaled + 0.5);
+        } else {
+            // Near a rounding tie or very large: round the shortest decimal
+            // representation half up, which is what Formatter does
+            BigDecimal exact = BigDecimal.valueOf(magnitude).setScale(decimals, RoundingMode.HALF_UP);
+            if (scaled >= MAX_FAST_SCALED) {
+                append(exact.toPlainString());
+                return;
+            }
+            units = exact.unscaledValue().longValue();
+        }
+
+        appendDigits(units / scale, 1);
+        if (decimals > 0) {
+            append('.');
+            appendDigits(units % scale, decimals);
+        }
+    }
+}
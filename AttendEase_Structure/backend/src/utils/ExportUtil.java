@@ -5,10 +5,11 @@ import model.Attendance;
 import model.Marks;
 
 import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
-import java.text.SimpleDateFormat;
-import java.util.Date;
 
 /**
  * Export Utility Class for AttendEase
@@ -18,7 +19,9 @@ import java.util.Date;
 public class ExportUtil {
     
     private static final String EXPORT_DIR = "reports/";
-    private static final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd_HH-mm-ss");
+    // DateTimeFormatter is immutable, unlike SimpleDateFormat, so it can be shared across threads
+    private static final DateTimeFormatter FILE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd_HH-mm-ss");
+    private static final DateTimeFormatter GENERATED_ON = DateTimeFormatter.ofPattern("dd-MMM-yyyy HH:mm:ss");
     
     /**
      * Initialize export directory
@@ -30,6 +33,60 @@ public class ExportUtil {
         }
     }
     
+    /**
+     * Write attendance records as CSV
+     * @param attendanceList List of attendance records
+     * @param out Writer to write to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeAttendanceCSV(List<Attendance> attendanceList, Writer out) throws IOException {
+        CsvEncoder csv = new CsvEncoder(out);
+        
+        writeAttendanceCSVHeader(csv);
+        
+        // Write attendance data
+        for (Attendance attendance : attendanceList) {
+            writeAttendanceCSVRow(csv, attendance);
+        }
+        
+        csv.flush();
+    }
+    
+    /**
+     * Write the attendance CSV header line
+     * Use with writeAttendanceCSVRow to stream rows as they are read from the database
+     * @param csv Encoder to write to
+     */
+    public static void writeAttendanceCSVHeader(CsvEncoder csv) throws IOException {
+        csv.line("Date,Roll Number,Student Name,Subject,Status,Remarks,Marked By");
+    }
+    
+    /**
+     * Write one attendance CSV line
+     * @param csv Encoder to write to
+     * @param attendance Attendance record
+     */
+    public static void writeAttendanceCSVRow(CsvEncoder csv, Attendance attendance) throws IOException {
+        csv.field(attendance.getAttendanceDate())
+           .field(attendance.getRollNumber())
+           .field(attendance.getStudentName())
+           .field(attendance.getSubjectCode())
+           .field(attendance.getStatusString())
+           .field(attendance.getRemarks())
+           .field(attendance.getMarkedByName())
+           .endRow();
+    }
+    
+    /**
+     * Write attendance records as CSV
+     * @param attendanceList List of attendance records
+     * @param out Stream to write UTF-8 text to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeAttendanceCSV(List<Attendance> attendanceList, OutputStream out) throws IOException {
+        writeAttendanceCSV(attendanceList, toWriter(out));
+    }
+    
     /**
      * Export attendance report to CSV
      * @param attendanceList List of attendance records
@@ -37,26 +94,10 @@ public class ExportUtil {
      * @return File path if successful, null otherwise
      */
     public static String exportAttendanceToCSV(List<Attendance> attendanceList, String fileName) {
-        String timestamp = dateFormat.format(new Date());
-        String filePath = EXPORT_DIR + fileName + "_" + timestamp + ".csv";
+        String filePath = EXPORT_DIR + timestampedFileName(fileName, "csv");
         
         try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            
-            // Write CSV header
-            writer.println("Date,Roll Number,Student Name,Subject,Status,Remarks,Marked By");
-            
-            // Write attendance data
-            for (Attendance attendance : attendanceList) {
-                writer.printf("%s,%s,%s,%s,%s,%s,%s%n",
-                    attendance.getFormattedDate(),
-                    attendance.getRollNumber() != null ? attendance.getRollNumber() : "",
-                    attendance.getStudentName() != null ? attendance.getStudentName() : "",
-                    attendance.getSubjectCode() != null ? attendance.getSubjectCode() : "",
-                    attendance.getStatusString(),
-                    attendance.getRemarks() != null ? attendance.getRemarks().replace(",", ";") : "",
-                    attendance.getMarkedByName() != null ? attendance.getMarkedByName() : ""
-                );
-            }
+            writeAttendanceCSV(attendanceList, writer);
             
             System.out.println("Attendance report exported to: " + filePath);
             return filePath;
@@ -69,6 +110,45 @@ public class ExportUtil {
         return null;
     }
     
+    /**
+     * Write marks records as CSV
+     * @param marksList List of marks records
+     * @param out Writer to write to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeMarksCSV(List<Marks> marksList, Writer out) throws IOException {
+        CsvEncoder csv = new CsvEncoder(out);
+        
+        // Write CSV header
+        csv.line("Roll Number,Student Name,Subject,Assessment Type,Marks Obtained,Max Marks,Percentage,Grade,Date");
+        
+        // Write marks data
+        for (Marks marks : marksList) {
+            csv.field(marks.getRollNumber())
+               .field(marks.getStudentName())
+               .field(marks.getSubjectCode())
+               .field(marks.getAssessmentTypeName())
+               .field(marks.getMarksObtained(), 2)
+               .field(marks.getMaxMarks(), 2)
+               .percentField(marks.getPercentage(), 2)
+               .field(marks.calculateGrade())
+               .field(marks.getAssessmentDate())
+               .endRow();
+        }
+        
+        csv.flush();
+    }
+    
+    /**
+     * Write marks records as CSV
+     * @param marksList List of marks records
+     * @param out Stream to write UTF-8 text to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeMarksCSV(List<Marks> marksList, OutputStream out) throws IOException {
+        writeMarksCSV(marksList, toWriter(out));
+    }
+    
     /**
      * Export marks report to CSV
      * @param marksList List of marks records
@@ -76,28 +156,10 @@ public class ExportUtil {
      * @return File path if successful, null otherwise
      */
     public static String exportMarksToCSV(List<Marks> marksList, String fileName) {
-        String timestamp = dateFormat.format(new Date());
-        String filePath = EXPORT_DIR + fileName + "_" + timestamp + ".csv";
+        String filePath = EXPORT_DIR + timestampedFileName(fileName, "csv");
         
         try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            
-            // Write CSV header
-            writer.println("Roll Number,Student Name,Subject,Assessment Type,Marks Obtained,Max Marks,Percentage,Grade,Date");
-            
-            // Write marks data
-            for (Marks marks : marksList) {
-                writer.printf("%s,%s,%s,%s,%.2f,%.2f,%.2f%%,%s,%s%n",
-                    marks.getRollNumber() != null ? marks.getRollNumber() : "",
-                    marks.getStudentName() != null ? marks.getStudentName() : "",
-                    marks.getSubjectCode() != null ? marks.getSubjectCode() : "",
-                    marks.getAssessmentTypeName() != null ? marks.getAssessmentTypeName() : "",
-                    marks.getMarksObtained(),
-                    marks.getMaxMarks(),
-                    marks.getPercentage(),
-                    marks.calculateGrade(),
-                    marks.getAssessmentDate() != null ? marks.getAssessmentDate().toString() : ""
-                );
-            }
+            writeMarksCSV(marksList, writer);
             
             System.out.println("Marks report exported to: " + filePath);
             return filePath;
@@ -110,6 +172,111 @@ public class ExportUtil {
         return null;
     }
     
+    /**
+     * Write a comprehensive student report as CSV
+     * @param report Report object
+     * @param out Writer to write to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeStudentReportCSV(Report report, Writer out) throws IOException {
+        CsvEncoder csv = new CsvEncoder(out);
+        
+        // Student Information
+        csv.line("STUDENT PERFORMANCE REPORT");
+        csv.line("");
+        csv.line("Student Information");
+        csv.field("Name").field(report.getStudentName()).endRow();
+        csv.field("Roll Number").field(report.getRollNumber()).endRow();
+        csv.field("Email").field(report.getEmail()).endRow();
+        csv.field("Semester").field(report.getSemester()).endRow();
+        csv.line("");
+        
+        // Subject Information
+        csv.line("Subject Information");
+        csv.field("Subject").field(report.getSubjectName()).endRow();
+        csv.field("Subject Code").field(report.getSubjectCode()).endRow();
+        csv.field("Credits").field(report.getCredits()).endRow();
+        csv.field("Academic Year").field(report.getAcademicYear()).endRow();
+        csv.line("");
+        
+        // Attendance Statistics
+        csv.line("Attendance Statistics");
+        csv.field("Total Classes").field(report.getTotalClasses()).endRow();
+        csv.field("Classes Attended").field(report.getClassesAttended()).endRow();
+        csv.field("Classes Absent").field(report.getClassesAbsent()).endRow();
+        csv.field("Classes Late").field(report.getClassesLate()).endRow();
+        csv.field("Attendance Percentage").percentField(report.getAttendancePercentage(), 2).endRow();
+        csv.line("");
+        
+        // Marks Statistics
+        csv.line("Marks Statistics");
+        csv.field("Total Marks Obtained").field(report.getTotalMarksObtained(), 2).endRow();
+        csv.field("Total Max Marks").field(report.getTotalMaxMarks(), 2).endRow();
+        csv.field("Overall Percentage").percentField(report.getOverallPercentage(), 2).endRow();
+        csv.field("Overall Grade").field(report.getOverallGrade()).endRow();
+        csv.field("Performance Level").field(report.getPerformanceLevel()).endRow();
+        csv.line("");
+        
+        // Assessment-wise Marks
+        if (report.getAssessmentMarks() != null && !report.getAssessmentMarks().isEmpty()) {
+            csv.line("Assessment-wise Performance");
+            csv.line("Assessment Type,Marks Obtained,Max Marks,Percentage,Grade,Weightage");
+            
+            for (Report.AssessmentMark am : report.getAssessmentMarks()) {
+                csv.field(am.getAssessmentType())
+                   .field(am.getMarksObtained(), 2)
+                   .field(am.getMaxMarks(), 2)
+                   .percentField(am.getPercentage(), 2)
+                   .field(am.getGrade())
+                   .percentField(am.getWeightage(), 2)
+                   .endRow();
+            }
+            csv.line("");
+        }
+        
+        // Risk Analysis
+        csv.line("Risk Analysis");
+        csv.field("At Risk").field(report.isAtRisk() ? "Yes" : "No").endRow();
+        csv.field("Risk Level").field(report.getRiskLevel()).endRow();
+        csv.line("");
+        
+        // Strengths and Weaknesses
+        if (report.getStrengths() != null && !report.getStrengths().isEmpty()) {
+            csv.line("Strengths");
+            for (String strength : report.getStrengths()) {
+                csv.field("- " + strength).endRow();
+            }
+            csv.line("");
+        }
+        
+        if (report.getWeaknesses() != null && !report.getWeaknesses().isEmpty()) {
+            csv.line("Areas for Improvement");
+            for (String weakness : report.getWeaknesses()) {
+                csv.field("- " + weakness).endRow();
+            }
+            csv.line("");
+        }
+        
+        if (report.getRecommendations() != null && !report.getRecommendations().isEmpty()) {
+            csv.line("Recommendations");
+            for (String recommendation : report.getRecommendations()) {
+                csv.field("- " + recommendation).endRow();
+            }
+        }
+        
+        csv.flush();
+    }
+    
+    /**
+     * Write a comprehensive student report as CSV
+     * @param report Report object
+     * @param out Stream to write UTF-8 text to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeStudentReportCSV(Report report, OutputStream out) throws IOException {
+        writeStudentReportCSV(report, toWriter(out));
+    }
+    
     /**
      * Export comprehensive student report to CSV
      * @param report Report object
@@ -117,94 +284,10 @@ public class ExportUtil {
      * @return File path if successful, null otherwise
      */
     public static String exportStudentReportToCSV(Report report, String fileName) {
-        String timestamp = dateFormat.format(new Date());
-        String filePath = EXPORT_DIR + fileName + "_" + timestamp + ".csv";
+        String filePath = EXPORT_DIR + timestampedFileName(fileName, "csv");
         
         try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            
-            // Student Information
-            writer.println("STUDENT PERFORMANCE REPORT");
-            writer.println();
-            writer.println("Student Information");
-            writer.printf("Name,%s%n", report.getStudentName());
-            writer.printf("Roll Number,%s%n", report.getRollNumber());
-            writer.printf("Email,%s%n", report.getEmail());
-            writer.printf("Semester,%d%n", report.getSemester());
-            writer.println();
-            
-            // Subject Information
-            writer.println("Subject Information");
-            writer.printf("Subject,%s%n", report.getSubjectName());
-            writer.printf("Subject Code,%s%n", report.getSubjectCode());
-            writer.printf("Credits,%d%n", report.getCredits());
-            writer.printf("Academic Year,%s%n", report.getAcademicYear());
-            writer.println();
-            
-            // Attendance Statistics
-            writer.println("Attendance Statistics");
-            writer.printf("Total Classes,%d%n", report.getTotalClasses());
-            writer.printf("Classes Attended,%d%n", report.getClassesAttended());
-            writer.printf("Classes Absent,%d%n", report.getClassesAbsent());
-            writer.printf("Classes Late,%d%n", report.getClassesLate());
-            writer.printf("Attendance Percentage,%s%n", report.getFormattedAttendancePercentage());
-            writer.println();
-            
-            // Marks Statistics
-            writer.println("Marks Statistics");
-            writer.printf("Total Marks Obtained,%.2f%n", report.getTotalMarksObtained());
-            writer.printf("Total Max Marks,%.2f%n", report.getTotalMaxMarks());
-            writer.printf("Overall Percentage,%s%n", report.getFormattedOverallPercentage());
-            writer.printf("Overall Grade,%s%n", report.getOverallGrade());
-            writer.printf("Performance Level,%s%n", report.getPerformanceLevel());
-            writer.println();
-            
-            // Assessment-wise Marks
-            if (report.getAssessmentMarks() != null && !report.getAssessmentMarks().isEmpty()) {
-                writer.println("Assessment-wise Performance");
-                writer.println("Assessment Type,Marks Obtained,Max Marks,Percentage,Grade,Weightage");
-                
-                for (Report.AssessmentMark am : report.getAssessmentMarks()) {
-                    writer.printf("%s,%.2f,%.2f,%.2f%%,%s,%.2f%%%n",
-                        am.getAssessmentType(),
-                        am.getMarksObtained(),
-                        am.getMaxMarks(),
-                        am.getPercentage(),
-                        am.getGrade(),
-                        am.getWeightage()
-                    );
-                }
-                writer.println();
-            }
-            
-            // Risk Analysis
-            writer.println("Risk Analysis");
-            writer.printf("At Risk,%s%n", report.isAtRisk() ? "Yes" : "No");
-            writer.printf("Risk Level,%s%n", report.getRiskLevel());
-            writer.println();
-            
-            // Strengths and Weaknesses
-            if (report.getStrengths() != null && !report.getStrengths().isEmpty()) {
-                writer.println("Strengths");
-                for (String strength : report.getStrengths()) {
-                    writer.printf("- %s%n", strength);
-                }
-                writer.println();
-            }
-            
-            if (report.getWeaknesses() != null && !report.getWeaknesses().isEmpty()) {
-                writer.println("Areas for Improvement");
-                for (String weakness : report.getWeaknesses()) {
-                    writer.printf("- %s%n", weakness);
-                }
-                writer.println();
-            }
-            
-            if (report.getRecommendations() != null && !report.getRecommendations().isEmpty()) {
-                writer.println("Recommendations");
-                for (String recommendation : report.getRecommendations()) {
-                    writer.printf("- %s%n", recommendation);
-                }
-            }
+            writeStudentReportCSV(report, writer);
             
             System.out.println("Student report exported to: " + filePath);
             return filePath;
@@ -217,6 +300,48 @@ public class ExportUtil {
         return null;
     }
     
+    /**
+     * Write multiple student reports as CSV
+     * @param reports List of reports
+     * @param out Writer to write to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeMultipleReportsCSV(List<Report> reports, Writer out) throws IOException {
+        CsvEncoder csv = new CsvEncoder(out);
+        
+        // Write CSV header
+        csv.line("Roll Number,Student Name,Subject,Attendance %,Total Classes,Classes Attended," +
+                 "Overall Marks %,Grade,Performance Level,At Risk,Risk Level");
+        
+        // Write report data
+        for (Report report : reports) {
+            csv.field(report.getRollNumber())
+               .field(report.getStudentName())
+               .field(report.getSubjectCode())
+               .field(report.getAttendancePercentage(), 2)
+               .field(report.getTotalClasses())
+               .field(report.getClassesAttended())
+               .field(report.getOverallPercentage(), 2)
+               .field(report.getOverallGrade())
+               .field(report.getPerformanceLevel())
+               .field(report.isAtRisk() ? "Yes" : "No")
+               .field(report.getRiskLevel())
+               .endRow();
+        }
+        
+        csv.flush();
+    }
+    
+    /**
+     * Write multiple student reports as CSV
+     * @param reports List of reports
+     * @param out Stream to write UTF-8 text to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeMultipleReportsCSV(List<Report> reports, OutputStream out) throws IOException {
+        writeMultipleReportsCSV(reports, toWriter(out));
+    }
+    
     /**
      * Export multiple student reports to CSV
      * @param reports List of reports
@@ -224,31 +349,10 @@ public class ExportUtil {
      * @return File path if successful, null otherwise
      */
     public static String exportMultipleReportsToCSV(List<Report> reports, String fileName) {
-        String timestamp = dateFormat.format(new Date());
-        String filePath = EXPORT_DIR + fileName + "_" + timestamp + ".csv";
+        String filePath = EXPORT_DIR + timestampedFileName(fileName, "csv");
         
         try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            
-            // Write CSV header
-            writer.println("Roll Number,Student Name,Subject,Attendance %,Total Classes,Classes Attended," +
-                         "Overall Marks %,Grade,Performance Level,At Risk,Risk Level");
-            
-            // Write report data
-            for (Report report : reports) {
-                writer.printf("%s,%s,%s,%.2f,%d,%d,%.2f,%s,%s,%s,%s%n",
-                    report.getRollNumber() != null ? report.getRollNumber() : "",
-                    report.getStudentName() != null ? report.getStudentName() : "",
-                    report.getSubjectCode() != null ? report.getSubjectCode() : "",
-                    report.getAttendancePercentage(),
-                    report.getTotalClasses(),
-                    report.getClassesAttended(),
-                    report.getOverallPercentage(),
-                    report.getOverallGrade() != null ? report.getOverallGrade() : "",
-                    report.getPerformanceLevel() != null ? report.getPerformanceLevel() : "",
-                    report.isAtRisk() ? "Yes" : "No",
-                    report.getRiskLevel() != null ? report.getRiskLevel() : ""
-                );
-            }
+            writeMultipleReportsCSV(reports, writer);
             
             System.out.println("Multiple reports exported to: " + filePath);
             return filePath;
@@ -261,6 +365,43 @@ public class ExportUtil {
         return null;
     }
     
+    /**
+     * Write an attendance summary as CSV
+     * @param summaryData List of summary data maps
+     * @param out Writer to write to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeAttendanceSummaryCSV(List<Map<String, Object>> summaryData, Writer out) throws IOException {
+        CsvEncoder csv = new CsvEncoder(out);
+        
+        // Write CSV header
+        csv.line("Date,Total Students,Present,Absent,Late,Attendance Percentage");
+        
+        // Write summary data
+        for (Map<String, Object> data : summaryData) {
+            Object percentage = data.get("percentage");
+            csv.field(data.get("date"))
+               .field(data.get("totalStudents"))
+               .field(data.get("present"))
+               .field(data.get("absent"))
+               .field(data.get("late"))
+               .percentField(percentage instanceof Number ? ((Number) percentage).doubleValue() : 0.0, 2)
+               .endRow();
+        }
+        
+        csv.flush();
+    }
+    
+    /**
+     * Write an attendance summary as CSV
+     * @param summaryData List of summary data maps
+     * @param out Stream to write UTF-8 text to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeAttendanceSummaryCSV(List<Map<String, Object>> summaryData, OutputStream out) throws IOException {
+        writeAttendanceSummaryCSV(summaryData, toWriter(out));
+    }
+    
     /**
      * Export attendance summary to CSV
      * @param summaryData List of summary data maps
@@ -268,25 +409,10 @@ public class ExportUtil {
      * @return File path if successful, null otherwise
      */
     public static String exportAttendanceSummaryToCSV(List<Map<String, Object>> summaryData, String fileName) {
-        String timestamp = dateFormat.format(new Date());
-        String filePath = EXPORT_DIR + fileName + "_" + timestamp + ".csv";
+        String filePath = EXPORT_DIR + timestampedFileName(fileName, "csv");
         
         try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            
-            // Write CSV header
-            writer.println("Date,Total Students,Present,Absent,Late,Attendance Percentage");
-            
-            // Write summary data
-            for (Map<String, Object> data : summaryData) {
-                writer.printf("%s,%d,%d,%d,%d,%.2f%%%n",
-                    data.get("date"),
-                    data.get("totalStudents"),
-                    data.get("present"),
-                    data.get("absent"),
-                    data.get("late"),
-                    data.get("percentage")
-                );
-            }
+            writeAttendanceSummaryCSV(summaryData, writer);
             
             System.out.println("Attendance summary exported to: " + filePath);
             return filePath;
@@ -300,120 +426,142 @@ public class ExportUtil {
     }
     
     /**
-     * Generate simple text-based PDF report (without external libraries)
-     * This is a placeholder - for production, use iText or Apache PDFBox
+     * Write a student report as formatted text
      * @param report Report object
-     * @param fileName File name
-     * @return File path if successful, null otherwise
+     * @param out Writer to write to, flushed but not closed
+     * @throws IOException if writing fails
      */
-    public static String exportReportToText(Report report, String fileName) {
-        String timestamp = dateFormat.format(new Date());
-        String filePath = EXPORT_DIR + fileName + "_" + timestamp + ".txt";
+    public static void writeReportText(Report report, Writer out) throws IOException {
+        PrintWriter writer = toPrintWriter(out);
         
-        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
-            
-            writer.println("═══════════════════════════════════════════════════════════");
-            writer.println("              STUDENT PERFORMANCE REPORT");
-            writer.println("         SRM Institute of Science and Technology");
-            writer.println("═══════════════════════════════════════════════════════════");
-            writer.println();
-            
-            // Student Information
-            writer.println("STUDENT INFORMATION");
+        writer.println("═══════════════════════════════════════════════════════════");
+        writer.println("              STUDENT PERFORMANCE REPORT");
+        writer.println("         SRM Institute of Science and Technology");
+        writer.println("═══════════════════════════════════════════════════════════");
+        writer.println();
+        
+        // Student Information
+        writer.println("STUDENT INFORMATION");
+        writer.println("───────────────────────────────────────────────────────────");
+        writer.printf("Name           : %s%n", report.getStudentName());
+        writer.printf("Roll Number    : %s%n", report.getRollNumber());
+        writer.printf("Email          : %s%n", report.getEmail());
+        writer.printf("Semester       : %d%n", report.getSemester());
+        writer.println();
+        
+        // Subject Information
+        writer.println("SUBJECT INFORMATION");
+        writer.println("───────────────────────────────────────────────────────────");
+        writer.printf("Subject        : %s%n", report.getSubjectName());
+        writer.printf("Subject Code   : %s%n", report.getSubjectCode());
+        writer.printf("Credits        : %d%n", report.getCredits());
+        writer.printf("Academic Year  : %s%n", report.getAcademicYear());
+        writer.println();
+        
+        // Attendance Statistics
+        writer.println("ATTENDANCE STATISTICS");
+        writer.println("───────────────────────────────────────────────────────────");
+        writer.printf("Total Classes       : %d%n", report.getTotalClasses());
+        writer.printf("Classes Attended    : %d%n", report.getClassesAttended());
+        writer.printf("Classes Absent      : %d%n", report.getClassesAbsent());
+        writer.printf("Classes Late        : %d%n", report.getClassesLate());
+        writer.printf("Attendance %%        : %s%n", report.getFormattedAttendancePercentage());
+        writer.println();
+        
+        // Marks Statistics
+        writer.println("MARKS STATISTICS");
+        writer.println("───────────────────────────────────────────────────────────");
+        writer.printf("Total Marks Obtained : %.2f%n", report.getTotalMarksObtained());
+        writer.printf("Total Max Marks      : %.2f%n", report.getTotalMaxMarks());
+        writer.printf("Overall Percentage   : %s%n", report.getFormattedOverallPercentage());
+        writer.printf("Overall Grade        : %s%n", report.getOverallGrade());
+        writer.printf("Performance Level    : %s%n", report.getPerformanceLevel());
+        writer.println();
+        
+        // Assessment-wise Performance
+        if (report.getAssessmentMarks() != null && !report.getAssessmentMarks().isEmpty()) {
+            writer.println("ASSESSMENT-WISE PERFORMANCE");
             writer.println("───────────────────────────────────────────────────────────");
-            writer.printf("Name           : %s%n", report.getStudentName());
-            writer.printf("Roll Number    : %s%n", report.getRollNumber());
-            writer.printf("Email          : %s%n", report.getEmail());
-            writer.printf("Semester       : %d%n", report.getSemester());
-            writer.println();
-            
-            // Subject Information
-            writer.println("SUBJECT INFORMATION");
+            writer.printf("%-20s %-10s %-10s %-12s %-8s%n", 
+                "Assessment", "Obtained", "Max", "Percentage", "Grade");
             writer.println("───────────────────────────────────────────────────────────");
-            writer.printf("Subject        : %s%n", report.getSubjectName());
-            writer.printf("Subject Code   : %s%n", report.getSubjectCode());
-            writer.printf("Credits        : %d%n", report.getCredits());
-            writer.printf("Academic Year  : %s%n", report.getAcademicYear());
-            writer.println();
             
-            // Attendance Statistics
-            writer.println("ATTENDANCE STATISTICS");
-            writer.println("───────────────────────────────────────────────────────────");
-            writer.printf("Total Classes       : %d%n", report.getTotalClasses());
-            writer.printf("Classes Attended    : %d%n", report.getClassesAttended());
-            writer.printf("Classes Absent      : %d%n", report.getClassesAbsent());
-            writer.printf("Classes Late        : %d%n", report.getClassesLate());
-            writer.printf("Attendance %%        : %s%n", report.getFormattedAttendancePercentage());
+            for (Report.AssessmentMark am : report.getAssessmentMarks()) {
+                writer.printf("%-20s %-10.2f %-10.2f %-12.2f%% %-8s%n",
+                    am.getAssessmentType(),
+                    am.getMarksObtained(),
+                    am.getMaxMarks(),
+                    am.getPercentage(),
+                    am.getGrade()
+                );
+            }
             writer.println();
-            
-            // Marks Statistics
-            writer.println("MARKS STATISTICS");
+        }
+        
+        // Risk Analysis
+        writer.println("RISK ANALYSIS");
+        writer.println("───────────────────────────────────────────────────────────");
+        writer.printf("At Risk        : %s%n", report.isAtRisk() ? "Yes" : "No");
+        writer.printf("Risk Level     : %s%n", report.getRiskLevel());
+        writer.println();
+        
+        // Strengths, Weaknesses, and Recommendations
+        if (report.getStrengths() != null && !report.getStrengths().isEmpty()) {
+            writer.println("STRENGTHS");
             writer.println("───────────────────────────────────────────────────────────");
-            writer.printf("Total Marks Obtained : %.2f%n", report.getTotalMarksObtained());
-            writer.printf("Total Max Marks      : %.2f%n", report.getTotalMaxMarks());
-            writer.printf("Overall Percentage   : %s%n", report.getFormattedOverallPercentage());
-            writer.printf("Overall Grade        : %s%n", report.getOverallGrade());
-            writer.printf("Performance Level    : %s%n", report.getPerformanceLevel());
-            writer.println();
-            
-            // Assessment-wise Performance
-            if (report.getAssessmentMarks() != null && !report.getAssessmentMarks().isEmpty()) {
-                writer.println("ASSESSMENT-WISE PERFORMANCE");
-                writer.println("───────────────────────────────────────────────────────────");
-                writer.printf("%-20s %-10s %-10s %-12s %-8s%n", 
-                    "Assessment", "Obtained", "Max", "Percentage", "Grade");
-                writer.println("───────────────────────────────────────────────────────────");
-                
-                for (Report.AssessmentMark am : report.getAssessmentMarks()) {
-                    writer.printf("%-20s %-10.2f %-10.2f %-12.2f%% %-8s%n",
-                        am.getAssessmentType(),
-                        am.getMarksObtained(),
-                        am.getMaxMarks(),
-                        am.getPercentage(),
-                        am.getGrade()
-                    );
-                }
-                writer.println();
+            for (String strength : report.getStrengths()) {
+                writer.printf("• %s%n", strength);
             }
-            
-            // Risk Analysis
-            writer.println("RISK ANALYSIS");
-            writer.println("───────────────────────────────────────────────────────────");
-            writer.printf("At Risk        : %s%n", report.isAtRisk() ? "Yes" : "No");
-            writer.printf("Risk Level     : %s%n", report.getRiskLevel());
             writer.println();
-            
-            // Strengths, Weaknesses, and Recommendations
-            if (report.getStrengths() != null && !report.getStrengths().isEmpty()) {
-                writer.println("STRENGTHS");
-                writer.println("───────────────────────────────────────────────────────────");
-                for (String strength : report.getStrengths()) {
-                    writer.printf("• %s%n", strength);
-                }
-                writer.println();
-            }
-            
-            if (report.getWeaknesses() != null && !report.getWeaknesses().isEmpty()) {
-                writer.println("AREAS FOR IMPROVEMENT");
-                writer.println("───────────────────────────────────────────────────────────");
-                for (String weakness : report.getWeaknesses()) {
-                    writer.printf("• %s%n", weakness);
-                }
-                writer.println();
+        }
+        
+        if (report.getWeaknesses() != null && !report.getWeaknesses().isEmpty()) {
+            writer.println("AREAS FOR IMPROVEMENT");
+            writer.println("───────────────────────────────────────────────────────────");
+            for (String weakness : report.getWeaknesses()) {
+                writer.printf("• %s%n", weakness);
             }
-            
-            if (report.getRecommendations() != null && !report.getRecommendations().isEmpty()) {
-                writer.println("RECOMMENDATIONS");
-                writer.println("───────────────────────────────────────────────────────────");
-                for (String recommendation : report.getRecommendations()) {
-                    writer.printf("• %s%n", recommendation);
-                }
-                writer.println();
+            writer.println();
+        }
+        
+        if (report.getRecommendations() != null && !report.getRecommendations().isEmpty()) {
+            writer.println("RECOMMENDATIONS");
+            writer.println("───────────────────────────────────────────────────────────");
+            for (String recommendation : report.getRecommendations()) {
+                writer.printf("• %s%n", recommendation);
             }
-            
-            writer.println("═══════════════════════════════════════════════════════════");
-            writer.printf("Generated on: %s%n", new SimpleDateFormat("dd-MMM-yyyy HH:mm:ss").format(new Date()));
-            writer.println("═══════════════════════════════════════════════════════════");
+            writer.println();
+        }
+        
+        writer.println("═══════════════════════════════════════════════════════════");
+        writer.printf("Generated on: %s%n", LocalDateTime.now().format(GENERATED_ON));
+        writer.println("═══════════════════════════════════════════════════════════");
+        
+        finish(writer);
+    }
+    
+    /**
+     * Write a student report as formatted text
+     * @param report Report object
+     * @param out Stream to write UTF-8 text to, flushed but not closed
+     * @throws IOException if writing fails
+     */
+    public static void writeReportText(Report report, OutputStream out) throws IOException {
+        writeReportText(report, toWriter(out));
+    }
+    
+    /**
+     * Generate simple text-based PDF report (without external libraries)
+     * This is a placeholder - for production, use iText or Apache PDFBox
+     * @param report Report object
+     * @param fileName File name
+     * @return File path if successful, null otherwise
+     */
+    public static String exportReportToText(Report report, String fileName) {
+        String filePath = EXPORT_DIR + timestampedFileName(fileName, "txt");
+        
+        try (PrintWriter writer = new PrintWriter(new FileWriter(filePath))) {
+            writeReportText(report, writer);
             
             System.out.println("Report exported to: " + filePath);
             return filePath;
@@ -426,6 +574,42 @@ public class ExportUtil {
         return null;
     }
     
+    /**
+     * Build a download file name with the same timestamp suffix as file exports
+     * @param fileName Base file name
+     * @param extension File extension without the dot
+     * @return File name such as report_RA01_CSE101_2024-09-01_10-15-00.csv
+     */
+    public static String timestampedFileName(String fileName, String extension) {
+        return fileName + "_" + LocalDateTime.now().format(FILE_TIMESTAMP) + "." + extension;
+    }
+    
+    /**
+     * Wrap a Writer for printf-style output, reusing it if it already is a PrintWriter
+     */
+    private static PrintWriter toPrintWriter(Writer out) {
+        return out instanceof PrintWriter ? (PrintWriter) out : new PrintWriter(out);
+    }
+    
+    /**
+     * Buffered UTF-8 writer over an output stream
+     */
+    private static Writer toWriter(OutputStream out) {
+        return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+    }
+    
+    /**
+     * Flush output and surface errors that PrintWriter swallows
+     * @param writer Writer to finish
+     * @throws IOException if any earlier write failed
+     */
+    public static void finish(PrintWriter writer) throws IOException {
+        writer.flush();
+        if (writer.checkError()) {
+            throw new IOException("Error writing export output");
+        }
+    }
+    
     /**
      * Delete old export files (cleanup)
      * @param daysOld Delete files older than specified days
@@ -0,0 +1,366 @@
+package utils;
+
+import config.DBConnection;
+import org.json.JSONException;
+
+import java.io.Flushable;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.Collection;
+
+/**
+ * Streaming JSON writer for servlet responses
+ * Writes JSON straight to the response Writer as values are produced, instead
+ * of building a JSONObject tree and its toString() copy first. Output matches
+ * org.json: members with null values are left out and numbers are formatted
+ * the way JSONObject.numberToString formats them.
+ *
+ * Servlets use it when json.streaming.enabled is true in db.properties (the
+ * default); set it to false to go back to building JSONObject responses.
+ */
+public class JsonStreamWriter implements Flushable {
+
+    private static final int DEFAULT_BUFFER_SIZE = 4096;
+    private static final char[] HEX = "0123456789abcdef".toCharArray();
+
+    // Double.toString switches to exponent notation from 1e7
+    private static final double MAX_PLAIN_INTEGRAL = 1e7;
+
+    private static volatile Boolean enabled;
+
+    private final Writer out;
+    private final char[] buffer;
+    private int position;
+
+    // Whether each open object or array already has a member, innermost last
+    private boolean[] hasMember = new boolean[16];
+    private int depth;
+    private boolean afterName;
+
+    /**
+     * Create a writer with the default buffer size
+     * @param out Writer to write JSON to
+     */
+    public JsonStreamWriter(Writer out) {
+        this(out, DEFAULT_BUFFER_SIZE);
+    }
+
+    /**
+     * Create a writer
+     * @param out Writer to write JSON to
+     * @param bufferSize Characters buffered before writing to out
+     */
+    public JsonStreamWriter(Writer out, int bufferSize) {
+        this.out = out;
+        this.buffer = new char[Math.max(bufferSize, 64)];
+    }
+
+    /**
+     * Whether servlets should stream JSON responses
+     */
+    public static boolean isEnabled() {
+        if (enabled == null) {
+            enabled = DBConnection.getBooleanSetting("json.streaming.enabled", true);
+        }
+        return enabled;
+    }
+
+    public JsonStreamWriter beginObject() throws IOException {
+        beforeValue();
+        open('{');
+        return this;
+    }
+
+    public JsonStreamWriter endObject() throws IOException {
+        close('}');
+        return this;
+    }
+
+    public JsonStreamWriter beginArray() throws IOException {
+        beforeValue();
+        open('[');
+        return this;
+    }
+
+    public JsonStreamWriter endArray() throws IOException {
+        close(']');
+        return this;
+    }
+
+    /**
+     * Write a member name, to be followed by exactly one value
+     * @param name Member name
+     * @return this writer
+     */
+    public JsonStreamWriter name(String name) throws IOException {
+        if (afterName) {
+            throw new JSONException("Expected a value after " + name);
+        }
+        beforeValue();
+        appendQuoted(name);
+        append(':');
+        afterName = true;
+        return this;
+    }
+
+    /**
+     * Write a string value
+     * @param value Value, null is written as null
+     * @return this writer
+     */
+    public JsonStreamWriter value(String value) throws IOException {
+        beforeValue();
+        if (value == null) {
+            append("null");
+        } else {
+            appendQuoted(value);
+        }
+        return this;
+    }
+
+    public JsonStreamWriter value(long value) throws IOException {
+        beforeValue();
+        appendLong(value);
+        return this;
+    }
+
+    /**
+     * Write a number value
+     * @param value Value, must be finite
+     * @return this writer
+     */
+    public JsonStreamWriter value(double value) throws IOException {
+        beforeValue();
+        appendDouble(value);
+        return this;
+    }
+
+    public JsonStreamWriter value(boolean value) throws IOException {
+        beforeValue();
+        append(value ? "true" : "false");
+        return this;
+    }
+
+    /**
+     * Write a string member, left out when value is null like JSONObject.put
+     * @param name Member name
+     * @param value Member value
+     * @return this writer
+     */
+    public JsonStreamWriter field(String name, String value) throws IOException {
+        if (value != null) {
+            name(name).value(value);
+        }
+        return this;
+    }
+
+    public JsonStreamWriter field(String name, long value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonStreamWriter field(String name, double value) throws IOException {
+        return name(name).value(value);
+    }
+
+    public JsonStreamWriter field(String name, boolean value) throws IOException {
+        return name(name).value(value);
+    }
+
+    /**
+     * Write an array of strings, an empty array when values is null
+     * like new JSONArray(collection)
+     * @param name Member name
+     * @param values Array elements
+     * @return this writer
+     */
+    public JsonStreamWriter stringArray(String name, Collection<String> values) throws IOException {
+        name(name).beginArray();
+        if (values != null) {
+            for (String value : values) {
+                value(value);
+            }
+        }
+        return endArray();
+    }
+
+    /**
+     * Write buffered characters and flush the underlying Writer
+     */
+    @Override
+    public void flush() throws IOException {
+        drain();
+        out.flush();
+    }
+
+    /**
+     * Write buffered characters to the underlying Writer without flushing it
+     */
+    public void drain() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+
+    private void beforeValue() throws IOException {
+        if (afterName) {
+            afterName = false;
+            return;
+        }
+        if (depth > 0) {
+            if (hasMember[depth - 1]) {
+                append(',');
+            }
+            hasMember[depth - 1] = true;
+        }
+    }
+
+    private void open(char bracket) throws IOException {
+        if (depth == hasMember.length) {
+            hasMember = Arrays.copyOf(hasMember, depth * 2);
+        }
+        hasMember[depth++] = false;
+        append(bracket);
+    }
+
+    private void close(char bracket) throws IOException {
+        if (depth == 0 || afterName) {
+            throw new JSONException("Misplaced " + bracket);
+        }
+        depth--;
+        append(bracket);
+    }
+
+    private void appendDouble(double value) throws IOException {
+        if (Double.isNaN(value) || Double.isInfinite(value)) {
+            throw new JSONException("JSON does not allow non-finite numbers.");
+        }
+
+        if (value == (long) value && Math.abs(value) < MAX_PLAIN_INTEGRAL) {
+            if (value == 0 && 1 / value < 0) {
+                append("-0");
+            } else {
+                appendLong((long) value);
+            }
+            return;
+        }
+
+        // Same trimming as JSONObject.numberToString: drop trailing zeros
+        // after the point unless the number has an exponent
+        String string = Double.toString(value);
+        int end = string.length();
+        if (string.indexOf('E') < 0) {
+            while (string.charAt(end - 1) == '0') {
+                end--;
+            }
+            if (string.charAt(end - 1) == '.') {
+                end--;
+            }
+        }
+        append(string, end);
+    }
+
+    private void appendLong(long value) throws IOException {
+        if (value == Long.MIN_VALUE) {
+            append(Long.toString(value));
+            return;
+        }
+        if (value < 0) {
+            append('-');
+            value = -value;
+        }
+
+        // 19 digits is enough for any positive long
+        if (buffer.length - position < 20) {
+            drain();
+        }
+        int digits = 1;
+        for (long v = value / 10; v > 0; v /= 10) {
+            digits++;
+        }
+        int end = position + digits;
+        for (int i = end - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + (value % 10));
+            value /= 10;
+        }
+        position = end;
+    }
+
+    /**
+     * Append a quoted string using the escapes JSONObject.quote uses
+     */
+    private void appendQuoted(String value) throws IOException {
+        append('"');
+
+        char previous = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\':
+                case '"':
+                    append('\\');
+                    append(c);
+                    break;
+                case '/':
+                    if (previous == '<') {
+                        append('\\');
+                    }
+                    append(c);
+                    break;
+                case '\b':
+                    append("\\b");
+                    break;
+                case '\t':
+                    append("\\t");
+                    break;
+                case '\n':
+                    append("\\n");
+                    break;
+                case '\f':
+                    append("\\f");
+                    break;
+                case '\r':
+                    append("\\r");
+                    break;
+                default:
+                    if (c < ' ' || (c >= '\u0080' && c < '\u00a0') || (c >= '\u2000' && c < '\u2100')) {
+                        append("\\u");
+                        append(HEX[(c >> 12) & 0xF]);
+                        append(HEX[(c >> 8) & 0xF]);
+                        append(HEX[(c >> 4) & 0xF]);
+                        append(HEX[c & 0xF]);
+                    } else {
+                        append(c);
+                    }
+            }
+            previous = c;
+        }
+
+        append('"');
+    }
+
+    private void append(char c) throws IOException {
+        if (position == buffer.length) {
+            drain();
+        }
+        buffer[position++] = c;
+    }
+
+    private void append(String value) throws IOException {
+        append(value, value.length());
+    }
+
+    private void append(String value, int length) throws IOException {
+        int offset = 0;
+        while (offset < length) {
+            if (position == buffer.length) {
+                drain();
+            }
+            int count = Math.min(length - offset, buffer.length - position);
+            value.getChars(offset, offset + count, buffer, position);
+            position += count;
+            offset += count;
+        }
+    }
+}
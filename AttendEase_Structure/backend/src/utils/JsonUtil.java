@@ -0,0 +1,290 @@
+package utils;
+
+import model.Marks;
+import model.Report;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+
+/**
+ * JSON conversion for AttendEase servlet responses
+ * Each model has a builder form (JSONObject/JSONArray) and a streaming form
+ * (JsonStreamWriter) that produce the same JSON.
+ */
+public class JsonUtil {
+
+    private JsonUtil() {
+    }
+
+    /**
+     * Write a success response with a marks list as its data
+     * Streams it when JsonStreamWriter is enabled, otherwise builds it with org.json.
+     * @param marksList List of marks
+     * @param out Writer to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeMarksListResponse(List<Marks> marksList, Writer out) throws IOException {
+        if (JsonStreamWriter.isEnabled()) {
+            JsonStreamWriter json = startSuccess(out);
+            writeMarksList(json, marksList);
+            finishSuccess(json);
+        } else {
+            out.write(successResponse(marksListToJSON(marksList)).toString());
+        }
+    }
+
+    /**
+     * Write a success response with a report as its data
+     * @param report Report
+     * @param out Writer to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeReportResponse(Report report, Writer out) throws IOException {
+        if (JsonStreamWriter.isEnabled()) {
+            JsonStreamWriter json = startSuccess(out);
+            writeReport(json, report);
+            finishSuccess(json);
+        } else {
+            out.write(successResponse(reportToJSON(report)).toString());
+        }
+    }
+
+    /**
+     * Write a success response with a report list as its data
+     * @param reports List of reports
+     * @param out Writer to write to
+     * @throws IOException if writing fails
+     */
+    public static void writeReportListResponse(List<Report> reports, Writer out) throws IOException {
+        if (JsonStreamWriter.isEnabled()) {
+            JsonStreamWriter json = startSuccess(out);
+            writeReportList(json, reports);
+            finishSuccess(json);
+        } else {
+            out.write(successResponse(reportListToJSON(reports)).toString());
+        }
+    }
+
+    /**
+     * Convert marks list to JSON
+     */
+    public static JSONArray marksListToJSON(List<Marks> marksList) {
+        JSONArray jsonArray = new JSONArray();
+
+        for (Marks marks : marksList) {
+            JSONObject jsonObj = new JSONObject();
+            jsonObj.put("markId", marks.getMarkId());
+            jsonObj.put("enrollmentId", marks.getEnrollmentId());
+            jsonObj.put("assessmentTypeId", marks.getAssessmentTypeId());
+            jsonObj.put("assessmentTypeName", marks.getAssessmentTypeName());
+            jsonObj.put("maxMarks", marks.getMaxMarks());
+            jsonObj.put("marksObtained", marks.getMarksObtained());
+            jsonObj.put("percentage", marks.getPercentage());
+            jsonObj.put("grade", marks.calculateGrade());
+            jsonObj.put("date", marks.getAssessmentDate() != null ?
+                marks.getAssessmentDate().toString() : null);
+            jsonObj.put("studentName", marks.getStudentName());
+            jsonObj.put("rollNumber", marks.getRollNumber());
+            jsonObj.put("subjectName", marks.getSubjectName());
+            jsonObj.put("subjectCode", marks.getSubjectCode());
+            jsonObj.put("remarks", marks.getRemarks());
+
+            jsonArray.put(jsonObj);
+        }
+
+        return jsonArray;
+    }
+
+    /**
+     * Stream marks list as a JSON array
+     */
+    public static void writeMarksList(JsonStreamWriter json, List<Marks> marksList) throws IOException {
+        json.beginArray();
+
+        for (Marks marks : marksList) {
+            json.beginObject()
+                .field("markId", marks.getMarkId())
+                .field("enrollmentId", marks.getEnrollmentId())
+                .field("assessmentTypeId", marks.getAssessmentTypeId())
+                .field("assessmentTypeName", marks.getAssessmentTypeName())
+                .field("maxMarks", marks.getMaxMarks())
+                .field("marksObtained", marks.getMarksObtained())
+                .field("percentage", marks.getPercentage())
+                .field("grade", marks.calculateGrade())
+                .field("date", marks.getAssessmentDate() != null ?
+                    marks.getAssessmentDate().toString() : null)
+                .field("studentName", marks.getStudentName())
+                .field("rollNumber", marks.getRollNumber())
+                .field("subjectName", marks.getSubjectName())
+                .field("subjectCode", marks.getSubjectCode())
+                .field("remarks", marks.getRemarks())
+                .endObject();
+        }
+
+        json.endArray();
+    }
+
+    /**
+     * Convert Report to JSON
+     */
+    public static JSONObject reportToJSON(Report report) {
+        JSONObject jsonObj = new JSONObject();
+
+        // Student info
+        jsonObj.put("studentName", report.getStudentName());
+        jsonObj.put("rollNumber", report.getRollNumber());
+        jsonObj.put("email", report.getEmail());
+        jsonObj.put("semester", report.getSemester());
+
+        // Subject info
+        jsonObj.put("subjectName", report.getSubjectName());
+        jsonObj.put("subjectCode", report.getSubjectCode());
+        jsonObj.put("credits", report.getCredits());
+        jsonObj.put("academicYear", report.getAcademicYear());
+
+        // Attendance
+        jsonObj.put("totalClasses", report.getTotalClasses());
+        jsonObj.put("classesAttended", report.getClassesAttended());
+        jsonObj.put("classesAbsent", report.getClassesAbsent());
+        jsonObj.put("attendancePercentage", report.getAttendancePercentage());
+
+        // Marks
+        jsonObj.put("totalMarksObtained", report.getTotalMarksObtained());
+        jsonObj.put("totalMaxMarks", report.getTotalMaxMarks());
+        jsonObj.put("overallPercentage", report.getOverallPercentage());
+        jsonObj.put("overallGrade", report.getOverallGrade());
+        jsonObj.put("performanceLevel", report.getPerformanceLevel());
+
+        // Assessment marks
+        JSONArray assessments = new JSONArray();
+        if (report.getAssessmentMarks() != null) {
+            for (Report.AssessmentMark am : report.getAssessmentMarks()) {
+                JSONObject assessment = new JSONObject();
+                assessment.put("type", am.getAssessmentType());
+                assessment.put("marksObtained", am.getMarksObtained());
+                assessment.put("maxMarks", am.getMaxMarks());
+                assessment.put("percentage", am.getPercentage());
+                assessment.put("grade", am.getGrade());
+                assessments.put(assessment);
+            }
+        }
+        jsonObj.put("assessments", assessments);
+
+        // Risk analysis
+        jsonObj.put("isAtRisk", report.isAtRisk());
+        jsonObj.put("riskLevel", report.getRiskLevel());
+
+        // Insights
+        jsonObj.put("strengths", new JSONArray(report.getStrengths()));
+        jsonObj.put("weaknesses", new JSONArray(report.getWeaknesses()));
+        jsonObj.put("recommendations", new JSONArray(report.getRecommendations()));
+
+        return jsonObj;
+    }
+
+    /**
+     * Stream Report as a JSON object
+     */
+    public static void writeReport(JsonStreamWriter json, Report report) throws IOException {
+        json.beginObject();
+
+        // Student info
+        json.field("studentName", report.getStudentName())
+            .field("rollNumber", report.getRollNumber())
+            .field("email", report.getEmail())
+            .field("semester", report.getSemester());
+
+        // Subject info
+        json.field("subjectName", report.getSubjectName())
+            .field("subjectCode", report.getSubjectCode())
+            .field("credits", report.getCredits())
+            .field("academicYear", report.getAcademicYear());
+
+        // Attendance
+        json.field("totalClasses", report.getTotalClasses())
+            .field("classesAttended", report.getClassesAttended())
+            .field("classesAbsent", report.getClassesAbsent())
+            .field("attendancePercentage", report.getAttendancePercentage());
+
+        // Marks
+        json.field("totalMarksObtained", report.getTotalMarksObtained())
+            .field("totalMaxMarks", report.getTotalMaxMarks())
+            .field("overallPercentage", report.getOverallPercentage())
+            .field("overallGrade", report.getOverallGrade())
+            .field("performanceLevel", report.getPerformanceLevel());
+
+        // Assessment marks
+        json.name("assessments").beginArray();
+        if (report.getAssessmentMarks() != null) {
+            for (Report.AssessmentMark am : report.getAssessmentMarks()) {
+                json.beginObject()
+                    .field("type", am.getAssessmentType())
+                    .field("marksObtained", am.getMarksObtained())
+                    .field("maxMarks", am.getMaxMarks())
+                    .field("percentage", am.getPercentage())
+                    .field("grade", am.getGrade())
+                    .endObject();
+            }
+        }
+        json.endArray();
+
+        // Risk analysis
+        json.field("isAtRisk", report.isAtRisk())
+            .field("riskLevel", report.getRiskLevel());
+
+        // Insights
+        json.stringArray("strengths", report.getStrengths())
+            .stringArray("weaknesses", report.getWeaknesses())
+            .stringArray("recommendations", report.getRecommendations());
+
+        json.endObject();
+    }
+
+    /**
+     * Convert Report list to JSON
+     */
+    public static JSONArray reportListToJSON(List<Report> reports) {
+        JSONArray jsonArray = new JSONArray();
+
+        for (Report report : reports) {
+            jsonArray.put(reportToJSON(report));
+        }
+
+        return jsonArray;
+    }
+
+    /**
+     * Stream Report list as a JSON array
+     */
+    public static void writeReportList(JsonStreamWriter json, List<Report> reports) throws IOException {
+        json.beginArray();
+
+        for (Report report : reports) {
+            writeReport(json, report);
+        }
+
+        json.endArray();
+    }
+
+    private static JSONObject successResponse(Object data) {
+        JSONObject jsonResponse = new JSONObject();
+        jsonResponse.put("success", true);
+        jsonResponse.put("data", data);
+        return jsonResponse;
+    }
+
+    private static JsonStreamWriter startSuccess(Writer out) throws IOException {
+        JsonStreamWriter json = new JsonStreamWriter(out);
+        json.beginObject().field("success", true).name("data");
+        return json;
+    }
+
+    private static void finishSuccess(JsonStreamWriter json) throws IOException {
+        // drain, not flush: flushing would commit the response early
+        json.endObject().drain();
+    }
+}
@@ -0,0 +1,154 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram for AttendEase
+ * Lock-free, safe to record from many request threads at once
+ */
+public class LatencyHistogram {
+
+    // Default upper bounds in milliseconds
+    public static final double[] DEFAULT_BOUNDS_MS = {
+        1, 2.5, 5, 10, 25, 50, 100, 250, 500, 1000, 2500, 5000, 10000
+    };
+
+    private final double[] boundsMs;
+    private final AtomicLongArray buckets; // last slot is +Inf
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sumNanos = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Create histogram with default millisecond buckets
+     */
+    public LatencyHistogram() {
+        this(DEFAULT_BOUNDS_MS);
+    }
+
+    /**
+     * Create histogram with custom bucket upper bounds
+     * @param boundsMs Ascending bucket upper bounds in milliseconds
+     */
+    public LatencyHistogram(double[] boundsMs) {
+        this.boundsMs = boundsMs.clone();
+        this.buckets = new AtomicLongArray(boundsMs.length + 1);
+    }
+
+    /**
+     * Record one observation
+     * @param nanos Duration in nanoseconds
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        double millis = nanos / 1_000_000.0;
+        int i = 0;
+        while (i < boundsMs.length && millis > boundsMs[i]) {
+            i++;
+        }
+        buckets.incrementAndGet(i);
+        count.increment();
+        sumNanos.add(nanos);
+
+        long max;
+        while (nanos > (max = maxNanos.get()) && !maxNanos.compareAndSet(max, nanos)) {
+            // retry
+        }
+    }
+
+    /**
+     * Record the time elapsed since a System.nanoTime() start value
+     * @param startNanos Start time from System.nanoTime()
+     */
+    public void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public double getSumMillis() {
+        return sumNanos.sum() / 1_000_000.0;
+    }
+
+    public double getMaxMillis() {
+        return maxNanos.get() / 1_000_000.0;
+    }
+
+    public double getMeanMillis() {
+        long n = getCount();
+        return n > 0 ? getSumMillis() / n : 0.0;
+    }
+
+    /**
+     * Get bucket upper bounds in milliseconds (excluding +Inf)
+     */
+    public double[] getBoundsMillis() {
+        return boundsMs.clone();
+    }
+
+    /**
+     * Get cumulative counts per bucket, last entry is the +Inf bucket
+     */
+    public long[] getCumulativeCounts() {
+        long[] cumulative = new long[buckets.length()];
+        long running = 0;
+        for (int i = 0; i < cumulative.length; i++) {
+            running += buckets.get(i);
+            cumulative[i] = running;
+        }
+        return cumulative;
+    }
+
+    /**
+     * Estimate a percentile from bucket counts
+     * @param percentile Value between 0 and 100
+     * @return Upper bound of the bucket holding the percentile, in milliseconds
+     */
+    public double getPercentileMillis(double percentile) {
+        long[] cumulative = getCumulativeCounts();
+        long total = cumulative[cumulative.length - 1];
+        if (total == 0) {
+            return 0.0;
+        }
+        long rank = (long) Math.ceil(total * percentile / 100.0);
+        for (int i = 0; i < boundsMs.length; i++) {
+            if (cumulative[i] >= rank) {
+                return boundsMs[i];
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Snapshot as a map suitable for JSON responses
+     * @return Map of summary values and cumulative buckets keyed by upper bound
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> map = new LinkedHashMap<>();
+        map.put("count", getCount());
+        map.put("sumMs", getSumMillis());
+        map.put("meanMs", getMeanMillis());
+        map.put("maxMs", getMaxMillis());
+        map.put("p50Ms", getPercentileMillis(50));
+        map.put("p95Ms", getPercentileMillis(95));
+        map.put("p99Ms", getPercentileMillis(99));
+
+        Map<String, Long> bucketMap = new LinkedHashMap<>();
+        long[] cumulative = getCumulativeCounts();
+        for (int i = 0; i < boundsMs.length; i++) {
+            bucketMap.put("le_" + boundsMs[i], cumulative[i]);
+        }
+        bucketMap.put("le_+Inf", cumulative[cumulative.length - 1]);
+        map.put("buckets", bucketMap);
+
+        return map;
+    }
+}
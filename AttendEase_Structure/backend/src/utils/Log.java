@@ -0,0 +1,54 @@
+package utils;
+
+import utils.AsyncLogger.Level;
+
+/**
+ * Logging for AttendEase
+ * Writes structured events through the shared AsyncLogger, so callers never
+ * block on the console or log file. Key/value pairs are passed alternately
+ * after the message, e.g. Log.info("User logged in", "email", email).
+ */
+public final class Log {
+
+    private Log() {
+    }
+
+    /**
+     * Whether debug events are written, to skip building expensive values
+     */
+    public static boolean isDebugEnabled() {
+        return AsyncLogger.getInstance().isEnabled(Level.DEBUG);
+    }
+
+    public static void debug(String message, Object... keyValues) {
+        AsyncLogger.getInstance().log(Level.DEBUG, message, null, keyValues);
+    }
+
+    public static void info(String message, Object... keyValues) {
+        AsyncLogger.getInstance().log(Level.INFO, message, null, keyValues);
+    }
+
+    public static void warn(String message, Object... keyValues) {
+        AsyncLogger.getInstance().log(Level.WARN, message, null, keyValues);
+    }
+
+    /**
+     * Log a warning with a stack trace, such as where a leaked resource was acquired
+     * @param message What happened
+     * @param trace Throwable whose stack trace is written after the line, or null
+     * @param keyValues Alternating keys and values
+     */
+    public static void warn(String message, Throwable trace, Object... keyValues) {
+        AsyncLogger.getInstance().log(Level.WARN, message, trace, keyValues);
+    }
+
+    /**
+     * Log an error with the stack trace of its exception
+     * @param message What failed
+     * @param error Exception that caused it, or null
+     * @param keyValues Alternating keys and values
+     */
+    public static void error(String message, Throwable error, Object... keyValues) {
+        AsyncLogger.getInstance().log(Level.ERROR, message, error, keyValues);
+    }
+}
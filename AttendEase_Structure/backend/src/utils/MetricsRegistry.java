@@ -0,0 +1,325 @@
+package utils;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Application metrics for AttendEase
+ * Collects per-servlet, per-action request latency, counts, errors,
+ * response sizes and database use, and per-DAO-method query timings, rows
+ * and slow query counts, and writes them together
+ * with component statistics in the Prometheus text exposition format.
+ */
+public class MetricsRegistry {
+
+    private static final String PREFIX = "attendease_";
+
+    // Label combinations kept before new ones are folded into "other"
+    private static final int MAX_SERIES = 500;
+
+    private static final MetricsRegistry instance = new MetricsRegistry();
+
+    private final Map<String, RequestMetrics> requests = new ConcurrentHashMap<>();
+    private final Map<String, QueryMetrics> queries = new ConcurrentHashMap<>();
+
+    /**
+     * Get the shared registry
+     * @return MetricsRegistry instance
+     */
+    public static MetricsRegistry getInstance() {
+        return instance;
+    }
+
+    /**
+     * Record a handled request
+     * @param servlet Servlet name
+     * @param action Value of the action parameter, or null
+     * @param status HTTP status sent; 400 and above count as errors
+     * @param nanos Time from arrival to completion
+     * @param bytes Response body size
+     * @param trace Queries the request ran, or null if it was not traced
+     */
+    public void recordRequest(String servlet, String action, int status, long nanos, long bytes,
+                              QueryTrace trace) {
+        String key = servlet + '\u0000' + (action != null ? action : "none");
+        RequestMetrics metrics = requests.get(key);
+        if (metrics == null) {
+            if (requests.size() >= MAX_SERIES) {
+                key = servlet + '\u0000' + "other";
+            }
+            metrics = requests.computeIfAbsent(key, k -> new RequestMetrics());
+        }
+
+        metrics.latency.record(nanos);
+        metrics.bytes.add(bytes);
+        if (status >= 400) {
+            metrics.errors.increment();
+        }
+        if (trace != null) {
+            metrics.queries.add(trace.getQueryCount());
+            metrics.dbNanos.add(trace.getDbNanos());
+        }
+    }
+
+    /**
+     * Record a query execution
+     * @param method DAO method that ran the query, e.g. MarksDAO.getMarksByStudent
+     * @param nanos Execution time
+     * @param rows Rows returned or affected, or -1 if unknown
+     * @param slow Whether it was over the slow query threshold
+     */
+    public void recordQuery(String method, long nanos, long rows, boolean slow) {
+        QueryMetrics metrics = queries.get(method);
+        if (metrics == null) {
+            metrics = queries.computeIfAbsent(queries.size() >= MAX_SERIES ? "other" : method,
+                                              k -> new QueryMetrics());
+        }
+        metrics.latency.record(nanos);
+        if (rows > 0) {
+            metrics.rows.add(rows);
+        }
+        if (slow) {
+            metrics.slow.increment();
+        }
+    }
+
+    /**
+     * Write request and query metrics in Prometheus text format
+     * @param out Writer for the exposition
+     */
+    public void writeTo(Writer out) throws IOException {
+        Map<String, RequestMetrics> sortedRequests = new TreeMap<>(requests);
+
+        writeHeader(out, "http_request_duration_seconds", "histogram",
+                    "Request latency by servlet and action");
+        for (Map.Entry<String, RequestMetrics> entry : sortedRequests.entrySet()) {
+            writeHistogram(out, "http_request_duration_seconds", requestLabels(entry.getKey()),
+                           entry.getValue().latency);
+        }
+
+        writeHeader(out, "http_requests_total", "counter", "Requests by servlet and action");
+        for (Map.Entry<String, RequestMetrics> entry : sortedRequests.entrySet()) {
+            writeSample(out, "http_requests_total", requestLabels(entry.getKey()),
+                        entry.getValue().latency.getCount());
+        }
+
+        writeHeader(out, "http_request_errors_total", "counter",
+                    "Requests answered with status 400 or above");
+        for (Map.Entry<String, RequestMetrics> entry : sortedRequests.entrySet()) {
+            writeSample(out, "http_request_errors_total", requestLabels(entry.getKey()),
+                        entry.getValue().errors.sum());
+        }
+
+        writeHeader(out, "http_response_bytes_total", "counter", "Response body bytes written");
+        for (Map.Entry<String, RequestMetrics> entry : sortedRequests.entrySet()) {
+            writeSample(out, "http_response_bytes_total", requestLabels(entry.getKey()),
+                        entry.getValue().bytes.sum());
+        }
+
+        writeHeader(out, "http_request_db_queries_total", "counter", "Queries run by requests");
+        for (Map.Entry<String, RequestMetrics> entry : sortedRequests.entrySet()) {
+            writeSample(out, "http_request_db_queries_total", requestLabels(entry.getKey()),
+                        entry.getValue().queries.sum());
+        }
+
+        writeHeader(out, "http_request_db_seconds_total", "counter", "Time requests spent executing queries");
+        for (Map.Entry<String, RequestMetrics> entry : sortedRequests.entrySet()) {
+            writeSample(out, "http_request_db_seconds_total", requestLabels(entry.getKey()),
+                        entry.getValue().dbNanos.sum() / 1_000_000_000.0);
+        }
+
+        Map<String, QueryMetrics> sortedQueries = new TreeMap<>(queries);
+
+        writeHeader(out, "db_query_duration_seconds", "histogram", "Query execution time by DAO method");
+        for (Map.Entry<String, QueryMetrics> entry : sortedQueries.entrySet()) {
+            writeHistogram(out, "db_query_duration_seconds", queryLabels(entry.getKey()),
+                           entry.getValue().latency);
+        }
+
+        writeHeader(out, "db_query_rows_total", "counter", "Rows returned or affected by DAO method");
+        for (Map.Entry<String, QueryMetrics> entry : sortedQueries.entrySet()) {
+            writeSample(out, "db_query_rows_total", queryLabels(entry.getKey()), entry.getValue().rows.sum());
+        }
+
+        writeHeader(out, "db_slow_queries_total", "counter", "Queries over the slow query threshold");
+        for (Map.Entry<String, QueryMetrics> entry : sortedQueries.entrySet()) {
+            writeSample(out, "db_slow_queries_total", queryLabels(entry.getKey()), entry.getValue().slow.sum());
+        }
+    }
+
+    /**
+     * Write a component's statistics as gauges
+     * Numbers and booleans become samples named after their keys; nested maps
+     * from LatencyHistogram.toMap() become histograms, other nested maps are
+     * flattened with their key as a name prefix.
+     * @param out Writer for the exposition
+     * @param component Metric name prefix, e.g. db_pool
+     * @param statsByLabels Statistics maps keyed by their label set, e.g. pool="primary",
+     *                      or "" for a component without labels
+     */
+    public static void writeStatistics(Writer out, String component,
+                                       Map<String, Map<String, Object>> statsByLabels) throws IOException {
+        // Samples of one metric must be written together, under a single TYPE line
+        Map<String, StringWriter> families = new LinkedHashMap<>();
+        for (Map.Entry<String, Map<String, Object>> entry : statsByLabels.entrySet()) {
+            collectStatistics(families, component, entry.getKey(), entry.getValue());
+        }
+        for (StringWriter family : families.values()) {
+            out.write(family.toString());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void collectStatistics(Map<String, StringWriter> families, String name, String labels,
+                                          Map<String, Object> stats) throws IOException {
+        for (Map.Entry<String, Object> entry : stats.entrySet()) {
+            String metric = name + "_" + snakeCase(entry.getKey());
+            Object value = entry.getValue();
+
+            if (value instanceof Number || value instanceof Boolean) {
+                double sample = value instanceof Boolean ? ((Boolean) value ? 1 : 0) : ((Number) value).doubleValue();
+                writeSample(family(families, metric, "gauge"), metric, labels, sample);
+            } else if (value instanceof Map) {
+                Map<String, Object> nested = (Map<String, Object>) value;
+                if (nested.containsKey("buckets") && nested.containsKey("sumMs")) {
+                    metric += "_seconds";
+                    writeHistogramMap(family(families, metric, "histogram"), metric, labels, nested);
+                } else {
+                    collectStatistics(families, metric, labels, nested);
+                }
+            }
+        }
+    }
+
+    private static Writer family(Map<String, StringWriter> families, String name, String type) throws IOException {
+        StringWriter family = families.get(name);
+        if (family == null) {
+            family = new StringWriter();
+            writeHeader(family, name, type, null);
+            families.put(name, family);
+        }
+        return family;
+    }
+
+    private static void writeHeader(Writer out, String name, String type, String help) throws IOException {
+        if (help != null) {
+            out.write("# HELP " + PREFIX + name + " " + help + "\n");
+        }
+        out.write("# TYPE " + PREFIX + name + " " + type + "\n");
+    }
+
+    private static void writeSample(Writer out, String name, String labels, double value) throws IOException {
+        out.write(PREFIX);
+        out.write(name);
+        if (!labels.isEmpty()) {
+            out.write('{');
+            out.write(labels);
+            out.write('}');
+        }
+        out.write(' ');
+        out.write(formatValue(value));
+        out.write('\n');
+    }
+
+    private static void writeHistogram(Writer out, String name, String labels,
+                                       LatencyHistogram histogram) throws IOException {
+        double[] bounds = histogram.getBoundsMillis();
+        long[] cumulative = histogram.getCumulativeCounts();
+        String separator = labels.isEmpty() ? "" : ",";
+
+        for (int i = 0; i < bounds.length; i++) {
+            writeSample(out, name + "_bucket", labels + separator + "le=\"" + formatValue(bounds[i] / 1000.0) + "\"",
+                        cumulative[i]);
+        }
+        writeSample(out, name + "_bucket", labels + separator + "le=\"+Inf\"", cumulative[bounds.length]);
+        writeSample(out, name + "_sum", labels, histogram.getSumMillis() / 1000.0);
+        writeSample(out, name + "_count", labels, cumulative[bounds.length]);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void writeHistogramMap(Writer out, String name, String labels,
+                                          Map<String, Object> histogram) throws IOException {
+        String separator = labels.isEmpty() ? "" : ",";
+        Map<String, Object> buckets = (Map<String, Object>) histogram.get("buckets");
+
+        for (Map.Entry<String, Object> bucket : buckets.entrySet()) {
+            String bound = bucket.getKey().substring("le_".length());
+            String le = "+Inf".equals(bound) ? bound : formatValue(Double.parseDouble(bound) / 1000.0);
+            writeSample(out, name + "_bucket", labels + separator + "le=\"" + le + "\"",
+                        ((Number) bucket.getValue()).doubleValue());
+        }
+        writeSample(out, name + "_sum", labels, ((Number) histogram.get("sumMs")).doubleValue() / 1000.0);
+        writeSample(out, name + "_count", labels, ((Number) histogram.get("count")).doubleValue());
+    }
+
+    private static String requestLabels(String key) {
+        int split = key.indexOf('\u0000');
+        return "servlet=\"" + escape(key.substring(0, split)) + "\",action=\"" +
+               escape(key.substring(split + 1)) + "\"";
+    }
+
+    private static String queryLabels(String method) {
+        return "method=\"" + escape(method) + "\"";
+    }
+
+    /**
+     * Escape a label value
+     */
+    public static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String formatValue(double value) {
+        if (value == (long) value) {
+            return Long.toString((long) value);
+        }
+        return Double.toString(value);
+    }
+
+    /**
+     * Convert a camelCase statistics key to a snake_case metric name
+     */
+    private static String snakeCase(String key) {
+        StringBuilder name = new StringBuilder(key.length() + 8);
+        for (int i = 0; i < key.length(); i++) {
+            char c = key.charAt(i);
+            if (Character.isUpperCase(c)) {
+                if (i > 0) {
+                    name.append('_');
+                }
+                name.append(Character.toLowerCase(c));
+            } else if (Character.isLetterOrDigit(c)) {
+                name.append(c);
+            } else {
+                name.append('_');
+            }
+        }
+        return name.toString();
+    }
+
+    /**
+     * Latency, error count, bytes written and database use for one servlet and action
+     */
+    private static class RequestMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder errors = new LongAdder();
+        private final LongAdder bytes = new LongAdder();
+        private final LongAdder queries = new LongAdder();
+        private final LongAdder dbNanos = new LongAdder();
+    }
+
+    /**
+     * Latency, rows and slow query count for one DAO method
+     */
+    private static class QueryMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+    }
+}
@@ -0,0 +1,160 @@
+package utils;
+
+import config.DBConnection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Queries run while handling one HTTP request
+ * AsyncHttpServlet starts a trace per request and the connection wrapper
+ * records every query into the trace of the current thread. At the end of the
+ * request the trace tells how many queries ran and how long was spent in the
+ * database, and flags statements repeated within the request, the usual sign
+ * of an N+1 loop.
+ *
+ * Configured with the metrics.trace.* settings in db.properties.
+ */
+public class QueryTrace {
+
+    private static final ThreadLocal<QueryTrace> CURRENT = new ThreadLocal<>();
+
+    // Distinct statements tracked per request; the rest only count in the totals
+    private static final int MAX_STATEMENTS = 100;
+
+    private static volatile Boolean enabled;
+    private static int repeatThreshold;
+    private static boolean logAll;
+
+    private final Map<String, StatementStats> statements = new LinkedHashMap<>();
+    private int queryCount;
+    private long dbNanos;
+
+    /**
+     * Whether requests are traced, from metrics.trace.enabled
+     */
+    public static boolean isEnabled() {
+        if (enabled == null) {
+            repeatThreshold = (int) DBConnection.getLongSetting("metrics.trace.repeatThreshold", 10);
+            logAll = DBConnection.getBooleanSetting("metrics.trace.logAll", false);
+            enabled = DBConnection.getBooleanSetting("metrics.trace.enabled", true);
+        }
+        return enabled;
+    }
+
+    /**
+     * Get the trace of the current thread
+     * @return QueryTrace, or null outside a traced request
+     */
+    public static QueryTrace current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Set the trace of the current thread
+     * @param trace Trace to record into, or null to clear it
+     * @return The previous trace, to pass to restore()
+     */
+    public static QueryTrace enter(QueryTrace trace) {
+        QueryTrace previous = CURRENT.get();
+        CURRENT.set(trace);
+        return previous;
+    }
+
+    /**
+     * Restore the trace that was current before enter()
+     */
+    public static void restore(QueryTrace previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Record a query
+     * Queries forked to other threads record into the same trace.
+     * @param method DAO method that ran it
+     * @param sql Statement text
+     * @param nanos Execution time
+     */
+    public synchronized void record(String method, String sql, long nanos) {
+        queryCount++;
+        dbNanos += nanos;
+
+        if (sql == null) {
+            return;
+        }
+        StatementStats stats = statements.get(sql);
+        if (stats == null) {
+            if (statements.size() >= MAX_STATEMENTS) {
+                return;
+            }
+            stats = new StatementStats(method);
+            statements.put(sql, stats);
+        }
+        stats.count++;
+        stats.nanos += nanos;
+    }
+
+    /**
+     * Number of queries run
+     */
+    public synchronized int getQueryCount() {
+        return queryCount;
+    }
+
+    /**
+     * Time spent executing queries
+     */
+    public synchronized long getDbNanos() {
+        return dbNanos;
+    }
+
+    /**
+     * Log the trace of a finished request
+     * Each statement repeated metrics.trace.repeatThreshold times is logged
+     * as a possible N+1; the summary is logged only with metrics.trace.logAll.
+     * @param request Description of the request, e.g. "ReportServlet GET action=summary"
+     * @param elapsedNanos Time the request took
+     */
+    public synchronized void log(String request, long elapsedNanos) {
+        if (!isEnabled()) {
+            return;
+        }
+        if (logAll) {
+            Log.info("Query trace", "request", request, "queries", queryCount,
+                     "dbMs", millis(dbNanos), "elapsedMs", millis(elapsedNanos));
+        }
+        if (repeatThreshold <= 0) {
+            return;
+        }
+
+        for (Map.Entry<String, StatementStats> entry : statements.entrySet()) {
+            StatementStats stats = entry.getValue();
+            if (stats.count >= repeatThreshold) {
+                Log.warn("Possible N+1 query", "request", request, "method", stats.method,
+                         "count", stats.count, "ms", millis(stats.nanos), "queries", queryCount,
+                         "dbMs", millis(dbNanos), "sql", entry.getKey().replaceAll("\\s+", " ").trim());
+            }
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1_000_000.0);
+    }
+
+    /**
+     * Executions of one statement
+     */
+    private static class StatementStats {
+        private final String method;
+        private int count;
+        private long nanos;
+
+        StatementStats(String method) {
+            this.method = method;
+        }
+    }
+}
@@ -0,0 +1,372 @@
+package utils;
+
+import config.DBConnection;
+import model.ReportJob;
+import model.ReportJob.JobStatus;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Background job queue for heavy reports
+ * Runs report generation on a small bounded worker pool instead of the
+ * request thread. Results are written to temporary files that clients download
+ * once the job is complete, and are deleted after a time-to-live.
+ *
+ * Configured in db.properties with the reports.jobs.* settings.
+ */
+public class ReportJobQueue {
+
+    private static final int DEFAULT_WORKERS = 4;
+    private static final int DEFAULT_QUEUE_CAPACITY = 50;
+    private static final int DEFAULT_MAX_JOBS_PER_USER = 2;
+    private static final long DEFAULT_RESULT_TTL_MINUTES = 30;
+    private static final long CLEANUP_INTERVAL_MS = 60 * 1000;
+
+    // Report jobs run for seconds to minutes
+    private static final double[] JOB_BOUNDS_MS = {
+        100, 250, 500, 1000, 2500, 5000, 10000, 30000, 60000, 120000, 300000
+    };
+
+    private static volatile ReportJobQueue instance;
+
+    /**
+     * Writes a report result
+     */
+    @FunctionalInterface
+    public interface ReportTask {
+        void write(Writer out) throws Exception;
+    }
+
+    /**
+     * Thrown when a user already has the maximum number of unfinished jobs
+     */
+    public static class UserLimitException extends RejectedExecutionException {
+        public UserLimitException(String message) {
+            super(message);
+        }
+    }
+
+    private final ThreadPoolExecutor workers;
+    private final ScheduledExecutorService cleaner;
+    private final int maxJobsPerUser;
+    private final long resultTtlMs;
+
+    private final Map<String, ReportJob> jobs = new ConcurrentHashMap<>();
+    // Unfinished jobs per user, guarded by this
+    private final Map<Integer, Integer> activeByUser = new HashMap<>();
+
+    // Statistics
+    private final LongAdder submitted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder cancelled = new LongAdder();
+    private final LongAdder expired = new LongAdder();
+    private final LatencyHistogram queueWait = new LatencyHistogram(JOB_BOUNDS_MS);
+    private final LatencyHistogram runTime = new LatencyHistogram(JOB_BOUNDS_MS);
+
+    /**
+     * Create and start a job queue
+     * @param workerCount Jobs that run at once
+     * @param queueCapacity Jobs that may wait for a worker
+     * @param maxJobsPerUser Unfinished jobs one user may have
+     * @param resultTtlMs How long finished jobs and their results are kept
+     */
+    public ReportJobQueue(int workerCount, int queueCapacity, int maxJobsPerUser, long resultTtlMs) {
+        this.maxJobsPerUser = maxJobsPerUser;
+        this.resultTtlMs = resultTtlMs;
+
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.workers = new ThreadPoolExecutor(workerCount, workerCount, 0, TimeUnit.MILLISECONDS,
+            new ArrayBlockingQueue<>(queueCapacity), r -> {
+                Thread t = new Thread(r, "attendease-report-worker-" + threadNumber.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            });
+
+        this.cleaner = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "attendease-report-job-cleaner");
+            t.setDaemon(true);
+            return t;
+        });
+        cleaner.scheduleWithFixedDelay(this::removeExpired, CLEANUP_INTERVAL_MS,
+                                       CLEANUP_INTERVAL_MS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Get the number of job workers configured in db.properties
+     * Each running job reads from the report pool, which is sized with this.
+     * @return reports.jobs.workers, at least 1
+     */
+    public static int getConfiguredWorkers() {
+        return (int) Math.max(DBConnection.getLongSetting("reports.jobs.workers", DEFAULT_WORKERS), 1);
+    }
+
+    /**
+     * Get the shared queue, creating it from db.properties on first use
+     * @return ReportJobQueue instance
+     */
+    public static ReportJobQueue getInstance() {
+        if (instance == null) {
+            synchronized (ReportJobQueue.class) {
+                if (instance == null) {
+                    instance = new ReportJobQueue(
+                        getConfiguredWorkers(),
+                        (int) DBConnection.getLongSetting("reports.jobs.queueCapacity", DEFAULT_QUEUE_CAPACITY),
+                        (int) DBConnection.getLongSetting("reports.jobs.maxPerUser", DEFAULT_MAX_JOBS_PER_USER),
+                        TimeUnit.MINUTES.toMillis(DBConnection.getLongSetting(
+                            "reports.jobs.resultTtlMinutes", DEFAULT_RESULT_TTL_MINUTES))
+                    );
+                    Log.info("Report job queue started");
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get statistics of the shared report job queue without starting it
+     * @return Map with statistics, empty if it has not been started
+     */
+    public static Map<String, Object> getInstanceStatistics() {
+        ReportJobQueue current = instance;
+        return current != null ? current.getStatistics() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Stop the shared queue if it was started
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.shutdown();
+            instance = null;
+        }
+    }
+
+    /**
+     * Queue a report job
+     * @param userId User submitting the job
+     * @param jobType Report action, shown in status responses
+     * @param contentType Content type of the result
+     * @param fileName File name the result is downloaded as
+     * @param task Writes the report
+     * @return The queued job
+     * @throws UserLimitException if the user already has maxJobsPerUser unfinished jobs
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public ReportJob submit(int userId, String jobType, String contentType, String fileName,
+                            ReportTask task) {
+        ReportJob job = new ReportJob(UUID.randomUUID().toString(), jobType, userId, contentType, fileName);
+
+        synchronized (this) {
+            int active = activeByUser.getOrDefault(userId, 0);
+            if (active >= maxJobsPerUser) {
+                rejected.increment();
+                throw new UserLimitException("You already have " + active + " reports in progress");
+            }
+
+            try {
+                job.setFuture(workers.submit(() -> run(job, task)));
+            } catch (RejectedExecutionException e) {
+                rejected.increment();
+                throw new RejectedExecutionException("Report queue is full, try again shortly");
+            }
+
+            activeByUser.put(userId, active + 1);
+            jobs.put(job.getJobId(), job);
+        }
+
+        submitted.increment();
+        return job;
+    }
+
+    /**
+     * Get a job by ID
+     * @param jobId Job ID
+     * @return Job, or null if it does not exist or has expired
+     */
+    public ReportJob getJob(String jobId) {
+        return jobId != null ? jobs.get(jobId) : null;
+    }
+
+    /**
+     * Cancel a job
+     * A queued job never starts. A running job is interrupted and its result
+     * discarded, although a database query already in progress runs to completion.
+     * @param jobId Job ID
+     * @return true if the job was cancelled, false if it had already finished
+     */
+    public boolean cancel(String jobId) {
+        ReportJob job = getJob(jobId);
+        if (job == null) {
+            return false;
+        }
+
+        JobStatus previous;
+        synchronized (job) {
+            previous = job.getStatus();
+            if (previous.isFinished()) {
+                return false;
+            }
+            job.setStatus(JobStatus.CANCELLED);
+            job.setFinishedAt(System.currentTimeMillis());
+        }
+        cancelled.increment();
+
+        Future<?> future = job.getFuture();
+        if (previous == JobStatus.QUEUED) {
+            // The worker will skip it, so release the slot here and free the queue space
+            future.cancel(false);
+            workers.remove((Runnable) future);
+            release(job.getUserId());
+        } else {
+            future.cancel(true);
+        }
+        return true;
+    }
+
+    /**
+     * Stop the workers and delete all results
+     */
+    public void shutdown() {
+        cleaner.shutdownNow();
+        // Reports can be requested again, no need to let running ones finish
+        workers.shutdownNow();
+        for (ReportJob job : jobs.values()) {
+            deleteResult(job);
+        }
+        jobs.clear();
+        Log.info("Report job queue stopped");
+    }
+
+    /**
+     * Get queue statistics
+     * @return Map with job counts and timings
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("workers", workers.getMaximumPoolSize());
+        stats.put("running", workers.getActiveCount());
+        stats.put("queued", workers.getQueue().size());
+        stats.put("jobs", jobs.size());
+        stats.put("maxJobsPerUser", maxJobsPerUser);
+        stats.put("submitted", submitted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("completed", completed.sum());
+        stats.put("failed", failed.sum());
+        stats.put("cancelled", cancelled.sum());
+        stats.put("expired", expired.sum());
+        stats.put("queueWait", queueWait.toMap());
+        stats.put("runTime", runTime.toMap());
+        return stats;
+    }
+
+    /**
+     * Worker body: write the report to a temporary file and publish it
+     */
+    private void run(ReportJob job, ReportTask task) {
+        synchronized (job) {
+            if (job.getStatus() != JobStatus.QUEUED) {
+                return; // cancelled while queued, slot already released
+            }
+            job.setStatus(JobStatus.RUNNING);
+            job.setStartedAt(System.currentTimeMillis());
+        }
+        queueWait.record(TimeUnit.MILLISECONDS.toNanos(job.getStartedAt() - job.getSubmittedAt()));
+        long start = System.nanoTime();
+        // Reads come from the report pool, like heavy reports run in a request
+        Workload previous = Workload.enter(Workload.REPORT);
+
+        File file = null;
+        try {
+            file = File.createTempFile("attendease-report-", ".tmp");
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(
+                     new FileOutputStream(file), StandardCharsets.UTF_8))) {
+                task.write(out);
+            }
+
+            synchronized (job) {
+                if (job.getStatus() == JobStatus.RUNNING) {
+                    job.setResultFile(file);
+                    job.setStatus(JobStatus.COMPLETED);
+                    job.setFinishedAt(System.currentTimeMillis());
+                    file = null;
+                    completed.increment();
+                }
+            }
+
+        } catch (Exception e) {
+            synchronized (job) {
+                if (job.getStatus() == JobStatus.RUNNING) {
+                    Log.error("Error running report job", e, "jobId", job.getJobId());
+                    job.setErrorMessage("Error generating report");
+                    job.setStatus(JobStatus.FAILED);
+                    job.setFinishedAt(System.currentTimeMillis());
+                    failed.increment();
+                }
+            }
+
+        } finally {
+            if (file != null) {
+                // Failed or cancelled while running
+                file.delete();
+            }
+            Workload.restore(previous);
+            runTime.recordSince(start);
+            release(job.getUserId());
+        }
+    }
+
+    private synchronized void release(int userId) {
+        Integer active = activeByUser.get(userId);
+        if (active == null || active <= 1) {
+            activeByUser.remove(userId);
+        } else {
+            activeByUser.put(userId, active - 1);
+        }
+    }
+
+    /**
+     * Drop finished jobs older than the time-to-live and delete their results
+     */
+    private void removeExpired() {
+        long cutoff = System.currentTimeMillis() - resultTtlMs;
+
+        Iterator<ReportJob> iterator = jobs.values().iterator();
+        while (iterator.hasNext()) {
+            ReportJob job = iterator.next();
+            if (job.getStatus().isFinished() && job.getFinishedAt() < cutoff) {
+                iterator.remove();
+                deleteResult(job);
+                expired.increment();
+            }
+        }
+    }
+
+    private void deleteResult(ReportJob job) {
+        File file = job.getResultFile();
+        if (file != null && !file.delete() && file.exists()) {
+            Log.warn("Could not delete report result", "file", file);
+        }
+    }
+}
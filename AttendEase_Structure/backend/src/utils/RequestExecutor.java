@@ -0,0 +1,259 @@
+package utils;
+
+import config.DBConnection;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Executor for servlet requests handled off the container threads
+ * Runs each request on a virtual thread when the JVM supports them (Java 21+),
+ * otherwise on a fixed pool of platform threads. A semaphore sized to the
+ * database pool limits how many requests run at once, so waiting requests
+ * hold neither a container thread nor a connection. On platform threads a
+ * request whose bulkhead is full is rejected at once instead of waiting for a
+ * slot, since a waiting request would occupy one of the few pool threads while
+ * requests of other classes queue behind it.
+ *
+ * Enabled with servlet.async.enabled=true in db.properties.
+ */
+public class RequestExecutor {
+
+    private static final long DEFAULT_ACQUIRE_TIMEOUT_MS = 10000;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1000;
+    private static final long SHUTDOWN_TIMEOUT_MS = 30 * 1000;
+
+    private static volatile RequestExecutor instance;
+    private static volatile Boolean enabled;
+
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+    private final Semaphore permits;
+    private final int maxConcurrent;
+    private final long acquireTimeoutMs;
+
+    // Statistics
+    private final AtomicInteger waiting = new AtomicInteger();
+    private final LongAdder completed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LatencyHistogram permitWait = new LatencyHistogram();
+
+    /**
+     * Create an executor
+     * @param maxConcurrent Requests that may run at once
+     * @param acquireTimeoutMs How long a request waits to start before it is rejected
+     * @param queueCapacity Requests that may wait for a platform thread, when virtual threads are unavailable
+     */
+    public RequestExecutor(int maxConcurrent, long acquireTimeoutMs, int queueCapacity) {
+        this.maxConcurrent = maxConcurrent;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        this.permits = new Semaphore(maxConcurrent, true);
+
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        if (virtual != null) {
+            this.executor = virtual;
+        } else {
+            // Platform threads are not cheap to park, so waiting happens in the queue instead
+            AtomicInteger threadNumber = new AtomicInteger();
+            this.executor = new ThreadPoolExecutor(maxConcurrent, maxConcurrent, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), r -> {
+                    Thread t = new Thread(r, "attendease-request-" + threadNumber.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        }
+    }
+
+    /**
+     * Whether async request handling is enabled in db.properties
+     */
+    public static boolean isEnabled() {
+        if (enabled == null) {
+            enabled = DBConnection.getBooleanSetting("servlet.async.enabled", false);
+        }
+        return enabled;
+    }
+
+    /**
+     * Get the shared executor, creating it from db.properties on first use
+     * @return RequestExecutor instance
+     */
+    public static RequestExecutor getInstance() {
+        if (instance == null) {
+            synchronized (RequestExecutor.class) {
+                if (instance == null) {
+                    instance = new RequestExecutor(
+                        (int) DBConnection.getLongSetting("servlet.async.maxConcurrent", DBConnection.getMaxPoolSize()),
+                        DBConnection.getLongSetting("servlet.async.acquireTimeoutMs", DEFAULT_ACQUIRE_TIMEOUT_MS),
+                        (int) DBConnection.getLongSetting("servlet.async.queueCapacity", DEFAULT_QUEUE_CAPACITY)
+                    );
+                    Log.info("Async request executor started",
+                             "threads", instance.virtualThreads ? "virtual" : "platform",
+                             "maxConcurrent", instance.maxConcurrent);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Get statistics of the shared request executor without starting it
+     * @return Map with statistics, empty if it has not been started
+     */
+    public static Map<String, Object> getInstanceStatistics() {
+        RequestExecutor current = instance;
+        return current != null ? current.getStatistics() : new LinkedHashMap<>();
+    }
+
+    /**
+     * Stop the shared executor if it was started, letting running requests finish
+     */
+    public static synchronized void shutdownInstance() {
+        if (instance != null) {
+            instance.executor.shutdown();
+            try {
+                if (!instance.executor.awaitTermination(SHUTDOWN_TIMEOUT_MS, TimeUnit.MILLISECONDS)) {
+                    instance.executor.shutdownNow();
+                }
+            } catch (InterruptedException e) {
+                instance.executor.shutdownNow();
+                Thread.currentThread().interrupt();
+            }
+            instance = null;
+        }
+    }
+
+    /**
+     * Run a request once a permit is free
+     * @param task Request handling
+     * @param onRejected Run instead of the task if it cannot start within the acquire timeout
+     *                   or the executor is saturated; may run on the calling thread
+     */
+    public void execute(Runnable task, Runnable onRejected) {
+        execute(null, task, onRejected);
+    }
+
+    /**
+     * Run a request once its bulkhead admits it and a permit is free
+     * The bulkhead is entered first, so requests of a saturated workload class
+     * wait without holding one of the shared permits. Without virtual threads
+     * the bulkhead is checked before submitting and the request does not wait.
+     * @param bulkhead Bulkhead of the request's workload class, or null for none
+     * @param task Request handling
+     * @param onRejected Run instead of the task if the bulkhead rejects it, it cannot start
+     *                   within the acquire timeout or the executor is saturated;
+     *                   may run on the calling thread
+     */
+    public void execute(Bulkhead bulkhead, Runnable task, Runnable onRejected) {
+        if (bulkhead == null || virtualThreads) {
+            submit(() -> runAdmitted(bulkhead, task, onRejected), onRejected);
+            return;
+        }
+
+        if (!bulkhead.tryEnterNow()) {
+            onRejected.run();
+            return;
+        }
+        submit(() -> {
+            try {
+                runWithPermit(task, onRejected);
+            } finally {
+                bulkhead.exit();
+            }
+        }, () -> {
+            bulkhead.exit();
+            onRejected.run();
+        });
+    }
+
+    /**
+     * Get executor statistics
+     * @return Map with thread mode, concurrency and wait times
+     */
+    public Map<String, Object> getStatistics() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("virtualThreads", virtualThreads);
+        stats.put("maxConcurrent", maxConcurrent);
+        stats.put("running", maxConcurrent - permits.availablePermits());
+        stats.put("waiting", waiting.get());
+        stats.put("completed", completed.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("permitWait", permitWait.toMap());
+        return stats;
+    }
+
+    private void submit(Runnable runnable, Runnable onRejected) {
+        try {
+            executor.execute(runnable);
+        } catch (RejectedExecutionException e) {
+            rejected.increment();
+            onRejected.run();
+        }
+    }
+
+    private void runAdmitted(Bulkhead bulkhead, Runnable task, Runnable onRejected) {
+        if (bulkhead == null) {
+            runWithPermit(task, onRejected);
+            return;
+        }
+        if (!bulkhead.tryEnter()) {
+            onRejected.run();
+            return;
+        }
+        try {
+            runWithPermit(task, onRejected);
+        } finally {
+            bulkhead.exit();
+        }
+    }
+
+    private void runWithPermit(Runnable task, Runnable onRejected) {
+        long start = System.nanoTime();
+        boolean acquired;
+        waiting.incrementAndGet();
+        try {
+            acquired = permits.tryAcquire(acquireTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        } finally {
+            waiting.decrementAndGet();
+        }
+        permitWait.recordSince(start);
+
+        if (!acquired) {
+            rejected.increment();
+            onRejected.run();
+            return;
+        }
+
+        try {
+            task.run();
+            completed.increment();
+        } finally {
+            permits.release();
+        }
+    }
+
+    /**
+     * Create a virtual-thread-per-task executor if this JVM has one
+     * Looked up reflectively so the code still builds and runs on Java 17.
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return null;
+        }
+    }
+}
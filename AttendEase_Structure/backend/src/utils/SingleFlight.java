@@ -0,0 +1,98 @@
+package utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Coalesces identical concurrent computations
+ * The first caller for a key runs the computation; callers arriving with the
+ * same key while it is in flight wait for it and receive the same result or
+ * exception. Nothing is kept once the computation finishes, so a later call
+ * runs it again.
+ *
+ * Results are shared between callers and must not be modified.
+ */
+public class SingleFlight {
+
+    private final boolean enabled;
+    private final Map<String, CompletableFuture<Object>> inFlight = new ConcurrentHashMap<>();
+
+    // Statistics
+    private final LongAdder executions = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+
+    /**
+     * Create a coalescer
+     * @param enabled false to run every call on its own
+     */
+    public SingleFlight(boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    /**
+     * Run a computation, or join the one already running for the same key
+     * @param key Identifies the computation, e.g. action and parameters
+     * @param loader Computes the result
+     * @return Result of the loader, possibly computed for another caller
+     * @throws Exception Whatever the loader threw
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String key, Callable<T> loader) throws Exception {
+        if (!enabled) {
+            executions.increment();
+            return loader.call();
+        }
+
+        CompletableFuture<Object> call = new CompletableFuture<>();
+        CompletableFuture<Object> running = inFlight.putIfAbsent(key, call);
+
+        if (running != null) {
+            coalesced.increment();
+            try {
+                return (T) running.get();
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause();
+                if (cause instanceof Error) {
+                    throw (Error) cause;
+                }
+                throw (Exception) cause;
+            }
+        }
+
+        executions.increment();
+        try {
+            T result = loader.call();
+            call.complete(result);
+            return result;
+        } catch (Exception | Error e) {
+            failures.increment();
+            call.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, call);
+        }
+    }
+
+    /**
+     * Get coalescing statistics
+     * @return Map with executions, coalesced calls and the share of calls coalesced
+     */
+    public Map<String, Object> getStatistics() {
+        long executed = executions.sum();
+        long joined = coalesced.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("enabled", enabled);
+        stats.put("inFlight", inFlight.size());
+        stats.put("executions", executed);
+        stats.put("coalesced", joined);
+        stats.put("failures", failures.sum());
+        stats.put("coalescedRatio", executed + joined > 0 ? (double) joined / (executed + joined) : 0.0);
+        return stats;
+    }
+}
@@ -0,0 +1,49 @@
+package utils;
+
+/**
+ * Workload classes that requests are isolated by
+ * The class of the request being handled is tracked per thread, so lower
+ * layers such as DBConnection can route it to its own resources.
+ */
+public enum Workload {
+    AUTH, WRITE, READ, REPORT;
+
+    private static final ThreadLocal<Workload> CURRENT = new ThreadLocal<>();
+
+    /**
+     * Get the workload class of the current thread
+     * @return Workload, or null outside a classified request
+     */
+    public static Workload current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Set the workload class of the current thread
+     * @param workload Workload to run as, or null to clear it
+     * @return The previous workload, to pass to restore()
+     */
+    public static Workload enter(Workload workload) {
+        Workload previous = CURRENT.get();
+        CURRENT.set(workload);
+        return previous;
+    }
+
+    /**
+     * Restore the workload class that was current before enter()
+     */
+    public static void restore(Workload previous) {
+        if (previous == null) {
+            CURRENT.remove();
+        } else {
+            CURRENT.set(previous);
+        }
+    }
+
+    /**
+     * Name used in settings and statistics
+     */
+    public String key() {
+        return name().toLowerCase();
+    }
+}
@@ -0,0 +1,221 @@
+package benchmark;
+
+import config.DBConnection;
+import dao.AttendanceCounterDAO;
+import dao.AttendanceDAO;
+import model.Attendance;
+import model.Attendance.AttendanceStatus;
+
+import java.sql.*;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Throughput benchmark for AttendanceDAO.markBulkAttendance
+ * Compares the chunked multi-row INSERT path against the previous
+ * one-statement-per-row JDBC batch in a single transaction.
+ *
+ * Runs against the database configured in DBConnection. Benchmark rows are
+ * written to dates from 2099-01-01 onwards on existing enrollments and are
+ * removed again (with their counters) before and after each run.
+ *
+ * Usage: java benchmark.BulkAttendanceBenchmark [rows] [chunkSizes] [repetitions]
+ *   e.g. java benchmark.BulkAttendanceBenchmark 20000 100,500,1000 3
+ */
+public class BulkAttendanceBenchmark {
+
+    private static final Date FIRST_DATE = Date.valueOf("2099-01-01");
+    private static final AttendanceStatus[] STATUSES = AttendanceStatus.values();
+
+    private final AttendanceDAO attendanceDAO = new AttendanceDAO();
+    private final AttendanceCounterDAO counterDAO = new AttendanceCounterDAO();
+
+    public static void main(String[] args) throws SQLException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        String chunkArg = args.length > 1 ? args[1] : "100,500,1000";
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+
+        BulkAttendanceBenchmark benchmark = new BulkAttendanceBenchmark();
+        List<Attendance> inserts = benchmark.generateRows(rows, 0);
+        List<Attendance> updates = benchmark.generateRows(rows, 1);
+
+        System.out.println("Bulk attendance benchmark: " + inserts.size() + " rows, " +
+                           repetitions + " repetitions");
+        System.out.printf("%-22s %14s %14s%n", "implementation", "insert rows/s", "update rows/s");
+
+        benchmark.run("legacy batch", inserts, updates, repetitions, 0);
+        for (String chunk : chunkArg.split(",")) {
+            int chunkSize = Integer.parseInt(chunk.trim());
+            benchmark.run("multi-row chunk=" + chunkSize, inserts, updates, repetitions, chunkSize);
+        }
+
+        benchmark.cleanup();
+        DBConnection.closeConnection();
+    }
+
+    /**
+     * Run one implementation and print the best insert and update throughput
+     * @param chunkSize Chunk size for the multi-row path, 0 for the legacy batch
+     */
+    private void run(String label, List<Attendance> inserts, List<Attendance> updates,
+                     int repetitions, int chunkSize) throws SQLException {
+        double bestInsert = 0;
+        double bestUpdate = 0;
+
+        for (int i = 0; i < repetitions; i++) {
+            cleanup();
+            bestInsert = Math.max(bestInsert, timeWrite(inserts, chunkSize));
+            // Same keys with a different status exercise the ON DUPLICATE KEY path
+            bestUpdate = Math.max(bestUpdate, timeWrite(updates, chunkSize));
+        }
+
+        System.out.printf("%-22s %14.0f %14.0f%n", label, bestInsert, bestUpdate);
+    }
+
+    private double timeWrite(List<Attendance> rows, int chunkSize) throws SQLException {
+        long start = System.nanoTime();
+
+        if (chunkSize > 0) {
+            Map<String, Object> result = attendanceDAO.markBulkAttendance(rows, chunkSize);
+            if ((Integer) result.get("failed") > 0) {
+                throw new SQLException(result.get("failed") + " rows failed during benchmark");
+            }
+        } else {
+            legacyBulkInsert(rows);
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        return rows.size() / seconds;
+    }
+
+    /**
+     * The bulk path as it was before chunking: one JDBC batch entry per row,
+     * all rows committed in one transaction
+     */
+    private void legacyBulkInsert(List<Attendance> attendanceList) throws SQLException {
+        String sql = "INSERT INTO attendance (enrollment_id, attendance_date, status, " +
+                    "marked_by, remarks) VALUES (?, ?, ?, ?, ?) " +
+                    "ON DUPLICATE KEY UPDATE status = ?, marked_by = ?, " +
+                    "marked_at = CURRENT_TIMESTAMP, remarks = ?";
+
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement pstmt = conn.prepareStatement(sql)) {
+                Map<String, AttendanceStatus> current = new HashMap<>();
+                Map<Integer, int[]> deltas = new HashMap<>();
+
+                for (Attendance attendance : attendanceList) {
+                    String key = AttendanceCounterDAO.key(attendance.getEnrollmentId(), attendance.getAttendanceDate());
+                    AttendanceStatus previous = current.containsKey(key)
+                        ? current.get(key)
+                        : counterDAO.lockStatus(conn, attendance.getEnrollmentId(), attendance.getAttendanceDate());
+                    current.put(key, attendance.getStatus());
+
+                    if (previous != attendance.getStatus()) {
+                        int[] delta = deltas.computeIfAbsent(attendance.getEnrollmentId(), id -> new int[5]);
+                        AttendanceCounterDAO.addToDelta(delta, previous, -1);
+                        AttendanceCounterDAO.addToDelta(delta, attendance.getStatus(), 1);
+                    }
+
+                    pstmt.setInt(1, attendance.getEnrollmentId());
+                    pstmt.setDate(2, attendance.getAttendanceDate());
+                    pstmt.setString(3, attendance.getStatusString());
+                    pstmt.setInt(4, attendance.getMarkedBy());
+                    pstmt.setString(5, attendance.getRemarks());
+                    pstmt.setString(6, attendance.getStatusString());
+                    pstmt.setInt(7, attendance.getMarkedBy());
+                    pstmt.setString(8, attendance.getRemarks());
+                    pstmt.addBatch();
+                }
+
+                pstmt.executeBatch();
+                counterDAO.applyDeltas(conn, deltas);
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Build rows spread across existing enrollments, one date per pass
+     * @param statusShift Offset into the status cycle so a second set updates the first
+     */
+    private List<Attendance> generateRows(int count, int statusShift) throws SQLException {
+        List<Integer> enrollmentIds = new ArrayList<>();
+        int markedBy;
+
+        try (Connection conn = DBConnection.getConnection();
+             Statement stmt = conn.createStatement()) {
+
+            ResultSet rs = stmt.executeQuery("SELECT enrollment_id FROM enrollments ORDER BY enrollment_id");
+            while (rs.next()) {
+                enrollmentIds.add(rs.getInt(1));
+            }
+
+            rs = stmt.executeQuery("SELECT user_id FROM users WHERE role IN ('TEACHER', 'ADMIN') " +
+                                   "ORDER BY user_id LIMIT 1");
+            if (!rs.next() || enrollmentIds.isEmpty()) {
+                throw new SQLException("Benchmark needs at least one enrollment and one teacher or admin user");
+            }
+            markedBy = rs.getInt(1);
+        }
+
+        List<Attendance> rows = new ArrayList<>(count);
+
+        for (int i = 0; i < count; i++) {
+            Attendance attendance = new Attendance();
+            attendance.setEnrollmentId(enrollmentIds.get(i % enrollmentIds.size()));
+            attendance.setAttendanceDate(Date.valueOf(FIRST_DATE.toLocalDate().plusDays(i / enrollmentIds.size())));
+            attendance.setStatus(STATUSES[(i + statusShift) % STATUSES.length]);
+            attendance.setMarkedBy(markedBy);
+            rows.add(attendance);
+        }
+
+        return rows;
+    }
+
+    /**
+     * Delete benchmark rows and take them back out of the counters
+     */
+    private void cleanup() throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+
+            try (PreparedStatement select = conn.prepareStatement(
+                     "SELECT enrollment_id, status, COUNT(*) FROM attendance " +
+                     "WHERE attendance_date >= ? GROUP BY enrollment_id, status");
+                 PreparedStatement delete = conn.prepareStatement(
+                     "DELETE FROM attendance WHERE attendance_date >= ?")) {
+
+                Map<Integer, int[]> deltas = new HashMap<>();
+                select.setDate(1, FIRST_DATE);
+                ResultSet rs = select.executeQuery();
+                while (rs.next()) {
+                    int[] delta = deltas.computeIfAbsent(rs.getInt(1), id -> new int[5]);
+                    int count = rs.getInt(3);
+                    AttendanceStatus status = AttendanceStatus.valueOf(rs.getString(2));
+                    AttendanceCounterDAO.addToDelta(delta, status, -count);
+                }
+
+                delete.setDate(1, FIRST_DATE);
+                delete.executeUpdate();
+                counterDAO.applyDeltas(conn, deltas);
+                conn.commit();
+
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package benchmark;
+
+import java.io.Writer;
+
+/**
+ * Writer that only counts characters, standing in for the response stream
+ * so benchmarks measure encoding rather than I/O
+ */
+public class CountingWriter extends Writer {
+
+    private long count;
+
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void write(char[] cbuf, int off, int len) {
+        count += len;
+    }
+
+    @Override
+    public void write(String str, int off, int len) {
+        count += len;
+    }
+
+    @Override
+    public void flush() {
+    }
+
+    @Override
+    public void close() {
+    }
+}
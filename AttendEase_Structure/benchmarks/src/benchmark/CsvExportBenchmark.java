@@ -0,0 +1,169 @@
+package benchmark;
+
+import model.Attendance;
+import model.Attendance.AttendanceStatus;
+import model.Marks;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import utils.CsvEncoder;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for CSV export encoding
+ * Compares the printf-per-row path ExportUtil used before CsvEncoder with
+ * CsvEncoder, writing attendance and marks rows to a Writer that discards
+ * its output so only encoding is measured.
+ *
+ * Usage: java -jar benchmarks.jar CsvExportBenchmark -p rows=1000000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CsvExportBenchmark {
+
+    private static final AttendanceStatus[] STATUSES = AttendanceStatus.values();
+    private static final String[] ASSESSMENTS = { "Quiz", "Midterm", "Assignment", "Final Exam" };
+
+    @Param({ "10000", "1000000" })
+    public int rows;
+
+    private List<Attendance> attendanceList;
+    private List<Marks> marksList;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        Date firstDate = Date.valueOf("2024-01-01");
+
+        attendanceList = new ArrayList<>(rows);
+        marksList = new ArrayList<>(rows);
+
+        for (int i = 0; i < rows; i++) {
+            Attendance attendance = new Attendance();
+            attendance.setAttendanceDate(Date.valueOf(firstDate.toLocalDate().plusDays(i % 180)));
+            attendance.setRollNumber("CS" + (2024000 + i % 5000));
+            attendance.setStudentName("Student " + (i % 5000));
+            attendance.setSubjectCode("CS" + (101 + i % 12));
+            attendance.setStatus(STATUSES[random.nextInt(STATUSES.length)]);
+            // Roughly one in ten remarks needs quoting
+            attendance.setRemarks(i % 10 == 0 ? "Left early, medical" : i % 3 == 0 ? "On time" : null);
+            attendance.setMarkedByName("Teacher " + (i % 40));
+            attendanceList.add(attendance);
+
+            Marks marks = new Marks();
+            marks.setRollNumber(attendance.getRollNumber());
+            marks.setStudentName(attendance.getStudentName());
+            marks.setSubjectCode(attendance.getSubjectCode());
+            marks.setAssessmentTypeName(ASSESSMENTS[i % ASSESSMENTS.length]);
+            marks.setMaxMarks(100);
+            marks.setMarksObtained(Math.round(random.nextDouble() * 10000) / 100.0);
+            marks.setAssessmentDate(attendance.getAttendanceDate());
+            marksList.add(marks);
+        }
+    }
+
+    @Benchmark
+    public long attendancePrintf() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        PrintWriter writer = new PrintWriter(sink);
+
+        writer.println("Date,Roll Number,Student Name,Subject,Status,Remarks,Marked By");
+        for (Attendance attendance : attendanceList) {
+            writer.printf("%s,%s,%s,%s,%s,%s,%s%n",
+                attendance.getFormattedDate(),
+                attendance.getRollNumber() != null ? attendance.getRollNumber() : "",
+                attendance.getStudentName() != null ? attendance.getStudentName() : "",
+                attendance.getSubjectCode() != null ? attendance.getSubjectCode() : "",
+                attendance.getStatusString(),
+                attendance.getRemarks() != null ? attendance.getRemarks().replace(",", ";") : "",
+                attendance.getMarkedByName() != null ? attendance.getMarkedByName() : ""
+            );
+        }
+        writer.flush();
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long attendanceEncoder() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        CsvEncoder csv = new CsvEncoder(sink);
+
+        csv.line("Date,Roll Number,Student Name,Subject,Status,Remarks,Marked By");
+        for (Attendance attendance : attendanceList) {
+            csv.field(attendance.getAttendanceDate())
+               .field(attendance.getRollNumber())
+               .field(attendance.getStudentName())
+               .field(attendance.getSubjectCode())
+               .field(attendance.getStatusString())
+               .field(attendance.getRemarks())
+               .field(attendance.getMarkedByName())
+               .endRow();
+        }
+        csv.flush();
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long marksPrintf() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        PrintWriter writer = new PrintWriter(sink);
+
+        writer.println("Roll Number,Student Name,Subject,Assessment Type,Marks Obtained,Max Marks,Percentage,Grade,Date");
+        for (Marks marks : marksList) {
+            writer.printf("%s,%s,%s,%s,%.2f,%.2f,%.2f%%,%s,%s%n",
+                marks.getRollNumber() != null ? marks.getRollNumber() : "",
+                marks.getStudentName() != null ? marks.getStudentName() : "",
+                marks.getSubjectCode() != null ? marks.getSubjectCode() : "",
+                marks.getAssessmentTypeName() != null ? marks.getAssessmentTypeName() : "",
+                marks.getMarksObtained(),
+                marks.getMaxMarks(),
+                marks.getPercentage(),
+                marks.calculateGrade(),
+                marks.getAssessmentDate() != null ? marks.getAssessmentDate().toString() : ""
+            );
+        }
+        writer.flush();
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long marksEncoder() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        CsvEncoder csv = new CsvEncoder(sink);
+
+        csv.line("Roll Number,Student Name,Subject,Assessment Type,Marks Obtained,Max Marks,Percentage,Grade,Date");
+        for (Marks marks : marksList) {
+            csv.field(marks.getRollNumber())
+               .field(marks.getStudentName())
+               .field(marks.getSubjectCode())
+               .field(marks.getAssessmentTypeName())
+               .field(marks.getMarksObtained(), 2)
+               .field(marks.getMaxMarks(), 2)
+               .percentField(marks.getPercentage(), 2)
+               .field(marks.calculateGrade())
+               .field(marks.getAssessmentDate())
+               .endRow();
+        }
+        csv.flush();
+        return sink.getCount();
+    }
+
+    /**
+     * Several exports running at once, each with its own encoder
+     */
+    @Benchmark
+    @Threads(4)
+    public void attendanceEncoderConcurrent(Blackhole blackhole) throws IOException {
+        blackhole.consume(attendanceEncoder());
+    }
+}
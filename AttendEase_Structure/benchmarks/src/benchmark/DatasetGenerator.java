@@ -0,0 +1,853 @@
+package benchmark;
+
+import config.DBConnection;
+import utils.PasswordUtil;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.*;
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Synthetic institution dataset for load and scale testing
+ * Generates departments, teachers, subjects, students, enrollments,
+ * attendance, counters, marks, notifications, gamification points and
+ * attendance alerts following schema.sql, at a configurable scale and with
+ * skewed attendance rates and mark distributions.
+ *
+ * Students are spread over batch years, newest first, so that each academic
+ * year has four cohorts in semesters 1-8 and the graduated batches, whose
+ * users are inactive, come last. Every active student takes all subjects of their
+ * department and semester in both terms of the year, and attends each
+ * subject on fixed weekdays. Attendance rates are drawn per student, with a
+ * group of at-risk students and a decline towards the end of each term;
+ * marks follow a per-student ability that rises with attendance. The same
+ * options and seed always give the same dataset.
+ *
+ * Every generated user has the same password (--password) so load tests can
+ * log in as anyone. Teachers are la0001@srmist.edu.in onwards and students
+ * student1@loadtest.attendease.in onwards; id ranges and row counts are
+ * written to dataset.properties in the output directory.
+ *
+ * Modes:
+ *   jdbc   insert into the database configured in DBConnection with
+ *          multi-row INSERTs, ids continuing from the current maximum
+ *   files  write one tab-separated file per table and a load.sql that loads
+ *          them with LOAD DATA LOCAL INFILE, ids starting at --idBase:
+ *          mysql --local-infile=1 attendease < dataset/load.sql
+ * Both expect a fresh database created from schema.sql; foreign key and unique
+ * checks are switched off while loading since the rows are consistent by
+ * construction. Use files mode for tens of millions of rows.
+ *
+ * Usage: java -cp benchmarks.jar benchmark.DatasetGenerator [--option value ...]
+ *   e.g. java -cp benchmarks.jar benchmark.DatasetGenerator --mode files --scale 4
+ *
+ * Options (defaults in brackets):
+ *   --mode jdbc|files            [files]
+ *   --output DIR                 [dataset]
+ *   --seed N                     [42]
+ *   --scale F                    multiplies students and teachers [1]
+ *   --students N                 [5000 * scale]
+ *   --teachers N                 [150 * scale]
+ *   --departments N              [8]
+ *   --subjectsPerSemester N      per department [6]
+ *   --years N                    academic years [3]
+ *   --lastYear YYYY              start year of the latest academic year [2024]
+ *   --weeksPerTerm N             [16]
+ *   --sessionsPerWeek N          classes per subject per week, 1-5 [3]
+ *   --attendanceMean F           mean attendance rate [0.85]
+ *   --attendanceSpread F         standard deviation between students [0.07]
+ *   --atRiskFraction F           students with a low attendance rate [0.12]
+ *   --atRiskMean F               their mean attendance rate [0.62]
+ *   --termDecline F              rate lost by the end of a term [0.06]
+ *   --lateRate F                 attended classes marked LATE [0.06]
+ *   --excusedRate F              missed classes marked EXCUSED [0.15]
+ *   --marksMean F                mean mark in percent [66]
+ *   --marksSpread F              standard deviation between students [12]
+ *   --marksNoise F               standard deviation per assessment [9]
+ *   --quizzes N                  per subject and term [3]
+ *   --assignments N              per subject and term [2]
+ *   --notificationsPerStudent N  per academic year [8]
+ *   --password P                 [Load@Test1]
+ *   --batchRows N                rows per INSERT in jdbc mode [1000]
+ *   --idBase N                   first id of every table in files mode [1000000]
+ */
+public class DatasetGenerator {
+
+    private static final String[][] DEPARTMENTS = {
+        { "Computer Science", "CS" }, { "Electronics", "EC" }, { "Mechanical", "ME" },
+        { "Civil", "CV" }, { "Electrical", "EE" }, { "Biotechnology", "BT" },
+        { "Mathematics", "MA" }, { "Physics", "PH" }
+    };
+    private static final String[] TOPICS = {
+        "Foundations", "Systems", "Design", "Analysis", "Laboratory", "Methods",
+        "Theory", "Applications", "Modelling", "Project", "Seminar", "Practice"
+    };
+    private static final String[] FIRST_NAMES = {
+        "Aarav", "Vivaan", "Aditya", "Vihaan", "Arjun", "Sai", "Reyansh", "Krishna",
+        "Ishaan", "Rohan", "Ananya", "Diya", "Saanvi", "Aadhya", "Pari", "Meera",
+        "Kavya", "Riya", "Nisha", "Priya", "Rahul", "Karthik", "Lakshmi", "Divya"
+    };
+    private static final String[] LAST_NAMES = {
+        "Sharma", "Verma", "Iyer", "Nair", "Reddy", "Patel", "Gupta", "Kumar",
+        "Singh", "Das", "Menon", "Rao", "Joshi", "Mehta", "Pillai", "Bose"
+    };
+    private static final String[] SPECIALIZATIONS = {
+        "Algorithms", "Networks", "Signal Processing", "Thermodynamics", "Structures",
+        "Power Systems", "Genetics", "Statistics", "Optics", "Machine Learning"
+    };
+
+    // Assessment types as named in schema.sql, with the max marks generated for each
+    private static final String[] ASSESSMENT_TYPES = { "Quiz", "Assignment", "Mid-term", "Final Exam" };
+    private static final double[] MAX_MARKS = { 20, 25, 50, 100 };
+    private static final String[] STATUS_NAMES = { "PRESENT", "ABSENT", "LATE", "EXCUSED" };
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String[] TABLES = {
+        "users", "teachers", "students", "subjects", "teacher_subjects", "enrollments",
+        "attendance", "attendance_counters", "marks", "notifications",
+        "gamification_points", "attendance_alerts"
+    };
+    private static final Map<String, String[]> COLUMNS = new LinkedHashMap<>();
+    static {
+        COLUMNS.put("users", new String[] { "user_id", "email", "password_hash", "full_name", "role",
+                "department", "phone", "created_at", "is_active" });
+        COLUMNS.put("teachers", new String[] { "teacher_id", "user_id", "employee_id", "specialization" });
+        COLUMNS.put("students", new String[] { "student_id", "user_id", "roll_number", "semester",
+                "batch_year", "parent_email", "parent_phone" });
+        COLUMNS.put("subjects", new String[] { "subject_id", "subject_code", "subject_name", "credits",
+                "semester", "department" });
+        COLUMNS.put("teacher_subjects", new String[] { "id", "teacher_id", "subject_id", "academic_year" });
+        COLUMNS.put("enrollments", new String[] { "enrollment_id", "student_id", "subject_id",
+                "academic_year", "enrollment_date" });
+        COLUMNS.put("attendance", new String[] { "attendance_id", "enrollment_id", "attendance_date",
+                "status", "marked_by", "marked_at", "remarks" });
+        COLUMNS.put("attendance_counters", new String[] { "enrollment_id", "present_count", "absent_count",
+                "late_count", "excused_count", "total_count" });
+        COLUMNS.put("marks", new String[] { "mark_id", "enrollment_id", "assessment_type_id", "max_marks",
+                "marks_obtained", "assessment_date", "entered_by", "entered_at", "updated_at", "remarks" });
+        COLUMNS.put("notifications", new String[] { "notification_id", "user_id", "title", "message",
+                "type", "is_read", "created_at" });
+        COLUMNS.put("gamification_points", new String[] { "id", "student_id", "points", "academic_year" });
+        COLUMNS.put("attendance_alerts", new String[] { "alert_id", "student_id", "subject_id",
+                "attendance_percentage", "alert_sent", "alert_date" });
+    }
+
+    // Options
+    private String mode = "files";
+    private Path output = Paths.get("dataset");
+    private long seed = 42;
+    private int students;
+    private int teachers;
+    private int departments = 8;
+    private int subjectsPerSemester = 6;
+    private int years = 3;
+    private int lastYear = 2024;
+    private int weeksPerTerm = 16;
+    private int sessionsPerWeek = 3;
+    private double attendanceMean = 0.85;
+    private double attendanceSpread = 0.07;
+    private double atRiskFraction = 0.12;
+    private double atRiskMean = 0.62;
+    private double termDecline = 0.06;
+    private double lateRate = 0.06;
+    private double excusedRate = 0.15;
+    private double marksMean = 66;
+    private double marksSpread = 12;
+    private double marksNoise = 9;
+    private int quizzes = 3;
+    private int assignments = 2;
+    private int notificationsPerStudent = 8;
+    private String password = "Load@Test1";
+    private int batchRows = 1000;
+    private int idBase = 1000000;
+
+    private final Map<String, TableSink> sinks = new LinkedHashMap<>();
+    private final Map<String, Integer> firstIds = new HashMap<>();
+    private final Map<String, Integer> nextIds = new HashMap<>();
+    private final int[] assessmentTypeIds = { 1, 2, 3, 4 };
+    private Connection connection;
+
+    // Per-department teacher user and teacher ids, and generated subjects
+    private final List<List<int[]>> departmentTeachers = new ArrayList<>();
+    private final List<int[]> subjectsByDepartmentSemester = new ArrayList<>();
+
+    public static void main(String[] args) throws Exception {
+        DatasetGenerator generator = new DatasetGenerator();
+        generator.parseOptions(args);
+        generator.generate();
+    }
+
+    private void parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+
+        double scale = Double.parseDouble(options.getOrDefault("scale", "1"));
+        mode = options.getOrDefault("mode", mode);
+        output = Paths.get(options.getOrDefault("output", output.toString()));
+        seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(seed)));
+        students = intOption(options, "students", (int) Math.round(5000 * scale));
+        teachers = intOption(options, "teachers", Math.max(1, (int) Math.round(150 * scale)));
+        departments = intOption(options, "departments", departments);
+        subjectsPerSemester = intOption(options, "subjectsPerSemester", subjectsPerSemester);
+        years = intOption(options, "years", years);
+        lastYear = intOption(options, "lastYear", lastYear);
+        weeksPerTerm = intOption(options, "weeksPerTerm", weeksPerTerm);
+        sessionsPerWeek = Math.max(1, Math.min(5, intOption(options, "sessionsPerWeek", sessionsPerWeek)));
+        attendanceMean = doubleOption(options, "attendanceMean", attendanceMean);
+        attendanceSpread = doubleOption(options, "attendanceSpread", attendanceSpread);
+        atRiskFraction = doubleOption(options, "atRiskFraction", atRiskFraction);
+        atRiskMean = doubleOption(options, "atRiskMean", atRiskMean);
+        termDecline = doubleOption(options, "termDecline", termDecline);
+        lateRate = doubleOption(options, "lateRate", lateRate);
+        excusedRate = doubleOption(options, "excusedRate", excusedRate);
+        marksMean = doubleOption(options, "marksMean", marksMean);
+        marksSpread = doubleOption(options, "marksSpread", marksSpread);
+        marksNoise = doubleOption(options, "marksNoise", marksNoise);
+        quizzes = intOption(options, "quizzes", quizzes);
+        assignments = intOption(options, "assignments", assignments);
+        notificationsPerStudent = intOption(options, "notificationsPerStudent", notificationsPerStudent);
+        password = options.getOrDefault("password", password);
+        batchRows = intOption(options, "batchRows", batchRows);
+        idBase = intOption(options, "idBase", idBase);
+
+        if (!mode.equals("jdbc") && !mode.equals("files")) {
+            throw new IllegalArgumentException("Unknown mode: " + mode);
+        }
+        if (teachers > 26 * 9999) {
+            throw new IllegalArgumentException("At most " + (26 * 9999) + " teachers");
+        }
+    }
+
+    private static int intOption(Map<String, String> options, String name, int defaultValue) {
+        return options.containsKey(name) ? Integer.parseInt(options.get(name)) : defaultValue;
+    }
+
+    private static double doubleOption(Map<String, String> options, String name, double defaultValue) {
+        return options.containsKey(name) ? Double.parseDouble(options.get(name)) : defaultValue;
+    }
+
+    private void generate() throws Exception {
+        long start = System.nanoTime();
+        Files.createDirectories(output);
+        openSinks();
+
+        System.out.printf("Generating %d students, %d teachers, %d subjects over %d academic years " +
+                          "(about %,d attendance rows) in %s mode%n",
+                          students, teachers, departments * 8 * subjectsPerSemester, years,
+                          estimateAttendanceRows(), mode);
+
+        try {
+            String passwordHash = PasswordUtil.hashPassword(password);
+            generateTeachers(passwordHash);
+            generateSubjects();
+            for (int i = 0; i < students; i++) {
+                generateStudent(i, passwordHash);
+                if ((i + 1) % 1000 == 0) {
+                    System.out.printf("  %d/%d students, %,d attendance rows%n",
+                                      i + 1, students, sinks.get("attendance").getRows());
+                }
+            }
+            closeSinks();
+        } finally {
+            if (connection != null) {
+                connection.close();
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+        long totalRows = 0;
+        for (TableSink sink : sinks.values()) {
+            System.out.printf("  %-20s %,14d rows%n", sink.getTable(), sink.getRows());
+            totalRows += sink.getRows();
+        }
+        System.out.printf("%,d rows in %.1f s (%,.0f rows/s)%n", totalRows, seconds, totalRows / seconds);
+
+        writeManifest();
+        if (mode.equals("files")) {
+            writeLoadScript();
+            System.out.println("Load with: mysql --local-infile=1 attendease < " + output.resolve("load.sql"));
+        }
+    }
+
+    private long estimateAttendanceRows() {
+        // Each batch year is active for four academic years
+        long studentYears = 0;
+        for (int i = 0; i < students; i++) {
+            int batch = batchYear(i);
+            for (int y = lastYear - years + 1; y <= lastYear; y++) {
+                if (y - batch >= 0 && y - batch < 4) {
+                    studentYears++;
+                }
+            }
+        }
+        return studentYears * 2 * subjectsPerSemester * weeksPerTerm * sessionsPerWeek;
+    }
+
+    private void openSinks() throws SQLException, IOException {
+        if (mode.equals("jdbc")) {
+            connection = DBConnection.getNewConnection();
+            connection.setAutoCommit(false);
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 0");
+                stmt.execute("SET UNIQUE_CHECKS = 0");
+            }
+            loadAssessmentTypes();
+        }
+
+        for (String table : TABLES) {
+            String[] columns = COLUMNS.get(table);
+            int firstId = mode.equals("jdbc") ? maxId(table, columns[0]) + 1 : idBase;
+            firstIds.put(table, firstId);
+            nextIds.put(table, firstId);
+            sinks.put(table, mode.equals("jdbc")
+                ? new JdbcSink(connection, table, columns, batchRows)
+                : new FileSink(output.resolve(table + ".tsv"), table, columns));
+        }
+    }
+
+    private int maxId(String table, String column) throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COALESCE(MAX(" + column + "), 0) FROM " + table)) {
+            rs.next();
+            return rs.getInt(1);
+        }
+    }
+
+    private void loadAssessmentTypes() throws SQLException {
+        try (Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT type_id, type_name FROM assessment_types")) {
+            Map<String, Integer> ids = new HashMap<>();
+            while (rs.next()) {
+                ids.put(rs.getString("type_name"), rs.getInt("type_id"));
+            }
+            for (int i = 0; i < ASSESSMENT_TYPES.length; i++) {
+                if (!ids.containsKey(ASSESSMENT_TYPES[i])) {
+                    throw new SQLException("Assessment type missing: " + ASSESSMENT_TYPES[i]);
+                }
+                assessmentTypeIds[i] = ids.get(ASSESSMENT_TYPES[i]);
+            }
+        }
+    }
+
+    private void closeSinks() throws SQLException, IOException {
+        for (TableSink sink : sinks.values()) {
+            sink.close();
+        }
+        if (connection != null) {
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("SET UNIQUE_CHECKS = 1");
+                stmt.execute("SET FOREIGN_KEY_CHECKS = 1");
+            }
+            connection.commit();
+        }
+    }
+
+    private int nextId(String table) {
+        return nextIds.merge(table, 1, Integer::sum) - 1;
+    }
+
+    private void add(String table, Object... values) throws SQLException, IOException {
+        sinks.get(table).add(values);
+    }
+
+    private void generateTeachers(String passwordHash) throws SQLException, IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int d = 0; d < departments; d++) {
+            departmentTeachers.add(new ArrayList<>());
+        }
+
+        for (int i = 0; i < teachers; i++) {
+            int department = i % departments;
+            int userId = nextId("users");
+            int teacherId = nextId("teachers");
+            String email = String.format("l%c%04d@srmist.edu.in", (char) ('a' + i / 9999), i % 9999 + 1);
+
+            add("users", userId, email, passwordHash, "Dr. " + name(random), "TEACHER",
+                departmentName(department), phone(random), timestamp(LocalDate.of(lastYear - years - 5, 6, 1)), true);
+            add("teachers", teacherId, userId, String.format("EMPL%06d", i + 1),
+                SPECIALIZATIONS[random.nextInt(SPECIALIZATIONS.length)]);
+            departmentTeachers.get(department).add(new int[] { userId, teacherId });
+        }
+    }
+
+    private void generateSubjects() throws SQLException, IOException {
+        SplittableRandom random = new SplittableRandom(seed + 1);
+
+        for (int d = 0; d < departments; d++) {
+            for (int semester = 1; semester <= 8; semester++) {
+                int[] subjectIds = new int[subjectsPerSemester];
+                for (int s = 0; s < subjectsPerSemester; s++) {
+                    int subjectId = nextId("subjects");
+                    String code = String.format("%s%d%03d", departmentCode(d), semester, s + 1);
+                    String name = departmentName(d) + " " + TOPICS[(semester + s) % TOPICS.length] +
+                                  " " + semester + "." + (s + 1);
+                    add("subjects", subjectId, code, name, 2 + random.nextInt(3), semester, departmentName(d));
+                    subjectIds[s] = subjectId;
+                }
+                subjectsByDepartmentSemester.add(subjectIds);
+            }
+        }
+
+        // One teacher per subject and year, rotating through the department
+        for (int y = lastYear - years + 1; y <= lastYear; y++) {
+            for (int d = 0; d < departments; d++) {
+                for (int semester = 1; semester <= 8; semester++) {
+                    for (int subjectId : subjectsOf(d, semester)) {
+                        add("teacher_subjects", nextId("teacher_subjects"),
+                            teacherFor(d, subjectId, y)[1], subjectId, academicYear(y));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Batch year of a student, from the latest batch down to the ones that
+     * graduated before the first generated academic year
+     */
+    private int batchYear(int index) {
+        return lastYear - (int) ((long) index * (years + 3) / students);
+    }
+
+    private int[] subjectsOf(int department, int semester) {
+        return subjectsByDepartmentSemester.get(department * 8 + semester - 1);
+    }
+
+    private int[] teacherFor(int department, int subjectId, int year) {
+        List<int[]> pool = departmentTeachers.get(department);
+        if (pool.isEmpty()) {
+            pool = departmentTeachers.get(0);
+        }
+        return pool.get(Math.floorMod(subjectId + year, pool.size()));
+    }
+
+    private void generateStudent(int index, String passwordHash) throws SQLException, IOException {
+        SplittableRandom random = new SplittableRandom(seed * 1_000_003L + index);
+        int department = index % departments;
+        int batchYear = batchYear(index);
+        int yearOfStudy = Math.min(lastYear - batchYear, 3);
+        boolean graduated = lastYear - batchYear > 3;
+
+        int userId = nextId("users");
+        int studentId = nextId("students");
+        String name = name(random);
+        add("users", userId, "student" + (index + 1) + "@loadtest.attendease.in", passwordHash, name, "STUDENT",
+            departmentName(department), phone(random), timestamp(LocalDate.of(batchYear, 7, 1)), !graduated);
+        add("students", studentId, userId,
+            String.format("LT%02d%s%07d", batchYear % 100, departmentCode(department), index + 1),
+            graduated ? 8 : yearOfStudy * 2 + 1, batchYear,
+            random.nextInt(4) == 0 ? null : "parent" + (index + 1) + "@loadtest.attendease.in", phone(random));
+
+        // Skew: a group of at-risk students attends much less and scores lower
+        boolean atRisk = random.nextDouble() < atRiskFraction;
+        double rate = clamp((atRisk ? atRiskMean : attendanceMean) + random.nextGaussian() * attendanceSpread,
+                            0.2, 0.99);
+        double ability = marksMean + random.nextGaussian() * marksSpread + (rate - attendanceMean) * 40;
+
+        for (int y = lastYear - years + 1; y <= lastYear; y++) {
+            int year = y - batchYear;
+            if (year < 0 || year > 3) {
+                continue;
+            }
+
+            String academicYear = academicYear(y);
+            int points = 0;
+            for (int term = 0; term < 2; term++) {
+                int semester = year * 2 + term + 1;
+                LocalDate termStart = term == 0
+                    ? LocalDate.of(y, 7, 15).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY))
+                    : LocalDate.of(y + 1, 1, 6).with(TemporalAdjusters.nextOrSame(DayOfWeek.MONDAY));
+
+                for (int subjectId : subjectsOf(department, semester)) {
+                    points += generateEnrollment(random, studentId, subjectId, academicYear,
+                                                 teacherFor(department, subjectId, y)[0],
+                                                 termStart, rate, ability);
+                }
+            }
+
+            add("gamification_points", nextId("gamification_points"), studentId, points, academicYear);
+            generateNotifications(random, userId, y, atRisk);
+        }
+    }
+
+    /**
+     * Generate one enrollment with its attendance, counters, marks and alert
+     * @return Gamification points earned
+     */
+    private int generateEnrollment(SplittableRandom random, int studentId, int subjectId, String academicYear,
+                                   int teacherUserId, LocalDate termStart, double rate, double ability)
+            throws SQLException, IOException {
+        int enrollmentId = nextId("enrollments");
+        add("enrollments", enrollmentId, studentId, subjectId, academicYear, timestamp(termStart.minusDays(7)));
+
+        // Some subjects are better attended than others
+        double subjectRate = rate + (new SplittableRandom(seed + subjectId).nextDouble() - 0.5) * 0.1;
+        int[] counts = new int[4];
+        int sessions = weeksPerTerm * sessionsPerWeek;
+
+        for (int week = 0; week < weeksPerTerm; week++) {
+            double probability = clamp(subjectRate - termDecline * week / weeksPerTerm, 0.02, 0.995);
+            for (int session = 0; session < sessionsPerWeek; session++) {
+                // Fixed weekdays per subject, distinct for up to five sessions a week
+                int weekday = (subjectId + session * 2) % 5;
+                LocalDate date = termStart.plusWeeks(week).plusDays(weekday);
+
+                int status;
+                if (random.nextDouble() < probability) {
+                    status = random.nextDouble() < lateRate ? 2 : 0;
+                } else {
+                    status = random.nextDouble() < excusedRate ? 3 : 1;
+                }
+                counts[status]++;
+
+                add("attendance", nextId("attendance"), enrollmentId, date,
+                    STATUS_NAMES[status], teacherUserId,
+                    timestamp(date).plusHours(9 + subjectId % 6).plusMinutes(random.nextInt(50)),
+                    status == 3 ? "Medical leave" : null);
+            }
+        }
+
+        add("attendance_counters", enrollmentId, counts[0], counts[1], counts[2], counts[3], sessions);
+
+        double percentage = (counts[0] + counts[2]) * 100.0 / sessions;
+        if (percentage < 75) {
+            add("attendance_alerts", nextId("attendance_alerts"), studentId, subjectId,
+                Math.round(percentage * 100) / 100.0, true, timestamp(termStart.plusWeeks(weeksPerTerm)));
+        }
+
+        generateMarks(random, enrollmentId, teacherUserId, termStart, ability);
+        return counts[0] * 2 + counts[2];
+    }
+
+    private void generateMarks(SplittableRandom random, int enrollmentId, int teacherUserId,
+                               LocalDate termStart, double ability) throws SQLException, IOException {
+        for (int q = 0; q < quizzes; q++) {
+            addMark(random, enrollmentId, 0, termStart.plusWeeks((q + 1L) * weeksPerTerm / (quizzes + 1)),
+                    teacherUserId, ability);
+        }
+        for (int a = 0; a < assignments; a++) {
+            addMark(random, enrollmentId, 1, termStart.plusWeeks((a + 1L) * weeksPerTerm / (assignments + 1)).plusDays(4),
+                    teacherUserId, ability);
+        }
+        addMark(random, enrollmentId, 2, termStart.plusWeeks(weeksPerTerm / 2).plusDays(2), teacherUserId, ability);
+        addMark(random, enrollmentId, 3, termStart.plusWeeks(weeksPerTerm + 1), teacherUserId, ability);
+    }
+
+    private void addMark(SplittableRandom random, int enrollmentId, int type, LocalDate date,
+                         int teacherUserId, double ability) throws SQLException, IOException {
+        double maxMarks = MAX_MARKS[type];
+        double percent = clamp(ability + random.nextGaussian() * marksNoise, 0, 100);
+        // Half marks, as teachers enter them
+        double obtained = Math.min(maxMarks, Math.round(percent * maxMarks / 50) / 2.0);
+        LocalDateTime enteredAt = timestamp(date.plusDays(3)).plusHours(16);
+
+        add("marks", nextId("marks"), enrollmentId, assessmentTypeIds[type], maxMarks, obtained, date,
+            teacherUserId, enteredAt, enteredAt, null);
+    }
+
+    private void generateNotifications(SplittableRandom random, int userId, int year, boolean atRisk)
+            throws SQLException, IOException {
+        LocalDate yearStart = LocalDate.of(year, 7, 15);
+        for (int n = 0; n < notificationsPerStudent; n++) {
+            LocalDateTime createdAt = timestamp(yearStart.plusDays(random.nextInt(280)))
+                .plusMinutes(random.nextInt(12 * 60) + 8 * 60);
+            double kind = random.nextDouble();
+            String type;
+            String title;
+            String message;
+            if (kind < (atRisk ? 0.3 : 0.05)) {
+                type = "WARNING";
+                title = "Low attendance";
+                message = "Your attendance has dropped below 75%. Please meet your class advisor.";
+            } else if (kind < 0.45) {
+                type = "ATTENDANCE";
+                title = "Attendance marked";
+                message = "Your attendance for today has been recorded.";
+            } else if (kind < 0.8) {
+                type = "MARKS";
+                title = "Marks published";
+                message = "New marks have been published for one of your subjects.";
+            } else {
+                type = "ANNOUNCEMENT";
+                title = "Department announcement";
+                message = "Please check the notice board for the updated timetable.";
+            }
+            // Older notifications have been read, recent ones only sometimes
+            boolean read = year < lastYear || random.nextDouble() < 0.5;
+            add("notifications", nextId("notifications"), userId, title, message, type, read, createdAt);
+        }
+    }
+
+    private void writeManifest() throws IOException {
+        int subjectCount = departments * 8 * subjectsPerSemester;
+        int activeStudents = 0;
+        while (activeStudents < students && lastYear - batchYear(activeStudents) <= 3) {
+            activeStudents++;
+        }
+
+        List<String> lines = new ArrayList<>();
+        lines.add("# AttendEase synthetic dataset, see benchmark.DatasetGenerator");
+        lines.add("seed=" + seed);
+        lines.add("mode=" + mode);
+        lines.add("password=" + password);
+        lines.add("academicYears=" + academicYear(lastYear - years + 1) + ".." + academicYear(lastYear));
+        lines.add("latestAcademicYear=" + academicYear(lastYear));
+        lines.add("teachers=" + teachers);
+        lines.add("teacherEmails=la0001@srmist.edu.in onwards, l<letter><4 digits>@srmist.edu.in");
+        lines.add("firstTeacherUserId=" + firstIds.get("users"));
+        lines.add("firstTeacherId=" + firstIds.get("teachers"));
+        lines.add("students=" + students);
+        lines.add("studentEmails=student1@loadtest.attendease.in .. student" + students + "@loadtest.attendease.in");
+        // student1 to student<activeStudents> are current, the rest have graduated and cannot log in
+        lines.add("activeStudents=" + activeStudents);
+        lines.add("firstStudentUserId=" + (firstIds.get("users") + teachers));
+        lines.add("firstStudentId=" + firstIds.get("students"));
+        lines.add("subjects=" + subjectCount);
+        lines.add("firstSubjectId=" + firstIds.get("subjects"));
+        lines.add("departments=" + departments);
+        lines.add("subjectsPerSemester=" + subjectsPerSemester);
+        lines.add("firstEnrollmentId=" + firstIds.get("enrollments"));
+        for (TableSink sink : sinks.values()) {
+            lines.add("rows." + sink.getTable() + "=" + sink.getRows());
+        }
+        Files.write(output.resolve("dataset.properties"), lines, StandardCharsets.UTF_8);
+    }
+
+    private void writeLoadScript() throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(output.resolve("load.sql"), StandardCharsets.UTF_8)) {
+            writer.write("-- AttendEase synthetic dataset, generated with seed " + seed + "\n");
+            writer.write("-- Load into a database created from schema.sql:\n");
+            writer.write("--   mysql --local-infile=1 attendease < load.sql\n");
+            writer.write("SET FOREIGN_KEY_CHECKS = 0;\n");
+            writer.write("SET UNIQUE_CHECKS = 0;\n");
+            writer.write("SET autocommit = 0;\n");
+            for (TableSink sink : sinks.values()) {
+                writer.write("LOAD DATA LOCAL INFILE '" +
+                             output.resolve(sink.getTable() + ".tsv").toAbsolutePath().toString().replace("\\", "/") +
+                             "' INTO TABLE " + sink.getTable() + " CHARACTER SET utf8mb4 (" +
+                             String.join(", ", sink.getColumns()) + ");\n");
+                writer.write("COMMIT;\n");
+            }
+            writer.write("SET UNIQUE_CHECKS = 1;\n");
+            writer.write("SET FOREIGN_KEY_CHECKS = 1;\n");
+        }
+    }
+
+    private static String academicYear(int startYear) {
+        return startYear + "-" + String.format("%02d", (startYear + 1) % 100);
+    }
+
+    private static String departmentName(int department) {
+        String name = DEPARTMENTS[department % DEPARTMENTS.length][0];
+        return department < DEPARTMENTS.length ? name : name + " " + (department / DEPARTMENTS.length + 1);
+    }
+
+    private static String departmentCode(int department) {
+        String code = DEPARTMENTS[department % DEPARTMENTS.length][1];
+        return department < DEPARTMENTS.length ? code : code + (department / DEPARTMENTS.length + 1);
+    }
+
+    private static String name(SplittableRandom random) {
+        return FIRST_NAMES[random.nextInt(FIRST_NAMES.length)] + " " + LAST_NAMES[random.nextInt(LAST_NAMES.length)];
+    }
+
+    private static String phone(SplittableRandom random) {
+        return "9" + (100000000 + random.nextInt(900000000));
+    }
+
+    private static LocalDateTime timestamp(LocalDate date) {
+        return date.atStartOfDay();
+    }
+
+    private static double clamp(double value, double min, double max) {
+        return Math.max(min, Math.min(max, value));
+    }
+
+    /**
+     * Destination for the rows of one table
+     */
+    private abstract static class TableSink {
+        private final String table;
+        private final String[] columns;
+        private long rows;
+
+        TableSink(String table, String[] columns) {
+            this.table = table;
+            this.columns = columns;
+        }
+
+        void add(Object[] values) throws SQLException, IOException {
+            if (values.length != columns.length) {
+                throw new IllegalArgumentException(table + ": expected " + columns.length + " values");
+            }
+            write(values);
+            rows++;
+        }
+
+        abstract void write(Object[] values) throws SQLException, IOException;
+
+        abstract void close() throws SQLException, IOException;
+
+        String getTable() { return table; }
+        String[] getColumns() { return columns; }
+        long getRows() { return rows; }
+    }
+
+    /**
+     * Tab-separated file in the default LOAD DATA format: \N for NULL and
+     * backslash escapes for tabs, newlines and backslashes
+     */
+    private static class FileSink extends TableSink {
+        private final Writer writer;
+
+        FileSink(Path file, String table, String[] columns) throws IOException {
+            super(table, columns);
+            this.writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8);
+        }
+
+        @Override
+        void write(Object[] values) throws IOException {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    writer.write('\t');
+                }
+                writer.write(format(values[i]));
+            }
+            writer.write('\n');
+        }
+
+        private static String format(Object value) {
+            if (value == null) {
+                return "\\N";
+            }
+            if (value instanceof Boolean) {
+                return (Boolean) value ? "1" : "0";
+            }
+            if (value instanceof LocalDateTime) {
+                return TIMESTAMP.format((LocalDateTime) value);
+            }
+            if (value instanceof String) {
+                String text = (String) value;
+                if (text.indexOf('\\') < 0 && text.indexOf('\t') < 0 && text.indexOf('\n') < 0) {
+                    return text;
+                }
+                return text.replace("\\", "\\\\").replace("\t", "\\t").replace("\n", "\\n");
+            }
+            return value.toString();
+        }
+
+        @Override
+        void close() throws IOException {
+            writer.close();
+        }
+    }
+
+    /**
+     * Multi-row INSERT of up to batchRows rows per statement, committed
+     * every few statements
+     */
+    private static class JdbcSink extends TableSink {
+        private static final int STATEMENTS_PER_COMMIT = 20;
+
+        private final Connection connection;
+        private final int batchRows;
+        private final List<Object[]> pending = new ArrayList<>();
+        private PreparedStatement fullBatch;
+        private int statements;
+
+        JdbcSink(Connection connection, String table, String[] columns, int batchRows) {
+            super(table, columns);
+            this.connection = connection;
+            this.batchRows = batchRows;
+        }
+
+        @Override
+        void write(Object[] values) throws SQLException {
+            pending.add(values);
+            if (pending.size() >= batchRows) {
+                flush();
+            }
+        }
+
+        private void flush() throws SQLException {
+            if (pending.isEmpty()) {
+                return;
+            }
+
+            PreparedStatement pstmt;
+            if (pending.size() == batchRows) {
+                if (fullBatch == null) {
+                    fullBatch = connection.prepareStatement(insertSql(batchRows));
+                }
+                pstmt = fullBatch;
+            } else {
+                pstmt = connection.prepareStatement(insertSql(pending.size()));
+            }
+
+            try {
+                int index = 1;
+                for (Object[] row : pending) {
+                    for (Object value : row) {
+                        pstmt.setObject(index++, value);
+                    }
+                }
+                pstmt.executeUpdate();
+            } finally {
+                if (pstmt != fullBatch) {
+                    pstmt.close();
+                }
+            }
+            pending.clear();
+
+            if (++statements % STATEMENTS_PER_COMMIT == 0) {
+                connection.commit();
+            }
+        }
+
+        private String insertSql(int rowCount) {
+            String[] columns = getColumns();
+            StringBuilder row = new StringBuilder("(");
+            for (int i = 0; i < columns.length; i++) {
+                row.append(i == 0 ? "?" : ", ?");
+            }
+            row.append(')');
+
+            StringBuilder sql = new StringBuilder("INSERT INTO ").append(getTable())
+                .append(" (").append(String.join(", ", columns)).append(") VALUES ");
+            for (int i = 0; i < rowCount; i++) {
+                sql.append(i == 0 ? "" : ", ").append(row);
+            }
+            return sql.toString();
+        }
+
+        @Override
+        void close() throws SQLException {
+            flush();
+            if (fullBatch != null) {
+                fullBatch.close();
+            }
+            connection.commit();
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package benchmark;
+
+import model.Marks;
+import model.Report;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.*;
+import utils.JsonStreamWriter;
+import utils.JsonUtil;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for servlet JSON responses
+ * Compares building a JSONObject tree and printing its toString() with
+ * streaming through JsonStreamWriter, for a subject report and a marks list.
+ * Each invocation is one request, so run with the GC profiler and read
+ * gc.alloc.rate.norm as bytes allocated per request:
+ *
+ * Usage: java -jar benchmarks.jar JsonResponseBenchmark -prof gc
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonResponseBenchmark {
+
+    private static final String[] ASSESSMENTS = { "Quiz", "Midterm", "Assignment", "Final Exam" };
+
+    // Students in the subject
+    @Param({ "100", "500", "5000" })
+    public int students;
+
+    private List<Report> reports;
+    private List<Marks> marksList;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        reports = new ArrayList<>(students);
+        marksList = new ArrayList<>(students * ASSESSMENTS.length);
+
+        for (int i = 0; i < students; i++) {
+            Report report = new Report();
+            report.setStudentName("Student " + i);
+            report.setRollNumber("CS" + (2024000 + i));
+            report.setEmail("student" + i + "@attendease.edu");
+            report.setSemester(3);
+            report.setSubjectName("Data Structures");
+            report.setSubjectCode("CS201");
+            report.setCredits(4);
+            report.setAcademicYear("2024-2025");
+            report.setTotalClasses(60);
+            report.setClassesAttended(30 + random.nextInt(31));
+            report.setClassesAbsent(60 - report.getClassesAttended());
+            report.calculateAttendancePercentage();
+
+            for (String assessment : ASSESSMENTS) {
+                double obtained = Math.round(random.nextDouble() * 10000) / 100.0;
+                report.addAssessmentMark(new Report.AssessmentMark(assessment, obtained, 100, 25));
+                report.setTotalMarksObtained(report.getTotalMarksObtained() + obtained);
+                report.setTotalMaxMarks(report.getTotalMaxMarks() + 100);
+
+                Marks marks = new Marks();
+                marks.setMarkId(marksList.size() + 1);
+                marks.setEnrollmentId(i + 1);
+                marks.setAssessmentTypeName(assessment);
+                marks.setMaxMarks(100);
+                marks.setMarksObtained(obtained);
+                marks.setStudentName(report.getStudentName());
+                marks.setRollNumber(report.getRollNumber());
+                marks.setSubjectName(report.getSubjectName());
+                marks.setSubjectCode(report.getSubjectCode());
+                marksList.add(marks);
+            }
+
+            report.calculateOverallPercentage();
+            report.calculateOverallGrade();
+            report.analyzeRiskLevel();
+            report.generateInsights();
+            reports.add(report);
+        }
+    }
+
+    @Benchmark
+    public long reportListBuilder() {
+        CountingWriter sink = new CountingWriter();
+        PrintWriter out = new PrintWriter(sink);
+
+        JSONObject jsonResponse = new JSONObject();
+        jsonResponse.put("success", true);
+        jsonResponse.put("data", JsonUtil.reportListToJSON(reports));
+        out.print(jsonResponse.toString());
+        out.flush();
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long reportListStreaming() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        PrintWriter out = new PrintWriter(sink);
+
+        JsonStreamWriter json = new JsonStreamWriter(out);
+        json.beginObject().field("success", true).name("data");
+        JsonUtil.writeReportList(json, reports);
+        json.endObject().flush();
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long marksListBuilder() {
+        CountingWriter sink = new CountingWriter();
+        PrintWriter out = new PrintWriter(sink);
+
+        JSONObject jsonResponse = new JSONObject();
+        jsonResponse.put("success", true);
+        jsonResponse.put("data", JsonUtil.marksListToJSON(marksList));
+        out.print(jsonResponse.toString());
+        out.flush();
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long marksListStreaming() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        PrintWriter out = new PrintWriter(sink);
+
+        JsonStreamWriter json = new JsonStreamWriter(out);
+        json.beginObject().field("success", true).name("data");
+        JsonUtil.writeMarksList(json, marksList);
+        json.endObject().flush();
+        return sink.getCount();
+    }
+}
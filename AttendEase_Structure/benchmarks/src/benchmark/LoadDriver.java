@@ -0,0 +1,672 @@
+package benchmark;
+
+import config.DBConnection;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.sql.*;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.DoubleUnaryOperator;
+
+/**
+ * End-to-end HTTP load driver for the servlets
+ * Replays one of four traffic scenarios against a running deployment with
+ * an open-loop arrival model: flows start at Poisson arrival times whose
+ * rate follows the scenario's shape, whether or not earlier flows have
+ * finished, so a slow server builds a queue instead of slowing the driver
+ * down. The first request of each flow is timed from its scheduled start,
+ * which keeps time spent queued in the driver in the latency.
+ *
+ * Scenarios (--rate is the peak arrival rate per second):
+ *   login    9am login burst: rises to the peak over the first 20% of the
+ *            run, holds until 60% and falls back to a fifth. Students log
+ *            in and open their marks and report, teachers their top and
+ *            failing students.
+ *   period   Period start: every --periodSeconds the first --burstSeconds
+ *            run at the peak rate and the rest at a tenth. Teachers open
+ *            the subject summary and attendance report of a class,
+ *            students their own report.
+ *   marks    Marks bulk entry at a steady rate: a teacher posts one
+ *            assessment for a whole class and reads it back.
+ *   reports  End-of-term report storm, rising from a fifth of the peak to
+ *            the peak: all-subject and single-subject reports, CSV
+ *            exports, subject marks reports and at-risk pages.
+ * The tree has no HTTP endpoint for marking attendance, so period start
+ * drives the attendance reads around it; BulkAttendanceBenchmark covers
+ * the write path.
+ *
+ * Users, subjects and enrollments of the academic year are read from the
+ * database configured in DBConnection before the run. By default only the
+ * users created by DatasetGenerator are used, which all share its password.
+ * The period, marks and reports scenarios log in --sessions students and
+ * teachers up front and spread their flows over them.
+ *
+ * Latency percentiles and throughput are printed per action after the
+ * run. With --results, one CSV row per action is appended to the file,
+ * labelled with --label, to compare configurations such as pool size,
+ * caching or virtual threads on the same scenario.
+ *
+ * Usage: java -cp benchmarks.jar benchmark.LoadDriver [--option value ...]
+ *   e.g. java -cp benchmarks.jar benchmark.LoadDriver --scenario login --rate 200 --duration 60
+ *
+ * Options (defaults in brackets):
+ *   --baseUrl URL          [http://localhost:8080/attendease]
+ *   --scenario NAME        login, period, marks or reports [login]
+ *   --rate N               peak flows per second [50]
+ *   --duration S           measured seconds [60]
+ *   --warmup S             unmeasured seconds at the same shape first [10]
+ *   --periodSeconds S      [60]
+ *   --burstSeconds S       [10]
+ *   --sessions N           logged-in students and teachers for period,
+ *                          marks and reports [100]
+ *   --classSize N          most marks posted per bulk entry [120]
+ *   --academicYear Y       [latest year with enrollments]
+ *   --password P           [Load@Test1]
+ *   --studentEmails LIKE   [student%@loadtest.attendease.in]
+ *   --teacherEmails LIKE   [l_____@srmist.edu.in]
+ *   --timeoutSeconds S     per request [30]
+ *   --seed N               [42]
+ *   --results FILE         append per-action results as CSV
+ *   --label TEXT           configuration label for --results [scenario name]
+ */
+public class LoadDriver {
+
+    private static final String LOGIN_ACTION = "login";
+
+    // Options
+    private String baseUrl = "http://localhost:8080/attendease";
+    private String scenario = "login";
+    private double rate = 50;
+    private int duration = 60;
+    private int warmup = 10;
+    private int periodSeconds = 60;
+    private int burstSeconds = 10;
+    private int sessions = 100;
+    private int classSize = 120;
+    private String academicYear;
+    private String password = "Load@Test1";
+    private String studentEmails = "student%@loadtest.attendease.in";
+    private String teacherEmails = "l_____@srmist.edu.in";
+    private int timeoutSeconds = 30;
+    private long seed = 42;
+    private Path results;
+    private String label;
+
+    // Workload data
+    private final List<UserRef> students = new ArrayList<>();
+    private final List<UserRef> teachers = new ArrayList<>();
+    private final Map<Integer, int[]> enrollmentsBySubject = new HashMap<>();
+    private final List<Session> studentSessions = new ArrayList<>();
+    private final List<Session> teacherSessions = new ArrayList<>();
+
+    private HttpClient client;
+    private final Map<String, ActionStats> stats = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong maxLagNanos = new AtomicLong();
+    private volatile boolean recording;
+
+    public static void main(String[] args) throws Exception {
+        LoadDriver driver = new LoadDriver();
+        driver.parseOptions(args);
+        driver.run();
+    }
+
+    private void parseOptions(String[] args) {
+        Map<String, String> options = new HashMap<>();
+        for (int i = 0; i < args.length; i++) {
+            if (!args[i].startsWith("--") || i + 1 >= args.length) {
+                throw new IllegalArgumentException("Expected --option value, got: " + args[i]);
+            }
+            options.put(args[i].substring(2), args[++i]);
+        }
+
+        baseUrl = options.getOrDefault("baseUrl", baseUrl).replaceAll("/+$", "");
+        scenario = options.getOrDefault("scenario", scenario);
+        rate = Double.parseDouble(options.getOrDefault("rate", String.valueOf(rate)));
+        duration = Integer.parseInt(options.getOrDefault("duration", String.valueOf(duration)));
+        warmup = Integer.parseInt(options.getOrDefault("warmup", String.valueOf(warmup)));
+        periodSeconds = Integer.parseInt(options.getOrDefault("periodSeconds", String.valueOf(periodSeconds)));
+        burstSeconds = Integer.parseInt(options.getOrDefault("burstSeconds", String.valueOf(burstSeconds)));
+        sessions = Integer.parseInt(options.getOrDefault("sessions", String.valueOf(sessions)));
+        classSize = Integer.parseInt(options.getOrDefault("classSize", String.valueOf(classSize)));
+        academicYear = options.get("academicYear");
+        password = options.getOrDefault("password", password);
+        studentEmails = options.getOrDefault("studentEmails", studentEmails);
+        teacherEmails = options.getOrDefault("teacherEmails", teacherEmails);
+        timeoutSeconds = Integer.parseInt(options.getOrDefault("timeoutSeconds", String.valueOf(timeoutSeconds)));
+        seed = Long.parseLong(options.getOrDefault("seed", String.valueOf(seed)));
+        results = options.containsKey("results") ? Paths.get(options.get("results")) : null;
+        label = options.getOrDefault("label", scenario);
+
+        if (!Arrays.asList("login", "period", "marks", "reports").contains(scenario)) {
+            throw new IllegalArgumentException("Unknown scenario: " + scenario);
+        }
+        if (rate <= 0 || duration <= 0) {
+            throw new IllegalArgumentException("--rate and --duration must be positive");
+        }
+    }
+
+    private void run() throws Exception {
+        loadWorkloadData();
+        System.out.printf("Loaded %d students and %d teachers for %s%n",
+                          students.size(), teachers.size(), academicYear);
+        if (students.isEmpty() || teachers.isEmpty()) {
+            throw new IllegalStateException("No students or teachers match the email patterns");
+        }
+
+        client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+
+        if (!scenario.equals("login")) {
+            openSessions();
+        }
+
+        SplittableRandom random = new SplittableRandom(seed);
+        DoubleUnaryOperator shape = shape();
+
+        if (warmup > 0) {
+            System.out.printf("Warming up for %d s%n", warmup);
+            recording = false;
+            drive(random, shape, warmup);
+            awaitFlows();
+        }
+
+        System.out.printf("Running %s at up to %.0f flows/s for %d s%n", scenario, rate, duration);
+        stats.clear();
+        maxLagNanos.set(0);
+        recording = true;
+        long start = System.nanoTime();
+        int flows = drive(random, shape, duration);
+        boolean drained = awaitFlows();
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        report(flows, seconds, drained);
+    }
+
+    /**
+     * Arrival rate as a fraction of --rate at a given second of the run
+     */
+    private DoubleUnaryOperator shape() {
+        switch (scenario) {
+            case "login":
+                return t -> {
+                    double f = t / duration;
+                    if (f < 0.2) return Math.max(0.05, f / 0.2);
+                    if (f < 0.6) return 1;
+                    return 1 - 0.8 * (f - 0.6) / 0.4;
+                };
+            case "period":
+                return t -> t % periodSeconds < burstSeconds ? 1 : 0.1;
+            case "reports":
+                return t -> 0.2 + 0.8 * t / duration;
+            default:
+                return t -> 1;
+        }
+    }
+
+    /**
+     * Start flows at Poisson arrival times for the given number of seconds,
+     * thinning a process at the peak rate down to the scenario's shape
+     * @return Flows started
+     */
+    private int drive(SplittableRandom random, DoubleUnaryOperator shape, int seconds) {
+        long start = System.nanoTime();
+        double t = 0;
+        int flows = 0;
+
+        while (true) {
+            t += -Math.log(1 - random.nextDouble()) / rate;
+            if (t >= seconds) {
+                break;
+            }
+            if (random.nextDouble() >= shape.applyAsDouble(t)) {
+                continue;
+            }
+
+            long scheduled = start + (long) (t * 1_000_000_000L);
+            long wait = scheduled - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            maxLagNanos.accumulateAndGet(System.nanoTime() - scheduled, Math::max);
+
+            inFlight.incrementAndGet();
+            startFlow(random, scheduled).whenComplete((ignored, error) -> inFlight.decrementAndGet());
+            flows++;
+        }
+        return flows;
+    }
+
+    private boolean awaitFlows() {
+        long deadline = System.nanoTime() + Duration.ofSeconds(timeoutSeconds * 2L).toNanos();
+        while (inFlight.get() > 0 && System.nanoTime() < deadline) {
+            LockSupport.parkNanos(10_000_000L);
+        }
+        return inFlight.get() == 0;
+    }
+
+    private CompletableFuture<?> startFlow(SplittableRandom random, long scheduled) {
+        switch (scenario) {
+            case "login":
+                return loginFlow(random, scheduled);
+            case "period":
+                return periodFlow(random, scheduled);
+            case "marks":
+                return marksFlow(random, scheduled);
+            default:
+                return reportsFlow(random, scheduled);
+        }
+    }
+
+    private CompletableFuture<?> loginFlow(SplittableRandom random, long scheduled) {
+        if (random.nextInt(10) == 0) {
+            UserRef teacher = teachers.get(random.nextInt(teachers.size()));
+            int subjectId = teacher.pickSubject(random);
+            return login(teacher, scheduled).thenCompose(session -> session == null ? done()
+                : get(session, "marks.getTopPerformers", "/marks", "getTopPerformers",
+                      "subjectId", subjectId, "limit", 10)
+                    .thenCompose(ok -> get(session, "marks.getFailingStudents", "/marks", "getFailingStudents",
+                                           "subjectId", subjectId)));
+        }
+
+        UserRef student = students.get(random.nextInt(students.size()));
+        int subjectId = student.pickSubject(random);
+        return login(student, scheduled).thenCompose(session -> session == null ? done()
+            : get(session, "marks.getByStudent", "/marks", "getByStudent",
+                  "studentId", student.id, "subjectId", subjectId)
+                .thenCompose(ok -> get(session, "reports.generateStudent", "/reports", "generateStudent",
+                                       "studentId", student.id, "subjectId", subjectId)));
+    }
+
+    private CompletableFuture<?> periodFlow(SplittableRandom random, long scheduled) {
+        if (random.nextInt(10) < 3) {
+            Session session = teacherSessions.get(random.nextInt(teacherSessions.size()));
+            int subjectId = session.user.pickSubject(random);
+            return timed(session, "reports.getSubjectSummary", scheduled, "/reports", "getSubjectSummary",
+                         "subjectId", subjectId)
+                .thenCompose(ok -> get(session, "reports.generateSubjectAttendance", "/reports",
+                                       "generateSubjectAttendance", "subjectId", subjectId));
+        }
+
+        Session session = studentSessions.get(random.nextInt(studentSessions.size()));
+        return timed(session, "reports.generateStudent", scheduled, "/reports", "generateStudent",
+                     "studentId", session.user.id, "subjectId", session.user.pickSubject(random));
+    }
+
+    private CompletableFuture<?> marksFlow(SplittableRandom random, long scheduled) {
+        Session session = teacherSessions.get(random.nextInt(teacherSessions.size()));
+        int subjectId = session.user.pickSubject(random);
+        int assessmentTypeId = 1 + random.nextInt(4);
+        int[] enrollments = enrollmentsBySubject.getOrDefault(subjectId, new int[0]);
+        double maxMarks = assessmentTypeId == 4 ? 100 : 50;
+
+        StringBuilder body = new StringBuilder("[");
+        String date = LocalDate.now().toString();
+        for (int i = 0; i < Math.min(classSize, enrollments.length); i++) {
+            if (i > 0) {
+                body.append(',');
+            }
+            body.append("{\"enrollmentId\":").append(enrollments[i])
+                .append(",\"assessmentTypeId\":").append(assessmentTypeId)
+                .append(",\"maxMarks\":").append(maxMarks)
+                .append(",\"marksObtained\":").append(random.nextInt((int) maxMarks * 2 + 1) / 2.0)
+                .append(",\"date\":\"").append(date).append("\"}");
+        }
+        body.append(']');
+
+        HttpRequest request = builder(session, "/marks", "addBulk")
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body.toString()))
+            .build();
+        return send("marks.addBulk", request, scheduled).thenCompose(response -> response == null ? done()
+            : get(session, "marks.getBySubjectAndAssessment", "/marks", "getBySubjectAndAssessment",
+                  "subjectId", subjectId, "assessmentTypeId", assessmentTypeId));
+    }
+
+    private CompletableFuture<?> reportsFlow(SplittableRandom random, long scheduled) {
+        int kind = random.nextInt(100);
+        if (kind < 35) {
+            Session session = studentSessions.get(random.nextInt(studentSessions.size()));
+            return timed(session, "reports.generateAllSubjects", scheduled, "/reports", "generateAllSubjects",
+                         "studentId", session.user.id);
+        }
+        if (kind < 55) {
+            Session session = studentSessions.get(random.nextInt(studentSessions.size()));
+            return timed(session, "reports.exportCSV", scheduled, "/reports", "exportCSV",
+                         "studentId", session.user.id, "subjectId", session.user.pickSubject(random));
+        }
+
+        Session session = teacherSessions.get(random.nextInt(teacherSessions.size()));
+        int subjectId = session.user.pickSubject(random);
+        if (kind < 75) {
+            return timed(session, "reports.generateSubjectMarks", scheduled, "/reports", "generateSubjectMarks",
+                         "subjectId", subjectId);
+        }
+        if (kind < 90) {
+            return timed(session, "reports.getAtRiskStudents", scheduled, "/reports", "getAtRiskStudents",
+                         "offset", random.nextInt(10) * 50, "limit", 50);
+        }
+        return timed(session, "reports.exportAttendanceCSV", scheduled, "/reports", "exportAttendanceCSV",
+                     "subjectId", subjectId);
+    }
+
+    private static CompletableFuture<Boolean> done() {
+        return CompletableFuture.completedFuture(false);
+    }
+
+    /**
+     * Log in and return the session, or null if the login failed
+     */
+    private CompletableFuture<Session> login(UserRef user, long scheduled) {
+        String form = "email=" + encode(user.email) + "&password=" + encode(password);
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/login"))
+            .timeout(Duration.ofSeconds(timeoutSeconds))
+            .header("Content-Type", "application/x-www-form-urlencoded")
+            .POST(HttpRequest.BodyPublishers.ofString(form))
+            .build();
+
+        return send(LOGIN_ACTION, request, scheduled).thenApply(response -> {
+            if (response == null) {
+                return null;
+            }
+            List<String> cookies = new ArrayList<>();
+            for (String header : response.headers().allValues("Set-Cookie")) {
+                cookies.add(header.split(";", 2)[0]);
+            }
+            return cookies.isEmpty() ? null : new Session(user, String.join("; ", cookies));
+        });
+    }
+
+    private void openSessions() {
+        SplittableRandom random = new SplittableRandom(seed + 1);
+        System.out.printf("Logging in %d students and %d teachers%n", sessions, sessions);
+
+        List<CompletableFuture<Session>> studentLogins = new ArrayList<>();
+        List<CompletableFuture<Session>> teacherLogins = new ArrayList<>();
+        for (int i = 0; i < sessions; i++) {
+            studentLogins.add(login(students.get(random.nextInt(students.size())), System.nanoTime()));
+            teacherLogins.add(login(teachers.get(random.nextInt(teachers.size())), System.nanoTime()));
+        }
+        collect(studentLogins, studentSessions);
+        collect(teacherLogins, teacherSessions);
+
+        if (studentSessions.isEmpty() || teacherSessions.isEmpty()) {
+            throw new IllegalStateException("Could not log in, check --baseUrl and --password");
+        }
+    }
+
+    private static void collect(List<CompletableFuture<Session>> logins, List<Session> sessions) {
+        for (CompletableFuture<Session> login : logins) {
+            Session session = login.join();
+            if (session != null) {
+                sessions.add(session);
+            }
+        }
+    }
+
+    private CompletableFuture<Boolean> get(Session session, String action, String path, String servletAction,
+                                           Object... parameters) {
+        return timed(session, action, System.nanoTime(), path, servletAction, parameters);
+    }
+
+    private CompletableFuture<Boolean> timed(Session session, String action, long start, String path,
+                                             String servletAction, Object... parameters) {
+        HttpRequest.Builder builder = builder(session, path, servletAction, parameters);
+        return send(action, builder.GET().build(), start).thenApply(response -> response != null);
+    }
+
+    private HttpRequest.Builder builder(Session session, String path, String servletAction, Object... parameters) {
+        StringBuilder url = new StringBuilder(baseUrl).append(path)
+            .append("?action=").append(servletAction)
+            .append("&academicYear=").append(encode(academicYear));
+        for (int i = 0; i < parameters.length; i += 2) {
+            url.append('&').append(parameters[i]).append('=').append(encode(String.valueOf(parameters[i + 1])));
+        }
+        return HttpRequest.newBuilder(URI.create(url.toString()))
+            .timeout(Duration.ofSeconds(timeoutSeconds))
+            .header("Cookie", session.cookie);
+    }
+
+    /**
+     * Send a request and record its latency from the given start
+     * @return The response if it succeeded, null otherwise
+     */
+    private CompletableFuture<HttpResponse<String>> send(String action, HttpRequest request, long start) {
+        return client.sendAsync(request, HttpResponse.BodyHandlers.ofString()).handle((response, error) -> {
+            long nanos = System.nanoTime() - start;
+            Outcome outcome;
+            if (error != null) {
+                outcome = Outcome.ERROR;
+            } else if (response.statusCode() == 503) {
+                outcome = Outcome.REJECTED;
+            } else if (response.statusCode() >= 400 || isFailure(response.body())) {
+                outcome = Outcome.FAILED;
+            } else {
+                outcome = Outcome.OK;
+            }
+
+            if (recording) {
+                stats.computeIfAbsent(action, ActionStats::new).record(outcome, nanos);
+            }
+            return outcome == Outcome.OK ? response : null;
+        });
+    }
+
+    /**
+     * JSON responses report errors with "success": false and status 200
+     */
+    private static boolean isFailure(String body) {
+        if (body.isEmpty() || body.charAt(0) != '{') {
+            return false;
+        }
+        int index = body.indexOf("\"success\"");
+        return index >= 0 && body.startsWith("false", body.indexOf(':', index) + 1);
+    }
+
+    private void report(int flows, double seconds, boolean drained) throws IOException {
+        System.out.printf("%n%d flows in %.1f s (%.1f flows/s), max start lag %.1f ms%s%n",
+                          flows, seconds, flows / seconds, maxLagNanos.get() / 1_000_000.0,
+                          drained ? "" : ", " + inFlight.get() + " flows still running");
+        System.out.printf("%-34s %8s %7s %7s %9s %9s %9s %9s %9s %9s%n", "action", "ok", "failed", "503",
+                          "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+
+        List<String> rows = new ArrayList<>();
+        for (ActionStats action : new TreeMap<>(stats).values()) {
+            long[] latencies = action.sortedLatencies();
+            double throughput = action.ok / seconds;
+            System.out.printf("%-34s %8d %7d %7d %9.1f %9.1f %9.1f %9.1f %9.1f %9.1f%n",
+                              action.name, action.ok, action.failed + action.errors, action.rejected, throughput,
+                              millis(latencies, 0.50), millis(latencies, 0.90), millis(latencies, 0.99),
+                              millis(latencies, 0.999), millis(latencies, 1.0));
+            rows.add(String.format("%s,%s,%s,%d,%d,%d,%d,%.2f,%.2f,%.2f,%.2f,%.2f,%.2f",
+                                   label, scenario, action.name, action.ok, action.failed, action.errors,
+                                   action.rejected, throughput, millis(latencies, 0.50), millis(latencies, 0.90),
+                                   millis(latencies, 0.99), millis(latencies, 0.999), millis(latencies, 1.0)));
+        }
+
+        if (results != null) {
+            boolean exists = Files.exists(results);
+            try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(results, StandardCharsets.UTF_8,
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND))) {
+                if (!exists) {
+                    out.println("label,scenario,action,ok,failed,errors,rejected,throughput," +
+                                "p50_ms,p90_ms,p99_ms,p999_ms,max_ms");
+                }
+                rows.forEach(out::println);
+            }
+            System.out.println("Results appended to " + results);
+        }
+    }
+
+    private static double millis(long[] sorted, double quantile) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1_000_000.0;
+    }
+
+    private void loadWorkloadData() throws SQLException {
+        try (Connection conn = DBConnection.getNewConnection()) {
+            if (academicYear == null) {
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT MAX(academic_year) FROM enrollments")) {
+                    rs.next();
+                    academicYear = rs.getString(1);
+                }
+            }
+
+            String studentSql = "SELECT s.student_id, u.email, e.subject_id, e.enrollment_id " +
+                               "FROM enrollments e " +
+                               "JOIN students s ON e.student_id = s.student_id " +
+                               "JOIN users u ON s.user_id = u.user_id " +
+                               "WHERE e.academic_year = ? AND u.is_active = TRUE AND u.email LIKE ? " +
+                               "ORDER BY s.student_id, e.subject_id";
+            Map<Integer, List<Integer>> bySubject = new HashMap<>();
+            try (PreparedStatement pstmt = conn.prepareStatement(studentSql)) {
+                pstmt.setString(1, academicYear);
+                pstmt.setString(2, studentEmails);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    UserRef current = null;
+                    while (rs.next()) {
+                        int studentId = rs.getInt("student_id");
+                        if (current == null || current.id != studentId) {
+                            current = new UserRef(studentId, rs.getString("email"));
+                            students.add(current);
+                        }
+                        current.subjects.add(rs.getInt("subject_id"));
+                        bySubject.computeIfAbsent(rs.getInt("subject_id"), id -> new ArrayList<>())
+                            .add(rs.getInt("enrollment_id"));
+                    }
+                }
+            }
+            bySubject.forEach((subjectId, ids) ->
+                enrollmentsBySubject.put(subjectId, ids.stream().mapToInt(Integer::intValue).toArray()));
+
+            String teacherSql = "SELECT t.teacher_id, u.email, ts.subject_id " +
+                               "FROM teacher_subjects ts " +
+                               "JOIN teachers t ON ts.teacher_id = t.teacher_id " +
+                               "JOIN users u ON t.user_id = u.user_id " +
+                               "WHERE ts.academic_year = ? AND u.is_active = TRUE AND u.email LIKE ? " +
+                               "ORDER BY t.teacher_id, ts.subject_id";
+            try (PreparedStatement pstmt = conn.prepareStatement(teacherSql)) {
+                pstmt.setString(1, academicYear);
+                pstmt.setString(2, teacherEmails);
+                try (ResultSet rs = pstmt.executeQuery()) {
+                    UserRef current = null;
+                    while (rs.next()) {
+                        int teacherId = rs.getInt("teacher_id");
+                        if (current == null || current.id != teacherId) {
+                            current = new UserRef(teacherId, rs.getString("email"));
+                            teachers.add(current);
+                        }
+                        current.subjects.add(rs.getInt("subject_id"));
+                    }
+                }
+            }
+        }
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    private enum Outcome { OK, FAILED, REJECTED, ERROR }
+
+    /**
+     * A student or teacher with the subjects they take or teach this year
+     */
+    private static class UserRef {
+        final int id;
+        final String email;
+        final List<Integer> subjects = new ArrayList<>();
+
+        UserRef(int id, String email) {
+            this.id = id;
+            this.email = email;
+        }
+
+        int pickSubject(SplittableRandom random) {
+            return subjects.get(random.nextInt(subjects.size()));
+        }
+    }
+
+    /**
+     * A logged-in user and the cookies of their session
+     */
+    private static class Session {
+        final UserRef user;
+        final String cookie;
+
+        Session(UserRef user, String cookie) {
+            this.user = user;
+            this.cookie = cookie;
+        }
+    }
+
+    /**
+     * Outcome counts and latencies of successful requests for one action
+     */
+    private static class ActionStats {
+        final String name;
+        long ok;
+        long failed;
+        long rejected;
+        long errors;
+        private long[] latencies = new long[1024];
+
+        ActionStats(String name) {
+            this.name = name;
+        }
+
+        synchronized void record(Outcome outcome, long nanos) {
+            switch (outcome) {
+                case OK:
+                    if (ok == latencies.length) {
+                        latencies = Arrays.copyOf(latencies, latencies.length * 2);
+                    }
+                    latencies[(int) ok++] = nanos;
+                    break;
+                case FAILED:
+                    failed++;
+                    break;
+                case REJECTED:
+                    rejected++;
+                    break;
+                default:
+                    errors++;
+            }
+        }
+
+        synchronized long[] sortedLatencies() {
+            long[] sorted = Arrays.copyOf(latencies, (int) ok);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
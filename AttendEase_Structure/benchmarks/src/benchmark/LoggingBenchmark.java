@@ -0,0 +1,79 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import utils.AsyncLogger;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * JMH benchmark for logging on request threads
+ * Compares the println the DAOs and LoginServlet used before with
+ * AsyncLogger, both writing a login event to a file from several threads at
+ * once. println formats and writes under the stream lock on the calling
+ * thread; AsyncLogger only enqueues the event. Dropped events are printed at
+ * the end of each trial, since a full buffer makes logging cheaper.
+ *
+ * Usage: java -jar benchmarks.jar LoggingBenchmark -t 8
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Threads(4)
+@Fork(1)
+public class LoggingBenchmark {
+
+    private static final String EMAIL = "student1@gmail.com";
+    private static final String ROLE = "STUDENT";
+
+    @Param({ "65536" })
+    public int bufferSize;
+
+    private Path directory;
+    private PrintStream printStream;
+    private AsyncLogger logger;
+
+    @Setup(Level.Trial)
+    public void setup() throws IOException {
+        directory = Files.createTempDirectory("attendease-log-bench");
+        printStream = new PrintStream(new FileOutputStream(directory.resolve("println.log").toFile()), true);
+        logger = new AsyncLogger(AsyncLogger.Level.INFO, directory.resolve("async.log"),
+                                 64L * 1024 * 1024, 2, bufferSize);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        printStream.close();
+        logger.shutdown(10000);
+        System.out.println("AsyncLogger: " + logger.getStatistics());
+
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Benchmark
+    public void println() {
+        printStream.println("User logged in: " + EMAIL + " (Role: " + ROLE + ")");
+    }
+
+    @Benchmark
+    public void asyncLogger() {
+        logger.log(AsyncLogger.Level.INFO, "User logged in", null, "email", EMAIL, "role", ROLE);
+    }
+
+    @Benchmark
+    public void asyncLoggerFiltered() {
+        logger.log(AsyncLogger.Level.DEBUG, "User logged in", null, "email", EMAIL, "role", ROLE);
+    }
+}
@@ -0,0 +1,95 @@
+package benchmark;
+
+import model.Marks;
+import model.Report;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for the model calculations run per row of a report
+ * Grades and percentages for a list of marks, and risk analysis and
+ * insights for a list of student reports, as the report and marks pages
+ * compute them for every student.
+ *
+ * Usage: java -jar benchmarks.jar ModelBenchmark -p size=100000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ModelBenchmark {
+
+    // Marks and reports in the list
+    @Param({ "1000", "100000" })
+    public int size;
+
+    private List<Marks> marksList;
+    private List<Report> reports;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        marksList = new ArrayList<>(size);
+        reports = new ArrayList<>(size);
+
+        for (int i = 0; i < size; i++) {
+            Marks marks = new Marks();
+            marks.setMaxMarks(i % 5 == 0 ? 50 : 100);
+            marks.setMarksObtained(Math.round(random.nextDouble() * marks.getMaxMarks() * 100) / 100.0);
+            marksList.add(marks);
+
+            // Spread students over all risk levels
+            Report report = new Report();
+            report.setTotalClasses(60);
+            report.setClassesAttended(30 + random.nextInt(31));
+            report.calculateAttendancePercentage();
+            report.setTotalMaxMarks(400);
+            report.setTotalMarksObtained(Math.round(random.nextDouble() * 40000) / 100.0);
+            report.calculateOverallPercentage();
+            reports.add(report);
+        }
+    }
+
+    @Benchmark
+    public void marksGrade(Blackhole blackhole) {
+        for (Marks marks : marksList) {
+            blackhole.consume(marks.calculateGrade());
+        }
+    }
+
+    @Benchmark
+    public double marksPercentage() {
+        double total = 0;
+        for (Marks marks : marksList) {
+            total += marks.getPercentage();
+        }
+        return total;
+    }
+
+    @Benchmark
+    public void reportRiskLevel(Blackhole blackhole) {
+        for (Report report : reports) {
+            report.analyzeRiskLevel();
+            blackhole.consume(report.getRiskLevel());
+        }
+    }
+
+    @Benchmark
+    public void reportInsights(Blackhole blackhole) {
+        for (Report report : reports) {
+            // generateInsights() appends, so start from empty lists as a new report would
+            report.getStrengths().clear();
+            report.getWeaknesses().clear();
+            report.getRecommendations().clear();
+            report.generateInsights();
+            blackhole.consume(report.getRecommendations());
+        }
+    }
+}
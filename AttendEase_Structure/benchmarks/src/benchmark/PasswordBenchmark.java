@@ -0,0 +1,62 @@
+package benchmark;
+
+import org.openjdk.jmh.annotations.*;
+import utils.PasswordUtil;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for PasswordUtil
+ * Hashing runs on every registration and password change, verification on
+ * every login, so these set the CPU cost of a login burst.
+ *
+ * Usage: java -jar benchmarks.jar PasswordBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PasswordBenchmark {
+
+    @Param({ "12", "64" })
+    public int passwordLength;
+
+    private String password;
+    private String wrongPassword;
+    private String salt;
+    private String storedHash;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        StringBuilder builder = new StringBuilder(passwordLength);
+        for (int i = 0; i < passwordLength; i++) {
+            builder.append((char) ('a' + i % 26));
+        }
+        password = builder.toString();
+        wrongPassword = password.substring(1) + "X";
+        salt = PasswordUtil.generateSalt();
+        storedHash = PasswordUtil.hashPassword(password);
+    }
+
+    @Benchmark
+    public String hashPasswordWithSalt() {
+        return PasswordUtil.hashPassword(password, salt);
+    }
+
+    @Benchmark
+    public String hashPassword() {
+        return PasswordUtil.hashPassword(password);
+    }
+
+    @Benchmark
+    public boolean verifyPassword() {
+        return PasswordUtil.verifyPassword(password, storedHash);
+    }
+
+    @Benchmark
+    public boolean verifyWrongPassword() {
+        return PasswordUtil.verifyPassword(wrongPassword, storedHash);
+    }
+}
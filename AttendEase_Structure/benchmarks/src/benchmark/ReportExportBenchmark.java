@@ -0,0 +1,122 @@
+package benchmark;
+
+import model.Report;
+import org.openjdk.jmh.annotations.*;
+import utils.ExportUtil;
+
+import java.io.IOException;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * JMH benchmark for the ExportUtil report writers
+ * The multi-report CSV and attendance summary CSV write one row per report
+ * or day; the student report CSV and text writers are run once per report,
+ * as when a teacher exports the report of every student in a class. Output
+ * goes to a Writer that discards it, see CsvExportBenchmark for the
+ * attendance and marks CSV.
+ *
+ * Usage: java -jar benchmarks.jar ReportExportBenchmark -p size=10000
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReportExportBenchmark {
+
+    private static final String[] ASSESSMENTS = { "Quiz 1", "Quiz 2", "Assignment", "Midterm", "Final Exam" };
+    private static final double[] WEIGHTAGES = { 5, 5, 15, 25, 50 };
+
+    // Reports, and days in the attendance summary
+    @Param({ "100", "10000" })
+    public int size;
+
+    private List<Report> reports;
+    private List<Map<String, Object>> summary;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        Random random = new Random(42);
+        reports = new ArrayList<>(size);
+        summary = new ArrayList<>(size);
+        Date firstDate = Date.valueOf("2024-01-01");
+
+        for (int i = 0; i < size; i++) {
+            Report report = new Report();
+            report.setStudentName(i % 10 == 0 ? "Kumar, Ravi" : "Student " + i);
+            report.setRollNumber("CS" + (2024000 + i));
+            report.setEmail("student" + i + "@attendease.edu");
+            report.setSemester(3);
+            report.setSubjectName("Data Structures");
+            report.setSubjectCode("CS201");
+            report.setCredits(4);
+            report.setAcademicYear("2024-25");
+            report.setTotalClasses(60);
+            report.setClassesAttended(30 + random.nextInt(31));
+            report.setClassesAbsent(60 - report.getClassesAttended());
+            report.calculateAttendancePercentage();
+
+            for (int a = 0; a < ASSESSMENTS.length; a++) {
+                double obtained = Math.round(random.nextDouble() * 10000) / 100.0;
+                report.addAssessmentMark(new Report.AssessmentMark(ASSESSMENTS[a], obtained, 100, WEIGHTAGES[a]));
+                report.setTotalMarksObtained(report.getTotalMarksObtained() + obtained);
+                report.setTotalMaxMarks(report.getTotalMaxMarks() + 100);
+            }
+            report.calculateOverallPercentage();
+            report.calculateOverallGrade();
+            report.analyzeRiskLevel();
+            report.generateInsights();
+            reports.add(report);
+
+            int present = 40 + random.nextInt(20);
+            int late = random.nextInt(5);
+            Map<String, Object> day = new LinkedHashMap<>();
+            day.put("date", Date.valueOf(firstDate.toLocalDate().plusDays(i)));
+            day.put("totalStudents", 60);
+            day.put("present", present);
+            day.put("absent", 60 - present - late);
+            day.put("late", late);
+            day.put("percentage", (present + late) * 100.0 / 60);
+            summary.add(day);
+        }
+    }
+
+    @Benchmark
+    public long multipleReportsCsv() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        ExportUtil.writeMultipleReportsCSV(reports, sink);
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long attendanceSummaryCsv() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        ExportUtil.writeAttendanceSummaryCSV(summary, sink);
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long studentReportCsv() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        for (Report report : reports) {
+            ExportUtil.writeStudentReportCSV(report, sink);
+        }
+        return sink.getCount();
+    }
+
+    @Benchmark
+    public long studentReportText() throws IOException {
+        CountingWriter sink = new CountingWriter();
+        for (Report report : reports) {
+            ExportUtil.writeReportText(report, sink);
+        }
+        return sink.getCount();
+    }
+}
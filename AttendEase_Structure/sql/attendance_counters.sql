@@ -0,0 +1,28 @@
+-- AttendEase migration: per-enrollment attendance counters
+-- Run once against an existing database created from an older schema.sql.
+-- Afterwards AttendanceDAO keeps the counters in step with the attendance table;
+-- use `java dao.AttendanceCounterDAO verify` to check for drift.
+USE attendease;
+
+CREATE TABLE IF NOT EXISTS attendance_counters (
+    enrollment_id INT PRIMARY KEY,
+    present_count INT NOT NULL DEFAULT 0,
+    absent_count INT NOT NULL DEFAULT 0,
+    late_count INT NOT NULL DEFAULT 0,
+    excused_count INT NOT NULL DEFAULT 0,
+    total_count INT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (enrollment_id) REFERENCES enrollments(enrollment_id) ON DELETE CASCADE
+);
+
+-- Backfill from existing attendance rows
+REPLACE INTO attendance_counters (enrollment_id, present_count, absent_count,
+                                  late_count, excused_count, total_count)
+SELECT enrollment_id,
+       SUM(CASE WHEN status = 'PRESENT' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN status = 'ABSENT' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN status = 'LATE' THEN 1 ELSE 0 END),
+       SUM(CASE WHEN status = 'EXCUSED' THEN 1 ELSE 0 END),
+       COUNT(*)
+FROM attendance
+GROUP BY enrollment_id;
@@ -89,6 +89,18 @@ CREATE TABLE attendance (
     INDEX idx_status (status)
 );
 
+-- Attendance Counters (per-enrollment totals maintained by AttendanceDAO on every write)
+CREATE TABLE attendance_counters (
+    enrollment_id INT PRIMARY KEY,
+    present_count INT NOT NULL DEFAULT 0,
+    absent_count INT NOT NULL DEFAULT 0,
+    late_count INT NOT NULL DEFAULT 0,
+    excused_count INT NOT NULL DEFAULT 0,
+    total_count INT NOT NULL DEFAULT 0,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP ON UPDATE CURRENT_TIMESTAMP,
+    FOREIGN KEY (enrollment_id) REFERENCES enrollments(enrollment_id) ON DELETE CASCADE
+);
+
 -- Assessment Types
 CREATE TABLE assessment_types (
     type_id INT PRIMARY KEY AUTO_INCREMENT,